@@ -0,0 +1,48 @@
+:: ---------------------------------------------------------------------
+:: BENCHMARK SCRIPT
+:: Compiles the game engine together with the benchmarks and runs them.
+:: Any arguments are passed on to the benchmarks, for example:
+::   BenchmarkScript.bat --time 500 --filter fire
+:: ---------------------------------------------------------------------
+
+CLS
+
+:: Define directory paths
+SET SRCDIR=src
+SET BENCHDIR=bench
+SET BINDIR=bench-bin
+SET BINERR=battleship-bench-javac.err
+SET PACKAGE=battleship
+SET BENCHPACKAGE=%PACKAGE%\bench
+SET MODELBENCHSRC=%BENCHDIR%\%BENCHPACKAGE%\ModelBenchmark.java
+SET MODELBENCHBIN=%PACKAGE%.bench.ModelBenchmark
+SET CODECBENCHSRC=%BENCHDIR%\%BENCHPACKAGE%\CodecBenchmark.java
+SET CODECBENCHBIN=%PACKAGE%.bench.CodecBenchmark
+SET LOADTESTSRC=%BENCHDIR%\%BENCHPACKAGE%\LoadTest.java
+SET RESOURCEDIR=resources
+
+@echo off
+
+ECHO "[BENCHMARK SCRIPT ----------------]"
+
+ECHO "0. Preconfiguring ................."
+mkdir "%BINDIR%" 2>nul
+xcopy /E /I /Y "%RESOURCEDIR%" "%BINDIR%\%RESOURCEDIR%"
+
+ECHO "1. Compiling ......................"
+javac -Xlint -sourcepath "%SRCDIR%;%BENCHDIR%" "%MODELBENCHSRC%" "%CODECBENCHSRC%" "%LOADTESTSRC%" -d "%BINDIR%" 2> "%BINERR%"
+
+ECHO "2. Running Model Benchmarks ......"
+java -cp "%BINDIR%" %MODELBENCHBIN% %*
+
+ECHO "3. Running Codec Benchmarks ......"
+java -cp "%BINDIR%" %CODECBENCHBIN% %*
+
+ECHO "[END OF SCRIPT -------------------]"
+ECHO "                                   "
+
+@echo on
+
+:: ---------------------------------------------------------------------
+:: End of Script
+:: ---------------------------------------------------------------------
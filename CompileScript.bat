@@ -19,6 +19,8 @@ SET DOCOUT=battleship-doc.out
 SET PACKAGE=battleship
 SET MAINCLASSSRC=%SRCDIR%\%PACKAGE%\Main.java
 SET MAINCLASSBIN=%PACKAGE%.Main
+SET TOURNAMENTSRC=%SRCDIR%\%PACKAGE%\Tournament.java
+SET SERVERSRC=%SRCDIR%\%PACKAGE%\server\GameServer.java
 SET RESOURCEDIR=resources
 
 @echo off
@@ -55,7 +57,7 @@ mkdir "%BINDIR%\%PACKAGE%" 2>nul
 xcopy /E /I /Y "%RESOURCEDIR%" "%BINDIR%\%RESOURCEDIR%"
 
 ECHO "1. Compiling ......................"
-javac -Xlint -cp "%SRCDIR%" "%MAINCLASSSRC%" -d "%BINDIR%" 2> "%BINERR%"
+javac -Xlint -cp "%SRCDIR%" "%MAINCLASSSRC%" "%TOURNAMENTSRC%" "%SERVERSRC%" -d "%BINDIR%" 2> "%BINERR%"
 
 ECHO "2. Creating Jar ..................."
 cd "%BINDIR%"
@@ -0,0 +1,102 @@
+package battleship.bench;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import battleship.net.BinaryCodec;
+import battleship.net.Codec;
+import battleship.net.Message;
+import battleship.net.MessageType;
+import battleship.net.TextCodec;
+
+/**
+ * The CodecBenchmark class compares the text protocol with the binary framing:
+ * encoding a message, and decoding a stream of them from a heap buffer, as the
+ * blocking transports read, and from a direct buffer, as the NIO transport
+ * reads. It runs for a MOVE, a PLACE, the FLEET of a standard game and a CHAT
+ * line, then prints how many bytes each takes on the wire in either format.
+ *
+ * <p>
+ * Example usage:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * java -cp bench-bin battleship.bench.CodecBenchmark --time 500 --filter MOVE
+ * }
+ * </pre>
+ */
+public class CodecBenchmark {
+
+	// Number of messages in each decoded stream
+	private static final int MESSAGES = 1024;
+
+	/**
+	 * Main method to run the benchmarks.
+	 *
+	 * @param args The command-line arguments, see {@link Harness}.
+	 */
+	public static void main(String[] args) {
+		Harness harness = Harness.fromArgs(args);
+		Message[] messages = { Message.move(3, 7), Message.place(4, 2, 5, true),
+				Message.fleet(new int[] { 0, 0, 5, 1, 2, 1, 4, 1, 4, 9, 3, 0, 6, 3, 3, 1, 8, 6, 2, 0 }),
+				Message.of(MessageType.CHAT, "Player1 : Good game, well played!") };
+		harness.printHeader();
+		for (Message message : messages) {
+			run(harness, message, "text", new TextCodec());
+			run(harness, message, "binary", new BinaryCodec());
+		}
+		System.out.println("sink " + harness.getSink());
+		System.out.println();
+		System.out.printf(Locale.ROOT, "%-10s %12s %12s%n", "Bytes", "text", "binary");
+		for (Message message : messages) {
+			System.out.printf(Locale.ROOT, "%-10s %12d %12d%n", message.getType(),
+					new TextCodec().encode(message).length, new BinaryCodec().encode(message).length);
+		}
+	}
+
+	/**
+	 * Runs every benchmark for one message and codec.
+	 *
+	 * @param harness The harness to run in.
+	 * @param message The message to encode and decode.
+	 * @param format  The name of the format, added to each benchmark name.
+	 * @param codec   The codec to measure.
+	 */
+	private static void run(Harness harness, Message message, String format, Codec codec) {
+		String suffix = " " + message.getType() + " " + format;
+		harness.run("encode" + suffix, 1, () -> codec.encode(message).length);
+
+		byte[] frame = codec.encode(message);
+		ByteBuffer heap = ByteBuffer.allocate(frame.length * MESSAGES);
+		for (int i = 0; i < MESSAGES; i++) {
+			heap.put(frame);
+		}
+		heap.flip();
+		ByteBuffer direct = ByteBuffer.allocateDirect(heap.capacity());
+		direct.put(heap.duplicate()).flip();
+		harness.run("decode" + suffix, MESSAGES, () -> decodeAll(codec, heap));
+		harness.run("decode direct" + suffix, MESSAGES, () -> decodeAll(codec, direct));
+	}
+
+	/**
+	 * Decodes every message in a buffer, then rewinds it for the next call.
+	 *
+	 * @param codec  The codec to decode with.
+	 * @param buffer The encoded messages.
+	 * @return A value derived from the decoded messages.
+	 */
+	private static long decodeAll(Codec codec, ByteBuffer buffer) {
+		long sum = 0;
+		try {
+			for (Message decoded; (decoded = codec.decode(buffer)) != null;) {
+				sum += decoded.getRow() + decoded.getType().ordinal();
+			}
+		} catch (ProtocolException e) {
+			throw new IllegalStateException(e);
+		}
+		buffer.rewind();
+		return sum;
+	}
+}
@@ -0,0 +1,232 @@
+package battleship.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The Harness class runs microbenchmarks without any third-party library. Each
+ * benchmark is warmed up for a number of timed iterations so that the JIT
+ * compiler has settled, then measured for a number of timed iterations.
+ *
+ * <p>
+ * For every benchmark it reports the throughput and time per operation, the
+ * bytes allocated per operation by the benchmark thread, and the number and
+ * duration of garbage collections during measurement. Operations return a value
+ * that the harness consumes so that the JIT compiler cannot remove their work.
+ * </p>
+ *
+ * <p>
+ * Options:
+ * </p>
+ * <ul>
+ * <li>{@code --warmup N} the number of warmup iterations, 5 by default.</li>
+ * <li>{@code --iterations N} the number of measured iterations, 5 by
+ * default.</li>
+ * <li>{@code --time MS} the length of each iteration in milliseconds, 1000 by
+ * default.</li>
+ * <li>{@code --filter TEXT} only runs benchmarks whose name contains the
+ * text.</li>
+ * </ul>
+ */
+public class Harness {
+
+	/**
+	 * A unit of work to benchmark.
+	 */
+	public interface Operation {
+
+		/**
+		 * Performs the work once.
+		 *
+		 * @return Any value computed by the work, to be consumed by the harness.
+		 */
+		long run();
+	}
+
+	private final int warmupIterations;
+	private final int measureIterations;
+	private final long iterationNanos;
+	private final String filter;
+
+	private long sink;
+
+	/**
+	 * Constructs a Harness.
+	 *
+	 * @param warmupIterations  The number of warmup iterations.
+	 * @param measureIterations The number of measured iterations.
+	 * @param iterationMillis   The length of each iteration in milliseconds.
+	 * @param filter            Only benchmarks whose name contains this text are
+	 *                          run, or null to run all of them.
+	 */
+	public Harness(int warmupIterations, int measureIterations, long iterationMillis, String filter) {
+		this.warmupIterations = warmupIterations;
+		this.measureIterations = measureIterations;
+		this.iterationNanos = iterationMillis * 1_000_000L;
+		this.filter = filter;
+	}
+
+	/**
+	 * Creates a Harness from command-line options.
+	 *
+	 * @param args The command-line arguments.
+	 * @return A new Harness.
+	 */
+	public static Harness fromArgs(String[] args) {
+		int warmup = 5;
+		int iterations = 5;
+		long time = 1000;
+		String filter = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--warmup":
+				warmup = Integer.parseInt(args[i + 1]);
+				break;
+			case "--iterations":
+				iterations = Integer.parseInt(args[i + 1]);
+				break;
+			case "--time":
+				time = Long.parseLong(args[i + 1]);
+				break;
+			case "--filter":
+				filter = args[i + 1];
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		return new Harness(warmup, iterations, time, filter);
+	}
+
+	/**
+	 * Prints the header of the results table.
+	 */
+	public void printHeader() {
+		System.out.printf(Locale.ROOT, "%-40s %26s %12s %12s %8s %8s%n", "Benchmark", "ops/s", "ns/op", "B/op",
+				"gc", "gc ms");
+	}
+
+	/**
+	 * Runs a benchmark and prints its results.
+	 *
+	 * @param name             The name of the benchmark.
+	 * @param opsPerInvocation The number of operations one call to the operation
+	 *                         performs, so that results are reported per
+	 *                         operation.
+	 * @param operation        The work to measure.
+	 */
+	public void run(String name, int opsPerInvocation, Operation operation) {
+		if (filter != null && !name.contains(filter)) {
+			return;
+		}
+		for (int i = 0; i < warmupIterations; i++) {
+			iterate(operation);
+		}
+
+		double[] opsPerSecond = new double[measureIterations];
+		long invocations = 0;
+		long nanos = 0;
+		long allocatedStart = allocatedBytes();
+		long gcCountStart = gcCount();
+		long gcTimeStart = gcTime();
+		for (int i = 0; i < measureIterations; i++) {
+			long start = System.nanoTime();
+			long count = iterate(operation);
+			long elapsed = System.nanoTime() - start;
+			opsPerSecond[i] = count * opsPerInvocation * 1e9 / elapsed;
+			invocations += count;
+			nanos += elapsed;
+		}
+		long allocated = allocatedBytes() - allocatedStart;
+		long gcCount = gcCount() - gcCountStart;
+		long gcTime = gcTime() - gcTimeStart;
+
+		double mean = 0;
+		for (double value : opsPerSecond) {
+			mean += value;
+		}
+		mean /= measureIterations;
+		double variance = 0;
+		for (double value : opsPerSecond) {
+			variance += (value - mean) * (value - mean);
+		}
+		double deviation = measureIterations > 1 ? Math.sqrt(variance / (measureIterations - 1)) : 0;
+		long operations = invocations * opsPerInvocation;
+		String bytes = allocatedStart < 0 ? "n/a"
+				: String.format(Locale.ROOT, "%.1f", (double) allocated / Math.max(1, operations));
+		System.out.printf(Locale.ROOT, "%-40s %26s %12.1f %12s %8d %8d%n", name,
+				String.format(Locale.ROOT, "%.0f +- %.0f", mean, deviation), (double) nanos / Math.max(1, operations),
+				bytes, gcCount, gcTime);
+	}
+
+	/**
+	 * Calls an operation repeatedly for the length of one iteration.
+	 *
+	 * @param operation The work to call.
+	 * @return The number of calls made.
+	 */
+	private long iterate(Operation operation) {
+		long result = 0;
+		long count = 0;
+		long deadline = System.nanoTime() + iterationNanos;
+		do {
+			result ^= operation.run();
+			count++;
+		} while (System.nanoTime() < deadline);
+		sink ^= result;
+		return count;
+	}
+
+	/**
+	 * Retrieves a value derived from every result consumed so far. Printing it
+	 * once at the end keeps the JIT compiler from treating results as unused.
+	 *
+	 * @return The combined results.
+	 */
+	public long getSink() {
+		return sink;
+	}
+
+	/**
+	 * Retrieves the number of bytes allocated so far by the calling thread.
+	 *
+	 * @return The number of bytes, or -1 if the JVM cannot measure it.
+	 */
+	private static long allocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+				&& bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+			return bean.getCurrentThreadAllocatedBytes();
+		}
+		return -1;
+	}
+
+	/**
+	 * Retrieves the total number of garbage collections so far.
+	 *
+	 * @return The number of collections.
+	 */
+	private static long gcCount() {
+		long count = 0;
+		List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+		for (GarbageCollectorMXBean bean : beans) {
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+	/**
+	 * Retrieves the total time spent in garbage collection so far.
+	 *
+	 * @return The time in milliseconds.
+	 */
+	private static long gcTime() {
+		long time = 0;
+		List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+		for (GarbageCollectorMXBean bean : beans) {
+			time += Math.max(0, bean.getCollectionTime());
+		}
+		return time;
+	}
+}
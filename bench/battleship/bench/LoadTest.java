@@ -0,0 +1,580 @@
+package battleship.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import battleship.model.BattleshipModel;
+import battleship.model.BoardModel;
+import battleship.model.Difficulty;
+import battleship.net.Channel;
+import battleship.net.Connection;
+import battleship.net.Message;
+import battleship.net.MessageHandler;
+import battleship.net.MessageType;
+import battleship.net.Notice;
+import battleship.net.RoundTripHistogram;
+import battleship.net.Transport;
+import battleship.server.GameServer;
+
+/**
+ * The LoadTest class starts many headless bots against a game server on this
+ * machine and has them play full games in pairs, to size the hardware for a
+ * tournament. Each bot speaks the protocol of the game's Join option: it sends
+ * its NAME, opens or joins a room with a CHAT command, then plays every game
+ * with START, PLACE and MOVE, and a CHAT line now and then. The first bot of
+ * each pair starts the next game as soon as one ends.
+ *
+ * <p>
+ * Every interval it prints the matches finished and moves made per second,
+ * the percentiles of the move round trip, from a bot's MOVE to its opponent's
+ * MOVE in reply, through the server both ways, and the heap used and threads
+ * of the JVM. Unless {@code --connect} is given the server runs in the same
+ * JVM, so those include the bots; a server started on its own prints its own
+ * with {@code --stats}.
+ * </p>
+ *
+ * <p>
+ * With {@code --multiplex}, the bots of several pairs share one connection,
+ * each on a {@link Channel} of its own, as a gateway or bot farm would, so
+ * the server sees far fewer sockets for the same number of players.
+ * </p>
+ *
+ * <p>
+ * Example usage:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * java -cp bench-bin battleship.bench.LoadTest --bots 2000 --duration 30
+ * }
+ * </pre>
+ *
+ * <p>
+ * Options:
+ * </p>
+ * <ul>
+ * <li>{@code --bots N} the number of bots, played in pairs, 1000 by
+ * default.</li>
+ * <li>{@code --duration S} how long to play once every bot is connected, 60
+ * seconds by default.</li>
+ * <li>{@code --interval S} the time between two reports, 1 second by
+ * default.</li>
+ * <li>{@code --think MS} how long a bot waits before each move, 0 by
+ * default.</li>
+ * <li>{@code --chat N} a bot sends a CHAT line every N moves, 10 by default,
+ * or 0 for none.</li>
+ * <li>{@code --transport NAME} "nio" (the default), "socket" or "virtual",
+ * for the bots and the server.</li>
+ * <li>{@code --multiplex N} carries N pairs of bots over each connection, 0
+ * by default for a connection per bot.</li>
+ * <li>{@code --port N} the port of the server started in the JVM, 10000 by
+ * default.</li>
+ * <li>{@code --connect HOST:PORT} plays against a server already running
+ * instead.</li>
+ * </ul>
+ */
+public class LoadTest {
+
+	private static final long MB = 1024 * 1024;
+
+	private final int bots;
+	private final long durationSeconds;
+	private final long intervalSeconds;
+	private final long thinkMillis;
+	private final int chatEvery;
+	private final String transportName;
+	private final int multiplex;
+	private final String address;
+	private final int port;
+
+	private final AtomicLong matches = new AtomicLong();
+	private final AtomicLong moves = new AtomicLong();
+	private final AtomicInteger failures = new AtomicInteger();
+	private final RoundTripHistogram total = new RoundTripHistogram();
+	private volatile RoundTripHistogram recent = new RoundTripHistogram();
+	private ScheduledExecutorService thinking;
+
+	/**
+	 * Constructs a LoadTest.
+	 *
+	 * @param bots            The number of bots, rounded down to an even number.
+	 * @param durationSeconds How long to play once every bot is connected.
+	 * @param intervalSeconds The time between two reports.
+	 * @param thinkMillis     How long a bot waits before each move.
+	 * @param chatEvery       The number of moves between two CHAT lines of a
+	 *                        bot, or 0 for none.
+	 * @param transportName   The transport for the bots and the server.
+	 * @param multiplex       The number of pairs of bots carried over each
+	 *                        connection, or 0 for a connection per bot.
+	 * @param address         The address of a running server, or null to start
+	 *                        one in this JVM.
+	 * @param port            The port of the server.
+	 */
+	public LoadTest(int bots, long durationSeconds, long intervalSeconds, long thinkMillis, int chatEvery,
+			String transportName, int multiplex, String address, int port) {
+		this.bots = bots / 2 * 2;
+		this.durationSeconds = durationSeconds;
+		this.intervalSeconds = intervalSeconds;
+		this.thinkMillis = thinkMillis;
+		this.chatEvery = chatEvery;
+		this.transportName = transportName;
+		this.multiplex = multiplex;
+		this.address = address;
+		this.port = port;
+	}
+
+	/**
+	 * Main method to run the load test.
+	 *
+	 * @param args The command-line arguments.
+	 * @throws IOException If the server cannot be started.
+	 */
+	public static void main(String[] args) throws IOException {
+		int bots = 1000;
+		long duration = 60;
+		long interval = 1;
+		long think = 0;
+		int chat = 10;
+		String transport = "nio";
+		int multiplex = 0;
+		String address = null;
+		int port = GameServer.DEFAULT_PORT;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--bots":
+				bots = Integer.parseInt(args[i + 1]);
+				break;
+			case "--duration":
+				duration = Long.parseLong(args[i + 1]);
+				break;
+			case "--interval":
+				interval = Long.parseLong(args[i + 1]);
+				break;
+			case "--think":
+				think = Long.parseLong(args[i + 1]);
+				break;
+			case "--chat":
+				chat = Integer.parseInt(args[i + 1]);
+				break;
+			case "--transport":
+				transport = args[i + 1];
+				break;
+			case "--multiplex":
+				multiplex = Integer.parseInt(args[i + 1]);
+				break;
+			case "--port":
+				port = Integer.parseInt(args[i + 1]);
+				break;
+			case "--connect":
+				String[] parts = args[i + 1].split(":");
+				address = parts[0];
+				port = Integer.parseInt(parts[1]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		new LoadTest(bots, duration, interval, think, chat, transport, multiplex, address, port).run();
+	}
+
+	/**
+	 * Connects the bots, reports while they play, then disconnects them.
+	 *
+	 * @throws IOException If the server cannot be started.
+	 */
+	public void run() throws IOException {
+		GameServer server = null;
+		String target = address;
+		if (target == null) {
+			server = new GameServer(Transport.create(transportName), port, Math.max(1, bots / 2), null);
+			server.start();
+			target = "127.0.0.1";
+		}
+		if (thinkMillis > 0) {
+			thinking = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "battleship-bot-think");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		Transport transport = Transport.create(transportName);
+		System.out.printf(Locale.ROOT, "Connecting %d bots to %s:%d over %s%n", bots, target, port, transportName);
+		long start = System.nanoTime();
+		Gateway gateway = null;
+		for (int i = 0; i < bots; i += 2) {
+			Bot guest = new Bot("Bot" + (i + 1), null, null);
+			Bot host = new Bot("Bot" + i, "load-" + i / 2, guest);
+			try {
+				if (multiplex > 0) {
+					if (gateway == null) {
+						gateway = new Gateway(multiplex);
+					}
+					gateway.add(guest, host);
+					if (gateway.isFull() || i + 2 >= bots) {
+						transport.connect(target, port, gateway);
+						gateway = null;
+					}
+				} else {
+					host.connection = transport.connect(target, port, host);
+					guest.connection = transport.connect(target, port, guest);
+				}
+			} catch (IOException e) {
+				failures.incrementAndGet();
+			}
+		}
+		System.out.printf(Locale.ROOT, "Connected in %.2f s, %d failed%n%n", (System.nanoTime() - start) / 1e9,
+				failures.get());
+
+		System.out.printf(Locale.ROOT, "%8s %10s %10s %10s %10s %10s %10s %10s %8s%n", "time s", "matches",
+				"matches/s", "moves/s", "p50 ms", "p99 ms", "p999 ms", "heap MB", "threads");
+		long begin = System.nanoTime();
+		long deadline = begin + TimeUnit.SECONDS.toNanos(durationSeconds);
+		long lastMatches = 0;
+		long lastMoves = 0;
+		long last = begin;
+		while (System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(TimeUnit.SECONDS.toMillis(intervalSeconds));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			long now = System.nanoTime();
+			RoundTripHistogram window = recent;
+			recent = new RoundTripHistogram();
+			long matchCount = matches.get();
+			long moveCount = moves.get();
+			double seconds = (now - last) / 1e9;
+			System.out.printf(Locale.ROOT, "%8.1f %10d %10.1f %10.0f %10.2f %10.2f %10.2f %10d %8d%n",
+					(now - begin) / 1e9, matchCount, (matchCount - lastMatches) / seconds,
+					(moveCount - lastMoves) / seconds, window.getPercentile(0.5) / 1e3,
+					window.getPercentile(0.99) / 1e3, window.getPercentile(0.999) / 1e3, heapUsed() / MB,
+					ManagementFactory.getThreadMXBean().getThreadCount());
+			lastMatches = matchCount;
+			lastMoves = moveCount;
+			last = now;
+		}
+		double seconds = (System.nanoTime() - begin) / 1e9;
+
+		transport.close();
+		if (thinking != null) {
+			thinking.shutdownNow();
+		}
+		if (server != null) {
+			server.stop();
+		}
+		System.out.println();
+		System.out.printf(Locale.ROOT, "%d matches in %.1f s (%.1f matches/s), %d moves (%.0f moves/s)%n",
+				matches.get(), seconds, matches.get() / seconds, moves.get(), moves.get() / seconds);
+		System.out.printf(Locale.ROOT, "Move round trip: p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, mean %.2f ms%n",
+				total.getPercentile(0.5) / 1e3, total.getPercentile(0.99) / 1e3, total.getPercentile(0.999) / 1e3,
+				total.getMean() / 1e3);
+	}
+
+	/**
+	 * Retrieves the heap used by the JVM.
+	 *
+	 * @return The heap used, in bytes.
+	 */
+	private static long heapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Records the round trip of a move.
+	 *
+	 * @param micros The time from the MOVE to the reply, in microseconds.
+	 */
+	private void recordRoundTrip(long micros) {
+		recent.add(micros);
+		total.add(micros);
+	}
+
+	/**
+	 * A connection that carries several pairs of bots, opening a channel for
+	 * each once the server has shown it speaks channels. Its own end of the
+	 * connection only names itself, and stays in the lobby.
+	 */
+	private final class Gateway implements MessageHandler {
+
+		private final Bot[] bots;
+		private int count;
+		private boolean opened;
+
+		/**
+		 * Constructs a Gateway.
+		 *
+		 * @param pairs The number of pairs of bots it carries.
+		 */
+		Gateway(int pairs) {
+			bots = new Bot[pairs * 2];
+		}
+
+		/**
+		 * Adds a pair of bots, the guest first so it is there to join when the
+		 * host opens its room.
+		 *
+		 * @param guest The guest.
+		 * @param host  The host.
+		 */
+		void add(Bot guest, Bot host) {
+			bots[count++] = guest;
+			bots[count++] = host;
+		}
+
+		/**
+		 * Checks if the gateway carries all the pairs it can.
+		 *
+		 * @return true if no more pairs can be added.
+		 */
+		boolean isFull() {
+			return count == bots.length;
+		}
+
+		@Override
+		public void onConnected(Connection connection) {
+			connection.send(MessageType.NAME, "Gateway");
+		}
+
+		/**
+		 * Opens the channels on the SESSION answering its NAME, by which time the
+		 * handshake is over.
+		 */
+		@Override
+		public synchronized void onMessage(Connection connection, Message message) {
+			if (message.getType() != MessageType.SESSION || opened) {
+				return;
+			}
+			opened = true;
+			if (connection.getProtocolVersion() < Channel.VERSION) {
+				System.err.println("The server does not speak channels");
+				failures.addAndGet(count);
+				return;
+			}
+			for (int i = 0; i < count; i++) {
+				connection.openChannel(bots[i]);
+			}
+		}
+
+		@Override
+		public void onDisconnected(Connection connection) {
+		}
+	}
+
+	/**
+	 * One headless player. The bot that opens the room is the host: it starts
+	 * every game and moves first.
+	 */
+	private final class Bot implements MessageHandler {
+
+		private final String name;
+		private final String room;
+		private final Bot guest;
+		private final BattleshipModel model = new BattleshipModel();
+		private final SplittableRandom random = new SplittableRandom();
+		private volatile Connection connection;
+		private int[] cells = new int[0];
+		private int nextCell;
+		private int moveCount;
+		private long sentAt;
+
+		/**
+		 * Constructs a Bot.
+		 *
+		 * @param name  The name of the bot.
+		 * @param room  The room the host opens, or null for a guest.
+		 * @param guest The host's opponent, asked to join once the room is open,
+		 *              or null for a guest.
+		 */
+		Bot(String name, String room, Bot guest) {
+			this.name = name;
+			this.room = room;
+			this.guest = guest;
+			model.setDifficulty(Difficulty.EASY);
+		}
+
+		@Override
+		public void onConnected(Connection connection) {
+			this.connection = connection;
+			connection.send(MessageType.NAME, name);
+			if (room != null) {
+				connection.send(MessageType.CHAT, name + " : /create " + room);
+			}
+		}
+
+		@Override
+		public synchronized void onMessage(Connection connection, Message message) {
+			switch (message.getType()) {
+			case SYSTEM:
+				if (guest != null && message.getNotice() == Notice.ROOM_OPENED) {
+					guest.join(room);
+				}
+				break;
+			case CHAT:
+				// A server from before the SYSTEM message
+				if (guest != null && message.getText().contains("You opened " + room)) {
+					guest.join(room);
+				}
+				break;
+			case START:
+				handleStart(message.getText());
+				break;
+			case PLACE:
+				model.placeOpponentShips(message.getRow(), message.getColumn(), message.getLength(),
+						message.isHorizontal());
+				break;
+			case MOVE:
+				handleMove(message.getRow(), message.getColumn());
+				break;
+			default:
+				break;
+			}
+		}
+
+		@Override
+		public void onDisconnected(Connection connection) {
+		}
+
+		/**
+		 * Joins the host's room.
+		 *
+		 * @param room The room.
+		 */
+		void join(String room) {
+			Connection connection = this.connection;
+			if (connection != null) {
+				connection.send(MessageType.CHAT, name + " : /join " + room);
+			}
+		}
+
+		/**
+		 * Handles a START message as {@code ServerController} does.
+		 *
+		 * @param text The content of the START.
+		 */
+		private void handleStart(String text) {
+			switch (text) {
+			case "HOST":
+				// The guest has joined
+				connection.send(MessageType.START, "START");
+				break;
+			case "START":
+				connection.send(MessageType.NAME, name);
+				connection.send(MessageType.START, "ACK_START");
+				placeFleet();
+				break;
+			case "ACK_START":
+				placeFleet();
+				break;
+			case "PLACED":
+				if (guest != null) {
+					fire();
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * Clears the boards for a new game, places a random fleet and sends it
+		 * one PLACE per ship.
+		 */
+		private void placeFleet() {
+			model.resetModel();
+			model.placePlayerShipsRandomly(random);
+			int[] layout = model.getPlayerLayout();
+			for (int i = 0; i < layout.length; i += 4) {
+				connection.send(Message.place(layout[i], layout[i + 1], layout[i + 2], layout[i + 3] != 0));
+			}
+			connection.send(MessageType.START, "PLACED");
+			BoardModel board = model.getOpponentBoard();
+			int size = board.getWidth() * board.getHeight();
+			if (cells.length != size) {
+				cells = new int[size];
+			}
+			for (int i = 0; i < size; i++) {
+				int j = random.nextInt(i + 1);
+				cells[i] = cells[j];
+				cells[j] = i;
+			}
+			nextCell = 0;
+		}
+
+		/**
+		 * Handles the opponent's move, then fires back, or starts the next game
+		 * if it ended the game.
+		 *
+		 * @param row The row fired at.
+		 * @param col The column fired at.
+		 */
+		private void handleMove(int row, int col) {
+			if (sentAt != 0) {
+				recordRoundTrip((System.nanoTime() - sentAt) / 1000);
+				sentAt = 0;
+			}
+			model.opponentFires(row, col);
+			if (model.isGameOver()) {
+				finishGame();
+			} else {
+				fire();
+			}
+		}
+
+		/**
+		 * Fires now, or after the think time.
+		 */
+		private void fire() {
+			if (thinking == null) {
+				move();
+			} else {
+				thinking.schedule(this::move, thinkMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		/**
+		 * Fires at the next cell of a shuffled board, and sends a CHAT line every
+		 * few moves.
+		 */
+		private synchronized void move() {
+			BoardModel board = model.getOpponentBoard();
+			while (nextCell < cells.length
+					&& !board.canFire(cells[nextCell] / board.getWidth(), cells[nextCell] % board.getWidth())) {
+				nextCell++;
+			}
+			if (nextCell == cells.length || model.isGameOver()) {
+				return;
+			}
+			int row = cells[nextCell] / board.getWidth();
+			int col = cells[nextCell] % board.getWidth();
+			model.playerFires(row, col);
+			sentAt = System.nanoTime();
+			connection.send(Message.move(row, col));
+			moves.incrementAndGet();
+			if (chatEvery > 0 && ++moveCount % chatEvery == 0) {
+				connection.send(MessageType.CHAT, name + " : Good shot!");
+			}
+			if (model.isGameOver()) {
+				sentAt = 0;
+				finishGame();
+			}
+		}
+
+		/**
+		 * Counts a finished game once, on the host, and starts the next one.
+		 */
+		private void finishGame() {
+			if (guest != null) {
+				matches.incrementAndGet();
+				connection.send(MessageType.START, "START");
+			}
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package battleship.bench;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import battleship.model.BattleshipModel;
+import battleship.model.BoardModel;
+import battleship.model.Difficulty;
+import battleship.model.GameRules;
+import battleship.model.ShipModel;
+
+/**
+ * The ModelBenchmark class measures the hot paths of the game engine: ship
+ * placement checks, placing ships, random fleet placement, firing, registering
+ * hits, game over checks and a whole random game. Each benchmark runs with the
+ * standard rules and again on a 100x100 board with 30 ships.
+ *
+ * <p>
+ * Example usage:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * java -cp bench-bin battleship.bench.ModelBenchmark --time 500 --filter fire
+ * }
+ * </pre>
+ */
+public class ModelBenchmark {
+
+	// Number of precomputed positions checked per call
+	private static final int POSITIONS = 1024;
+
+	/**
+	 * Main method to run the benchmarks.
+	 *
+	 * @param args The command-line arguments, see {@link Harness}.
+	 */
+	public static void main(String[] args) {
+		Harness harness = Harness.fromArgs(args);
+		harness.printHeader();
+		run(harness, GameRules.STANDARD, "");
+		run(harness, largeRules(), " 100x100");
+		System.out.println("sink " + harness.getSink());
+	}
+
+	/**
+	 * Runs every benchmark with the given rules.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to each benchmark name.
+	 */
+	private static void run(Harness harness, GameRules rules, String suffix) {
+		canPlaceShip(harness, rules, suffix);
+		placeShip(harness, rules, suffix);
+		placeOpponentShipsRandomly(harness, rules, suffix);
+		playerFire(harness, rules, suffix);
+		registerHit(harness, rules, suffix);
+		isGameOver(harness, rules, suffix);
+		randomGame(harness, rules, suffix);
+	}
+
+	/**
+	 * Creates rules for a 100x100 board with a fleet of 30 ships of lengths 2 to
+	 * 6.
+	 *
+	 * @return The large rules.
+	 */
+	static GameRules largeRules() {
+		String[] names = new String[30];
+		int[] lengths = new int[30];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "ship" + (i + 1);
+			lengths[i] = 2 + i % 5;
+		}
+		return new GameRules(100, 100, names, lengths);
+	}
+
+	/**
+	 * Measures placement checks at random positions on a board holding a fleet.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to the benchmark name.
+	 */
+	private static void canPlaceShip(Harness harness, GameRules rules, String suffix) {
+		BattleshipModel model = new BattleshipModel(rules);
+		model.placePlayerShipsRandomly();
+		BoardModel board = model.getPlayerBoard();
+		SplittableRandom random = new SplittableRandom(42);
+		int[] rows = new int[POSITIONS];
+		int[] cols = new int[POSITIONS];
+		int[] lengths = new int[POSITIONS];
+		boolean[] horizontal = new boolean[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) {
+			rows[i] = random.nextInt(board.getHeight());
+			cols[i] = random.nextInt(board.getWidth());
+			lengths[i] = rules.getShipLength(random.nextInt(rules.getShipCount()));
+			horizontal[i] = random.nextBoolean();
+		}
+		harness.run("canPlaceShip" + suffix, POSITIONS, () -> {
+			long placeable = 0;
+			for (int i = 0; i < POSITIONS; i++) {
+				if (model.canPlaceShip(board, rows[i], cols[i], lengths[i], horizontal[i])) {
+					placeable++;
+				}
+			}
+			return placeable;
+		});
+	}
+
+	/**
+	 * Measures placing a whole fleet at a fixed layout on a cleared board.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to the benchmark name.
+	 */
+	private static void placeShip(Harness harness, GameRules rules, String suffix) {
+		BattleshipModel model = new BattleshipModel(rules);
+		model.placePlayerShipsRandomly();
+		BoardModel board = model.getPlayerBoard();
+		List<ShipModel> fleet = model.getPlayerFleet();
+		int[] rows = new int[fleet.size()];
+		int[] cols = new int[fleet.size()];
+		boolean[] horizontal = new boolean[fleet.size()];
+		for (int i = 0; i < fleet.size(); i++) {
+			ShipModel ship = fleet.get(i);
+			rows[i] = ship.getCoordinateHead().getRow();
+			cols[i] = ship.getCoordinateHead().getColumn();
+			horizontal[i] = ship.isHorizontal();
+		}
+		harness.run("placeShip" + suffix, fleet.size(), () -> {
+			board.clear();
+			for (int i = 0; i < rows.length; i++) {
+				model.placeShip(board, fleet.get(i), rows[i], cols[i], horizontal[i]);
+			}
+			return board.getShipCount();
+		});
+	}
+
+	/**
+	 * Measures placing the opponent's whole fleet at random on a cleared board.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to the benchmark name.
+	 */
+	private static void placeOpponentShipsRandomly(Harness harness, GameRules rules, String suffix) {
+		BattleshipModel model = new BattleshipModel(rules);
+		BoardModel board = model.getOpponentBoard();
+		List<ShipModel> fleet = model.getOpponentFleet();
+		harness.run("placeOpponentShipsRandomly" + suffix, 1, () -> {
+			board.clear();
+			for (ShipModel ship : fleet) {
+				ship.reset();
+			}
+			model.placeOpponentShipsRandomly();
+			return board.getShipCount();
+		});
+	}
+
+	/**
+	 * Measures firing at every cell of a board in a random order. The board is
+	 * cleared and the fleet put back once per sweep.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to the benchmark name.
+	 */
+	private static void playerFire(Harness harness, GameRules rules, String suffix) {
+		BattleshipModel model = new BattleshipModel(rules);
+		model.placeOpponentShipsRandomly();
+		BoardModel board = model.getOpponentBoard();
+		List<ShipModel> fleet = model.getOpponentFleet();
+		int width = board.getWidth();
+		int cells = width * board.getHeight();
+		int[] order = shuffledCells(cells, new SplittableRandom(42));
+		harness.run("playerFire" + suffix, cells, () -> {
+			board.clear();
+			for (ShipModel ship : fleet) {
+				board.place(ship.getCoordinateHead().getRow(), ship.getCoordinateHead().getColumn(), ship.getLength(),
+						ship.isHorizontal(), ship.getId());
+			}
+			long hits = 0;
+			for (int i = 0; i < cells; i++) {
+				if (model.playerFire(order[i] / width, order[i] % width) == BattleshipModel.HIT) {
+					hits++;
+				}
+			}
+			return hits;
+		});
+	}
+
+	/**
+	 * Measures registering a hit on every cell of a ship, both by scanning the
+	 * ship's coordinates and when the board has already attributed the hit.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to the benchmark name.
+	 */
+	private static void registerHit(Harness harness, GameRules rules, String suffix) {
+		BattleshipModel model = new BattleshipModel(rules);
+		model.placePlayerShipsRandomly();
+		ShipModel ship = model.getPlayerFleet().get(0);
+		int length = ship.getLength();
+		int[] rows = new int[length];
+		int[] cols = new int[length];
+		for (int i = 0; i < length; i++) {
+			rows[i] = ship.getCoordinate(i).getRow();
+			cols[i] = ship.getCoordinate(i).getColumn();
+		}
+		harness.run("registerHit(row, col)" + suffix, length, () -> {
+			ship.setHits(0);
+			long registered = 0;
+			for (int i = length - 1; i >= 0; i--) {
+				if (ship.registerHit(rows[i], cols[i])) {
+					registered++;
+				}
+			}
+			return registered;
+		});
+		harness.run("registerHit" + suffix, length, () -> {
+			ship.setHits(0);
+			long sunk = 0;
+			for (int i = 0; i < length; i++) {
+				if (ship.registerHit()) {
+					sunk++;
+				}
+			}
+			return sunk;
+		});
+	}
+
+	/**
+	 * Measures game over checks on a game in progress.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to the benchmark name.
+	 */
+	private static void isGameOver(Harness harness, GameRules rules, String suffix) {
+		BattleshipModel[] models = new BattleshipModel[2];
+		SplittableRandom random = new SplittableRandom(42);
+		for (int m = 0; m < models.length; m++) {
+			BattleshipModel model = new BattleshipModel(rules);
+			model.placePlayerShipsRandomly();
+			model.placeOpponentShipsRandomly();
+			int width = model.getOpponentBoard().getWidth();
+			int[] order = shuffledCells(width * model.getOpponentBoard().getHeight(), random);
+			for (int i = 0; i < order.length / 2; i++) {
+				model.playerFires(order[i] / width, order[i] % width);
+				model.opponentFires(order[i] / width, order[i] % width);
+			}
+			models[m] = model;
+		}
+		harness.run("isGameOver" + suffix, POSITIONS, () -> {
+			long over = 0;
+			for (int i = 0; i < POSITIONS; i++) {
+				if (models[i & 1].isGameOver()) {
+					over++;
+				}
+			}
+			return over;
+		});
+	}
+
+	/**
+	 * Measures a whole game between two random shooters, from resetting the
+	 * model to game over.
+	 *
+	 * @param harness The harness to run in.
+	 * @param rules   The board dimensions and fleet to use.
+	 * @param suffix  The text added to the benchmark name.
+	 */
+	private static void randomGame(Harness harness, GameRules rules, String suffix) {
+		BattleshipModel model = new BattleshipModel(rules);
+		SplittableRandom random = new SplittableRandom(42);
+		model.setPlayerStrategy(Difficulty.EASY.createStrategy(random.split()));
+		model.setOpponentStrategy(Difficulty.EASY.createStrategy(random.split()));
+		int width = model.getOpponentBoard().getWidth();
+		harness.run("randomGame" + suffix, 1, () -> {
+			model.resetModel();
+			model.placePlayerShipsRandomly();
+			model.placeOpponentShipsRandomly();
+			long shots = 0;
+			while (!model.isGameOver()) {
+				int cell = model.nextPlayerShot();
+				model.playerFires(cell / width, cell % width);
+				shots++;
+				if (model.isGameOver()) {
+					break;
+				}
+				cell = model.nextOpponentShot();
+				model.opponentFires(cell / width, cell % width);
+				shots++;
+			}
+			return shots;
+		});
+	}
+
+	/**
+	 * Creates every cell index of a board in a random order.
+	 *
+	 * @param cells  The number of cells on the board.
+	 * @param random The random number generator to shuffle with.
+	 * @return The shuffled cell indexes.
+	 */
+	private static int[] shuffledCells(int cells, SplittableRandom random) {
+		int[] order = new int[cells];
+		for (int i = 0; i < cells; i++) {
+			order[i] = i;
+		}
+		for (int i = cells - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		return order;
+	}
+}
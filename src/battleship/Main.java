@@ -43,13 +43,12 @@ public class Main {
 
 		// Initialize the main game frame
 		LocalizationLoader loader = new LocalizationLoader();
-		BattleshipModel model = new BattleshipModel(loader);
+		BattleshipModel model = new BattleshipModel();
 		BattleshipView view = new BattleshipView(loader);
 		BattleshipController controller = new BattleshipController(loader, model, view);
-		model.setController(controller);
-		model.setView(view);
 		view.setController(controller);
 		view.setModel(model);
+		view.updateDifficultyMenu();
 
 	}
 }
@@ -0,0 +1,356 @@
+package battleship;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import battleship.model.BattleshipModel;
+import battleship.model.Difficulty;
+import battleship.model.GameRules;
+import battleship.model.MonteCarloShotStrategy;
+import battleship.model.ShotStrategy;
+
+/**
+ * The Tournament class is a headless entry point that plays computer opponents
+ * against each other without creating any part of the user interface. Games
+ * are spread across worker threads, each with its own model and strategies, and
+ * every ordered pairing of the chosen difficulty levels is played in turn.
+ *
+ * <p>
+ * When all games are done it reports the number of games per second, and for
+ * each difficulty its win rate and the mean and percentiles of the number of
+ * shots it needed to win. The bytes allocated by each worker thread are
+ * reported as well.
+ * </p>
+ *
+ * <p>
+ * Example usage:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * java -cp BattleshipGame.jar battleship.Tournament --games 1000000 --difficulties easy,normal
+ * }
+ * </pre>
+ *
+ * <p>
+ * Options:
+ * </p>
+ * <ul>
+ * <li>{@code --games N} the number of games to play, 100000 by default.</li>
+ * <li>{@code --threads N} the number of worker threads, one per core by
+ * default.</li>
+ * <li>{@code --difficulties A,B,...} the difficulty levels to pit against each
+ * other, easy and normal by default.</li>
+ * <li>{@code --board WxH} the board dimensions, 10x10 by default.</li>
+ * <li>{@code --fleet A,B,...} the lengths of the ships in each fleet, 5,4,3,3,2
+ * by default.</li>
+ * <li>{@code --budget MS} the time HARD samples for per move, in milliseconds.
+ * Each worker gives HARD a single thread since the games already use every
+ * core.</li>
+ * </ul>
+ */
+public class Tournament {
+
+	// Number of games a worker claims at a time
+	private static final int BATCH = 256;
+
+	private final GameRules rules;
+	private final Difficulty[] difficulties;
+	private final long games;
+	private final int threads;
+	private final long budgetMillis;
+
+	private final AtomicLong nextGame = new AtomicLong();
+
+	/**
+	 * Constructs a Tournament.
+	 *
+	 * @param rules        The board dimensions and fleet to play with.
+	 * @param difficulties The difficulty levels to pit against each other.
+	 * @param games        The number of games to play.
+	 * @param threads      The number of worker threads.
+	 * @param budgetMillis The time HARD samples for per move, in milliseconds.
+	 */
+	public Tournament(GameRules rules, Difficulty[] difficulties, long games, int threads, long budgetMillis) {
+		this.rules = rules;
+		this.difficulties = difficulties;
+		this.games = games;
+		this.threads = threads;
+		this.budgetMillis = budgetMillis;
+	}
+
+	/**
+	 * Main method to run a tournament from the command line.
+	 *
+	 * @param args The command-line arguments.
+	 * @throws Exception If a worker thread fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		long games = 100_000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long budgetMillis = MonteCarloShotStrategy.DEFAULT_BUDGET_MILLIS;
+		Difficulty[] difficulties = { Difficulty.EASY, Difficulty.NORMAL };
+		int width = GameRules.STANDARD.getWidth();
+		int height = GameRules.STANDARD.getHeight();
+		int[] fleet = GameRules.STANDARD.getShipLengths();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--games":
+				games = Long.parseLong(args[i + 1]);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(args[i + 1]);
+				break;
+			case "--budget":
+				budgetMillis = Long.parseLong(args[i + 1]);
+				break;
+			case "--board":
+				String[] size = args[i + 1].toLowerCase(Locale.ROOT).split("x");
+				width = Integer.parseInt(size[0]);
+				height = Integer.parseInt(size[1]);
+				break;
+			case "--fleet":
+				String[] lengths = args[i + 1].split(",");
+				fleet = new int[lengths.length];
+				for (int j = 0; j < lengths.length; j++) {
+					fleet[j] = Integer.parseInt(lengths[j].trim());
+				}
+				break;
+			case "--difficulties":
+				String[] levels = args[i + 1].split(",");
+				difficulties = new Difficulty[levels.length];
+				for (int j = 0; j < levels.length; j++) {
+					difficulties[j] = Difficulty.valueOf(levels[j].trim().toUpperCase(Locale.ROOT));
+				}
+				break;
+			default:
+				System.err.println("Unknown option: " + args[i]);
+				return;
+			}
+		}
+		String[] names = new String[fleet.length];
+		for (int j = 0; j < names.length; j++) {
+			names[j] = "ship" + (j + 1);
+		}
+		GameRules rules = new GameRules(width, height, names, fleet);
+		new Tournament(rules, difficulties, games, threads, budgetMillis).run();
+	}
+
+	/**
+	 * Plays every game, then prints the results.
+	 *
+	 * @throws Exception If a worker thread fails.
+	 */
+	public void run() throws Exception {
+		System.out.printf("Playing %d games on %d threads, %dx%d board with %d ships%n", games, threads,
+				rules.getWidth(), rules.getHeight(), rules.getShipCount());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Worker>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			Worker worker = new Worker(new SplittableRandom());
+			futures.add(executor.submit(worker, worker));
+		}
+		Worker total = new Worker(null);
+		List<Worker> workers = new ArrayList<>();
+		for (Future<Worker> future : futures) {
+			Worker worker = future.get();
+			workers.add(worker);
+			total.merge(worker);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+
+		System.out.printf("%d games in %.2f s (%.0f games/s)%n", total.games, seconds, total.games / seconds);
+		System.out.println();
+		System.out.printf("%-8s %10s %8s %8s %6s %6s %6s %6s %6s%n", "AI", "games", "win %", "mean", "min", "p50",
+				"p90", "p99", "max");
+		for (int d = 0; d < difficulties.length; d++) {
+			int[] histogram = total.shotsToWin[d];
+			long wins = 0;
+			long shots = 0;
+			for (int s = 0; s < histogram.length; s++) {
+				wins += histogram[s];
+				shots += (long) s * histogram[s];
+			}
+			System.out.printf("%-8s %10d %8.2f %8.2f %6d %6d %6d %6d %6d%n", difficulties[d], total.played[d],
+					100.0 * wins / Math.max(1, total.played[d]), (double) shots / Math.max(1, wins),
+					percentile(histogram, wins, 0.0), percentile(histogram, wins, 0.5),
+					percentile(histogram, wins, 0.9), percentile(histogram, wins, 0.99),
+					percentile(histogram, wins, 1.0));
+		}
+		System.out.println();
+		for (int i = 0; i < workers.size(); i++) {
+			Worker worker = workers.get(i);
+			if (worker.allocated < 0) {
+				System.out.printf("thread %d: %d games, allocation not measured%n", i, worker.games);
+			} else {
+				double workerSeconds = worker.nanos / 1e9;
+				System.out.printf("thread %d: %d games, %.1f MB/s, %.0f bytes/game%n", i, worker.games,
+						worker.allocated / workerSeconds / (1 << 20),
+						(double) worker.allocated / Math.max(1, worker.games));
+			}
+		}
+	}
+
+	/**
+	 * Finds a percentile in a histogram.
+	 *
+	 * @param histogram The number of samples for each value.
+	 * @param count     The total number of samples.
+	 * @param fraction  The percentile to find, between 0 and 1.
+	 * @return The smallest value with at least that fraction of the samples at or
+	 *         below it, or 0 if there are no samples.
+	 */
+	private static int percentile(int[] histogram, long count, double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int value = 0; value < histogram.length; value++) {
+			seen += histogram[value];
+			if (seen >= rank) {
+				return value;
+			}
+		}
+		return histogram.length - 1;
+	}
+
+	/**
+	 * Retrieves the number of bytes allocated so far by the calling thread.
+	 *
+	 * @return The number of bytes, or -1 if the JVM cannot measure it.
+	 */
+	private static long allocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+				&& bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+			return bean.getCurrentThreadAllocatedBytes();
+		}
+		return -1;
+	}
+
+	/**
+	 * Plays games on one thread until none are left, and collects the results
+	 * of that thread.
+	 */
+	private class Worker implements Runnable {
+
+		private final SplittableRandom random;
+
+		private final long[] played = new long[difficulties.length];
+		private final int[][] shotsToWin = new int[difficulties.length][];
+		private long games;
+		private long allocated;
+		private long nanos;
+
+		Worker(SplittableRandom random) {
+			this.random = random;
+		}
+
+		@Override
+		public void run() {
+			BattleshipModel model = new BattleshipModel(rules);
+			int width = model.getOpponentBoard().getWidth();
+			int cells = width * model.getOpponentBoard().getHeight();
+			for (int d = 0; d < difficulties.length; d++) {
+				shotsToWin[d] = new int[cells + 1];
+			}
+
+			// Each side needs its own strategy in case a level plays itself
+			ShotStrategy[] playerStrategies = new ShotStrategy[difficulties.length];
+			ShotStrategy[] opponentStrategies = new ShotStrategy[difficulties.length];
+			ForkJoinPool pool = new ForkJoinPool(1);
+			for (int d = 0; d < difficulties.length; d++) {
+				playerStrategies[d] = createStrategy(difficulties[d], pool);
+				opponentStrategies[d] = createStrategy(difficulties[d], pool);
+			}
+			int pairings = difficulties.length * difficulties.length;
+
+			long start = System.nanoTime();
+			long allocatedStart = allocatedBytes();
+			long from;
+			while ((from = nextGame.getAndAdd(BATCH)) < Tournament.this.games) {
+				long to = Math.min(from + BATCH, Tournament.this.games);
+				for (long game = from; game < to; game++) {
+					int pairing = (int) (game % pairings);
+					int player = pairing / difficulties.length;
+					int opponent = pairing % difficulties.length;
+					model.setPlayerStrategy(playerStrategies[player]);
+					model.setOpponentStrategy(opponentStrategies[opponent]);
+					model.resetModel();
+					model.placePlayerShipsRandomly();
+					model.placeOpponentShipsRandomly();
+
+					int playerShots = 0;
+					int opponentShots = 0;
+					while (!model.isGameOver()) {
+						int cell = model.nextPlayerShot();
+						model.playerFires(cell / width, cell % width);
+						playerShots++;
+						if (model.isGameOver()) {
+							break;
+						}
+						cell = model.nextOpponentShot();
+						model.opponentFires(cell / width, cell % width);
+						opponentShots++;
+					}
+
+					played[player]++;
+					played[opponent]++;
+					if (model.playerWon()) {
+						shotsToWin[player][playerShots]++;
+					} else {
+						shotsToWin[opponent][opponentShots]++;
+					}
+					games++;
+				}
+			}
+			long allocatedEnd = allocatedBytes();
+			nanos = System.nanoTime() - start;
+			allocated = allocatedStart < 0 ? -1 : allocatedEnd - allocatedStart;
+			pool.shutdown();
+		}
+
+		/**
+		 * Creates the strategy a worker plays a difficulty level with.
+		 *
+		 * @param difficulty The difficulty level.
+		 * @param pool       The single thread pool HARD samples on.
+		 * @return A new ShotStrategy.
+		 */
+		private ShotStrategy createStrategy(Difficulty difficulty, ForkJoinPool pool) {
+			if (difficulty == Difficulty.HARD) {
+				return new MonteCarloShotStrategy(random.split(), pool, budgetMillis);
+			}
+			return difficulty.createStrategy(random.split());
+		}
+
+		/**
+		 * Adds the results of another worker to this one.
+		 *
+		 * @param other The worker to add.
+		 */
+		void merge(Worker other) {
+			for (int d = 0; d < difficulties.length; d++) {
+				played[d] += other.played[d];
+				if (shotsToWin[d] == null) {
+					shotsToWin[d] = other.shotsToWin[d].clone();
+				} else {
+					for (int s = 0; s < shotsToWin[d].length; s++) {
+						shotsToWin[d][s] += other.shotsToWin[d][s];
+					}
+				}
+			}
+			games += other.games;
+		}
+	}
+}
@@ -28,6 +28,7 @@ public class BattleshipController {
 		this.menuController = new MenuController(loader, model, view, this);
 		this.chatController = new ChatController(view, this, loader);
 		this.gameController = new GameController(loader, model, view, this);
+		model.addGameListener(gameController);
 		this.shipController = new ShipController(model, view, this);
 	}
 
@@ -3,17 +3,27 @@ package battleship.controller;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
+import javax.swing.Timer;
+
 import battleship.LocalizationLoader;
-import battleship.controller.ServerController.MessageType;
+import battleship.net.MessageType;
 import battleship.view.BattleshipView;
 
 /**
  * The ChatController class handles chat functionality for the Battleship game.
+ * Lines may arrive from any thread; they are gathered and appended to the chat
+ * history at most once a frame, so a burst of lines costs the UI one append.
  */
 public class ChatController {
+
+	// Milliseconds lines are gathered before they are appended, about one frame
+	private static final int FRAME = 16;
+
 	private BattleshipView view;
 	private BattleshipController controller;
 	private LocalizationLoader loader;
+	private final StringBuilder pending = new StringBuilder();
+	private final Timer flush = new Timer(FRAME, e -> flush());
 
 	/**
 	 * Constructor for ChatController
@@ -26,6 +36,7 @@ public class ChatController {
 		this.view = view;
 		this.controller = controller;
 		this.loader = loader;
+		flush.setRepeats(false);
 		initializeChatInputListener();
 	}
 
@@ -44,12 +55,35 @@ public class ChatController {
 	}
 
 	/**
-	 * Receives a chat message and displays it in the chat history.
+	 * Receives a chat message and displays it in the chat history with the
+	 * other lines of the same frame.
 	 *
 	 * @param message The message received.
 	 */
 	public void receiveChatMessage(String message) {
-		view.getChatHistory().append(message + "\n");
+		boolean first;
+		synchronized (pending) {
+			first = pending.length() == 0;
+			pending.append(message).append('\n');
+		}
+		if (first) {
+			flush.start();
+		}
+	}
+
+	/**
+	 * Appends the lines gathered since the last frame to the chat history. Runs
+	 * on the event dispatch thread.
+	 */
+	private void flush() {
+		String lines;
+		synchronized (pending) {
+			lines = pending.toString();
+			pending.setLength(0);
+		}
+		if (!lines.isEmpty()) {
+			view.getChatHistory().append(lines);
+		}
 	}
 
 	/**
@@ -5,20 +5,30 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import battleship.LocalizationLoader;
-import battleship.controller.ServerController.MessageType;
 import battleship.model.BattleshipModel;
+import battleship.model.GameRules;
+import battleship.model.GameListener;
+import battleship.model.ShipModel;
+import battleship.model.ShotResult;
+import battleship.net.Message;
+import battleship.net.MessageType;
+import battleship.net.Notice;
 import battleship.view.BattleshipView;
 
 /**
- * The GameController class manages the game logic for Battleship.
+ * The GameController class manages the game logic for Battleship. It drives
+ * turns and timers, and listens to the BattleshipModel to reflect shots and the
+ * game outcome in the view.
  */
-public class GameController {
+public class GameController implements GameListener {
 
 	private BattleshipController controller;
 	private LocalizationLoader loader;
@@ -41,6 +51,7 @@ public class GameController {
 
 	// Icons for displaying hit, miss, and ship images
 	private ImageIcon hitIndicator = new ImageIcon("resources/images/hit.png");
+	private ImageIcon missIndicator = new ImageIcon("resources/images/miss.png");
 
 	/**
 	 * Constructor for GameController.
@@ -104,14 +115,27 @@ public class GameController {
 	}
 
 	/**
-	 * Starts the game by placing opponent's ships and initiating player's
-	 * turn.
+	 * Starts the game once the player's ships are placed. Online, the fleet is
+	 * sent and the countdown waits for the opponent's fleet, without blocking.
 	 */
 	public void startGame() {
 		if (controller.getServerController() != null) {
+			controller.getServerController().sendFleet();
+			// The countdown starts once the opponent has placed its fleet too. The
+			// seat is placed before the opponent hears of it, so its first move is
+			// never taken for one out of turn
+			controller.getServerController().fleetPlaced();
 			controller.getServerController().sendData(MessageType.START, "PLACED");
-			controller.getServerController().synchronize();
+			return;
 		}
+		startCountdown();
+	}
+
+	/**
+	 * Counts down to the first turn, then initiates the player's or the
+	 * opponent's turn.
+	 */
+	public void startCountdown() {
 		timer = new Timer();
 		TimerTask task = new TimerTask() {
 			int seconds = 3;
@@ -211,9 +235,9 @@ public class GameController {
 					if (controller.getServerController() == null) {
 						controller.getGameController().playerTurn = false; // Switch turn to opponent after player's
 						view.updateTurnLabel();
-						model.opponentFires(-1, -1);
+						fireOpponentShot(-1, -1);
 					} else {
-						model.playerFires(-1, -1);
+						firePlayerShot(-1, -1);
 					}
 				}
 			}
@@ -234,6 +258,276 @@ public class GameController {
 		view.updateTimeLabel();
 	}
 
+	/**
+	 * Initiates player's firing action at specified row and column, then hands
+	 * the turn to the opponent.
+	 *
+	 * @param row The row index of the grid cell, or -1 if the player timed out.
+	 * @param col The column index of the grid cell, or -1 if the player timed out.
+	 */
+	public void firePlayerShot(int row, int col) {
+		if (row == -1 && col == -1) {
+			controller.getServerController().sayNotice(Notice.TIMEOUT);
+			controller.getServerController().sendData(Message.move(row, col));
+		} else if (playerTurn) {
+			String columnLabel = GameRules.getColumnLabel(col); // Convert column index to its label
+			controller.getChatController().receiveChatMessage(
+					loader.getResourceBundle().getString("chat.fire") + " " + (row + 1) + columnLabel);
+			ServerController server = controller.getServerController();
+			if (server != null && server.isOpponentFleetHidden()) {
+				// The opponent resolves the shot and reports it with a RESULT
+				if (!model.getOpponentBoard().canFire(row, col)) {
+					controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached.
+					return;
+				}
+				server.sendData(Message.move(row, col));
+			} else {
+				ShotResult result = model.playerFires(row, col);
+				if (result == ShotResult.INVALID) {
+					controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached.
+					return;
+				}
+				if (server != null) {
+					server.sendShot(row, col, result);
+				}
+			}
+		}
+		playerTurn = false; // Switch turn to opponent after player's action
+		view.updateOpponentInfo(model.getOpponentFleet());
+		if (!model.isGameOver()) {
+			view.updateTurnLabel();
+			if (controller.getServerController() == null) {
+				fireOpponentShot(-1, -1); // Opponent continues firing if game is not over
+			} else {
+				opponentFires();
+			}
+		}
+	}
+
+	/**
+	 * Initiates opponent's firing action, then hands the turn back to the player.
+	 * In single player the CPU picks its target with the model's strategy, off
+	 * the event dispatch thread since a hard opponent samples for a while; online
+	 * the target is the move received from the opponent.
+	 *
+	 * @param row The grid row, or -1 if there is no move to apply.
+	 * @param col The grid column, or -1 if there is no move to apply.
+	 */
+	public void fireOpponentShot(int row, int col) {
+		if (isShowingPlayerGrid()) {
+			swapGridView();
+		}
+		disableButtons(); // Disable player's grid buttons during opponent's turn
+		if (controller.getServerController() == null) {
+			new SwingWorker<Integer, Void>() {
+				@Override
+				protected Integer doInBackground() {
+					return model.nextOpponentShot();
+				}
+
+				@Override
+				protected void done() {
+					int cell;
+					try {
+						cell = get();
+					} catch (InterruptedException | ExecutionException e) {
+						e.printStackTrace();
+						return;
+					}
+					if (!controller.getMenuController().gameStart) {
+						return; // The game was ended while the CPU was aiming
+					}
+					fireCpuShot(cell);
+				}
+			}.execute();
+			return;
+		}
+		if (model.getPlayerBoard().canFire(row, col)) {
+			announceOpponentShot(row, col);
+			ShotResult result = model.opponentFires(row, col); // Perform opponent's firing action
+			controller.getServerController().sendResult(row, col, result);
+		}
+		handTurnToPlayer();
+	}
+
+	/**
+	 * Fires the CPU's shot picked by the model's strategy, then hands the turn
+	 * back to the player.
+	 *
+	 * @param cell The cell to fire at, as row * width + column.
+	 */
+	private void fireCpuShot(int cell) {
+		int r = cell / model.getPlayerBoard().getWidth();
+		int c = cell % model.getPlayerBoard().getWidth();
+		String columnLabel = GameRules.getColumnLabel(c); // Convert column index to its label
+		controller.getChatController().receiveChatMessage(
+				loader.getResourceBundle().getString("chat.opponent") + " " + (r + 1) + columnLabel);
+		model.opponentFires(r, c); // Perform opponent's firing action
+		handTurnToPlayer();
+	}
+
+	/**
+	 * Records the opponent's shot with the outcome decided by the host or server
+	 * that resolves every shot, then hands the turn back to the player.
+	 *
+	 * @param row    The grid row.
+	 * @param col    The grid column.
+	 * @param result The decided outcome.
+	 * @param shipId The id of the ship sunk, or -1.
+	 */
+	public void recordOpponentShot(int row, int col, ShotResult result, int shipId) {
+		if (isShowingPlayerGrid()) {
+			swapGridView();
+		}
+		disableButtons();
+		if (model.getPlayerBoard().canFire(row, col)) {
+			announceOpponentShot(row, col);
+			model.recordOpponentShot(row, col, result, shipId);
+		}
+		handTurnToPlayer();
+	}
+
+	/**
+	 * Tells the player in the chat where the online opponent fired.
+	 *
+	 * @param row The grid row.
+	 * @param col The grid column.
+	 */
+	private void announceOpponentShot(int row, int col) {
+		String columnLabel = GameRules.getColumnLabel(col); // Convert column index to its label
+		controller.getChatController().receiveChatMessage(controller.getServerController().getOpponentName() + " "
+				+ loader.getResourceBundle().getString("chat.name") + " " + (row + 1) + columnLabel);
+	}
+
+	/**
+	 * Hands the turn back to the player after the opponent's shot, unless the
+	 * game is over.
+	 */
+	private void handTurnToPlayer() {
+		playerTurn = true; // Switch turn back to player after opponent's action
+		view.updatePlayerInfo(model.getPlayerFleet());
+		if (!model.isGameOver()) {
+			view.updateTurnLabel();
+			playerFires(); // Player continues firing if game is not over
+		}
+	}
+
+	/**
+	 * Records the outcome of the player's shot reported by an opponent whose
+	 * layout is hidden, or by the host or server that resolves every shot.
+	 *
+	 * @param row    The row index of the grid cell.
+	 * @param col    The column index of the grid cell.
+	 * @param result The reported outcome.
+	 * @param shipId The id of the ship reported sunk, or -1.
+	 */
+	public void recordPlayerShot(int row, int col, ShotResult result, int shipId) {
+		model.recordPlayerShot(row, col, result, shipId);
+		view.updateOpponentInfo(model.getOpponentFleet());
+	}
+
+	/**
+	 * Shows the opponent's layout revealed at the end of a game in which it was
+	 * hidden, if it agrees with the outcomes the opponent reported.
+	 *
+	 * @param ships The revealed layout, four numbers per ship.
+	 * @return true if the layout agrees with the reported outcomes.
+	 */
+	public boolean revealOpponentFleet(int[] ships) {
+		if (!model.revealOpponentFleet(ships)) {
+			return false;
+		}
+		view.viewOpponentGrid();
+		return true;
+	}
+
+	/**
+	 * Shows the round-trip time to the online opponent in the info panel. Called
+	 * from the network threads, so the label is updated on the event dispatch
+	 * thread.
+	 *
+	 * @param micros The round-trip time in microseconds, or -1 to hide it.
+	 */
+	public void updateRoundTripTime(long micros) {
+		SwingUtilities.invokeLater(() -> view.updateRoundTripTime(micros));
+	}
+
+	/**
+	 * Shows the chat lines dropped from the online opponent in the info panel,
+	 * on the event dispatch thread like the round-trip time.
+	 *
+	 * @param dropped The number of lines dropped, or 0 to hide it.
+	 * @param floods  The number of times the opponent went over its rate.
+	 */
+	public void updateChatDropped(long dropped, long floods) {
+		SwingUtilities.invokeLater(() -> view.updateChatDropped(dropped, floods));
+	}
+
+	/**
+	 * Reflects a resolved shot in the chat and, for the player's shots, on the
+	 * grid buttons.
+	 */
+	@Override
+	public void shotFired(boolean playerShot, int row, int col, ShotResult result, ShipModel ship) {
+		if (result == ShotResult.MISS) {
+			controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.miss"));
+		} else {
+			controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.hit"));
+			if (result == ShotResult.SUNK) {
+				controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.sunk"));
+			}
+		}
+		if (playerShot) {
+			JButton button = view.getGridButtons()[row][col];
+			button.setIcon(result == ShotResult.MISS ? missIndicator : hitIndicator);
+			button.setEnabled(false); // Disable button after firing
+		}
+	}
+
+	/**
+	 * Displays the result of the game and stops the turn timer.
+	 */
+	@Override
+	public void gameOver(boolean playerWon) {
+		String message = playerWon ? loader.getResourceBundle().getString("chat.win")
+				: loader.getResourceBundle().getString("chat.lose");
+		controller.getChatController().receiveChatMessage(message);
+		view.updateWinLoseLabel();
+		view.viewOpponentGrid();
+		controller.getMenuController().gameStart = false;
+		view.updateStartMenu();
+		timer.cancel();
+		timeRemaining = 10;
+		view.updateTimeLabel();
+		disableButtons(); // Disable all grid buttons when game is over
+		if (controller.getServerController() != null) {
+			controller.getServerController().endMatch();
+			controller.getServerController().setRestartFlag(-1);
+			if (playerWon) {
+				// A loss is revealed once the last shot has been reported
+				controller.getServerController().revealFleet();
+			}
+		}
+	}
+
+	/**
+	 * Ends an online game the opponent stopped answering, so that another can
+	 * be started.
+	 */
+	public void abandonGame() {
+		controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("game.abandoned"));
+		controller.getMenuController().gameStart = false;
+		if (timer != null) {
+			timer.cancel();
+		}
+		timeRemaining = 10;
+		view.updateTimeLabel();
+		view.updateStartMenu();
+		disableButtons();
+		controller.getShipController().resetGrid();
+		model.resetModel();
+	}
+
 	/**
 	 * Switches between showing the player's grid and opponent's grid.
 	 */
@@ -280,7 +574,7 @@ public class GameController {
 	private void handleLeftClick(int row, int col) {
 		JButton button = view.getGridButtons()[row][col];
 		if (button.isEnabled()) {
-			model.playerFires(row, col); // Perform player's firing action
+			firePlayerShot(row, col); // Perform player's firing action
 		}
 	}
 
@@ -318,7 +612,9 @@ public class GameController {
 	 * @param model The BattleshipModel instance.
 	 */
 	public void setModel(BattleshipModel model) {
+		this.model.removeGameListener(this);
 		this.model = model;
+		model.addGameListener(this);
 	}
 
 }
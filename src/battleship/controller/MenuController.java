@@ -4,8 +4,10 @@ import java.awt.Color;
 import java.awt.event.ActionEvent;
 
 import battleship.LocalizationLoader;
-import battleship.controller.ServerController.MessageType;
 import battleship.model.BattleshipModel;
+import battleship.model.Difficulty;
+import battleship.net.MessageType;
+import battleship.net.Notice;
 import battleship.view.BattleshipView;
 
 /**
@@ -102,6 +104,23 @@ public class MenuController {
 		}
 	}
 
+	/**
+	 * Cycles the difficulty of the computer opponent. The difficulty can only be
+	 * changed between games.
+	 *
+	 * @param e The ActionEvent triggered by the user.
+	 */
+	public void changeDifficulty(ActionEvent e) {
+		if (gameStart) {
+			return;
+		}
+		Difficulty[] levels = Difficulty.values();
+		model.setDifficulty(levels[(model.getDifficulty().ordinal() + 1) % levels.length]);
+		view.updateDifficultyMenu();
+		controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("settings.difficulty")
+				+ " : " + loader.getResourceBundle().getString(model.getDifficulty().getKey()));
+	}
+
 	/**
 	 * Exits the game application.
 	 *
@@ -157,6 +176,7 @@ public class MenuController {
 				controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.restart"));
 				controller.getShipController().resetGrid();
 				model.resetModel();
+				controller.getServerController().endMatch();
 				return;
 			} else if (controller.getServerController().getRestartFlag() == 0) {
 				controller.getServerController().sendData(MessageType.RESTART, "1");
@@ -169,10 +189,11 @@ public class MenuController {
 				controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.restart"));
 				controller.getShipController().resetGrid();
 				model.resetModel();
+				controller.getServerController().endMatch();
 				controller.getServerController().setRestartFlag(-1);
 				return;
 			} else {
-				controller.getChatController().sendChatMessage(loader.getResourceBundle().getString("game.request"));
+				controller.getServerController().sayNotice(Notice.RESTART_REQUEST);
 				controller.getServerController().sendData(MessageType.RESTART, "0");
 				return;
 			}
@@ -192,7 +213,7 @@ public class MenuController {
 		}
 		if (controller.getServerController().isHost == 1 && controller.getServerController().clientConnected) {
 			controller.getServerController().sendData(MessageType.NAME, controller.getServerController().getName());
-			controller.getServerController().sendData(MessageType.START, "START");
+			controller.getServerController().sendStart();
 			return;
 		}
 	}
@@ -1,35 +1,117 @@
 package battleship.controller;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
 import java.net.UnknownHostException;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import battleship.LocalizationLoader;
 import battleship.model.BattleshipModel;
+import battleship.model.GameListener;
+import battleship.model.GameRules;
+import battleship.model.ShipModel;
+import battleship.model.ShotResult;
+import battleship.net.Audience;
+import battleship.net.Connection;
+import battleship.net.FleetCommitment;
+import battleship.net.MatchListener;
+import battleship.net.MatchStateMachine;
+import battleship.net.Message;
+import battleship.net.MessageHandler;
+import battleship.net.MessageType;
+import battleship.net.Notice;
+import battleship.net.RateLimiter;
+import battleship.net.Session;
+import battleship.net.Transport;
 
 /**
  * The ServerController class handles the server-side and client-side networking
  * for the Battleship game. It manages connections, data transmission, and game
  * synchronization between the host and the client.
+ *
+ * <p>
+ * Connections are opened through a {@link Transport}, chosen with the
+ * {@code battleship.transport} system property: "nio" (the default) serves every
+ * connection from a small pool of non-blocking I/O threads, "socket" uses a
+ * blocking thread per connection. Messages are received on the transport's
+ * threads, which must never wait on the player, so the connection's heartbeat
+ * keeps being answered. The median round trip it measures is shown in the
+ * info panel.
+ * </p>
+ *
+ * <p>
+ * With the {@code battleship.authority} system property set to "host", the
+ * host of a peer-to-peer game owns both fleets: the guest sends its layout to
+ * the host only, and the host resolves every shot once and tells the guest the
+ * outcome with a RESULT for the guest's shots and a SHOT for its own. A
+ * dedicated server started with {@code --authority server} does the same for
+ * both players. Either way the players are told with a START of "AUTHORITY".
+ * </p>
+ *
+ * <p>
+ * The host, or a dedicated server, issues each guest a {@link Session}. If the
+ * connection drops during a game, the guest reconnects and sends a RESUME, the
+ * host waits for it, and each side sends again the messages the other missed.
+ * The game goes on as if nothing happened, or ends once {@link #RECONNECT}
+ * seconds have passed.
+ * </p>
+ *
+ * <p>
+ * Anyone else who joins a host that already has a guest watches the game: an
+ * {@link Audience} sends them the chat and a line for each shot, and the score
+ * in place of what a spectator too slow to keep up would have missed.
+ * </p>
+ *
+ * <p>
+ * Each game is followed by a {@link MatchStateMachine}, driven by the messages
+ * sent and received, so no thread ever waits for the opponent. The countdown
+ * to the first turn starts once both fleets are placed; a game in which the
+ * opponent stops answering, while placing or on its turn, is abandoned.
+ * </p>
  */
-public class ServerController {
+public class ServerController implements MessageHandler, GameListener, MatchListener {
 
 	/**
-	 * Enum to define the types of messages that can be sent between the client and
-	 * server.
+	 * The name of the transport used for new connections.
 	 */
-	public enum MessageType {
-		NAME, PLACE, MOVE, CHAT, START, RESTART, DISCONNECT
-	}
+	public static final String TRANSPORT = System.getProperty("battleship.transport", "nio");
+
+	/**
+	 * Whether the fleet is kept hidden until the end of the game, set with the
+	 * {@code battleship.fleet} system property: "reveal" (the default) sends the
+	 * whole layout before the first shot, "commit" sends only a commitment to it
+	 * and reports the outcome of every shot, then reveals the layout once the
+	 * game is over so the opponent can check it.
+	 */
+	public static final boolean COMMIT_FLEET = "commit".equals(System.getProperty("battleship.fleet", "reveal"));
+
+	/**
+	 * Whether the host of a peer-to-peer game resolves every shot, set with the
+	 * {@code battleship.authority} system property: "peer" (the default) has
+	 * each player resolve the shots at its own board, "host" has the host own
+	 * both fleets and report each outcome to the guest.
+	 */
+	public static final boolean HOST_AUTHORITY = "host".equals(System.getProperty("battleship.authority", "peer"));
+
+	/**
+	 * The seconds to wait for a dropped connection to be resumed, set with the
+	 * {@code battleship.reconnect} system property, or 0 to end the game at
+	 * once. 30 by default.
+	 */
+	public static final int RECONNECT = Integer.getInteger("battleship.reconnect", 30);
+
+	/**
+	 * The seconds to wait for the opponent to place its fleet, set with the
+	 * {@code battleship.placing} system property, or 0 to wait forever. 300 by
+	 * default.
+	 */
+	public static final int PLACING_TIMEOUT = Integer.getInteger("battleship.placing", 300);
+
+	// Seconds to wait for a move: well past the turn timer and a resume
+	private static final int TURN_TIMEOUT = 60 + RECONNECT;
 
 	private BattleshipController controller;
 	private BattleshipModel model;
@@ -40,19 +122,28 @@ public class ServerController {
 	private int port;
 	private String address;
 
-	private ServerSocket serverSocket;
-	private Socket clientSocket;
-	private Thread serverThread;
+	private Transport transport;
+	private volatile Connection connection;
 	private Thread clientThread;
-	
+	private boolean listening;
+
+	// The session of the current connection, once issued
+	private volatile Session session;
+	// A new connection on which a dropped one is being resumed
+	private volatile Connection pending;
+	// Whether the connection dropped and is being resumed
+	private volatile boolean resuming;
+
+	// The spectators of the game, when hosting
+	private volatile Audience audience;
+	private volatile int playerHits;
+	private volatile int opponentHits;
+
 	/**
 	 * Indicates whether the user is a host or client.
 	 */
 	public int isHost = -1;
 
-	private PrintWriter out;
-	private BufferedReader in;
-
 	/**
 	 * Indicates if the user would like to restart.
 	 */
@@ -63,9 +154,27 @@ public class ServerController {
 	 */
 	public boolean clientConnected = false;
 	
-	private volatile boolean running = true; // Flag to control accepting connections
+	private final AtomicBoolean disconnected = new AtomicBoolean();
+
+	private final MatchStateMachine match;
 
-	private CyclicBarrier barrier = new CyclicBarrier(2);
+	// Our commitment while our layout is hidden from the opponent
+	private volatile FleetCommitment commitment;
+	// The opponent's commitment while its layout is hidden from us
+	private volatile String opponentCommit;
+	// Whether we resolve every shot of this game, as the host
+	private volatile boolean authoritative;
+	// Whether the host or server resolves every shot of this game for us
+	private volatile boolean remoteAuthority;
+	// Whether we are connected to a dedicated server rather than a player
+	private volatile boolean dedicated;
+	// Whether the player's arrival is still to be announced, once the protocol is agreed
+	private final AtomicBoolean announcing = new AtomicBoolean();
+
+	// The opponent's chat rate; a dedicated server limits each player itself
+	private final RateLimiter chatLimit = RateLimiter.forChat();
+	private final AtomicLong chatDropped = new AtomicLong();
+	private final AtomicLong chatThrottled = new AtomicLong();
 
 	/**
 	 * Constructor for the ServerController class.
@@ -99,53 +208,36 @@ public class ServerController {
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 			disconnect();
 		}));
+		this.match = new MatchStateMachine(this, TimeUnit.SECONDS.toMillis(PLACING_TIMEOUT),
+				TimeUnit.SECONDS.toMillis(TURN_TIMEOUT));
 	}
 
 	/**
-	 * Starts hosting the game server.
+	 * Starts hosting the game server. Only one client is accepted at a time;
+	 * others are turned away while it is connected.
 	 */
 	public void host() {
 		isHost = 1;
-		serverThread = new Thread(() -> {
-			try {
-				serverSocket = new ServerSocket(port);
-				InetAddress address = InetAddress.getLocalHost();
-				this.address = address.getHostAddress();
-				// Notify the chat controller about the server status
-				controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("host.server")
-						+ " " + loader.getResourceBundle().getString("host.status"));
-				controller.getChatController()
-						.receiveChatMessage(loader.getResourceBundle().getString("join.address") + ": " + this.address);
-				controller.getChatController()
-						.receiveChatMessage(loader.getResourceBundle().getString("host.port") + ": " + port);
-				while (running) { // Check the flag before accepting connections
-					try {
-						clientSocket = serverSocket.accept();
-						clientConnected = true;
-
-						out = new PrintWriter(new OutputStreamWriter(clientSocket.getOutputStream()), true);
-						in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-
-						// Start receiving data
-						receiveData();
-					} catch (SocketException e) {
-						if (!running) {
-							controller.getChatController()
-									.receiveChatMessage(loader.getResourceBundle().getString("host.server") + " "
-											+ loader.getResourceBundle().getString("host.disconnected"));
-							controller.setServerController(null);
-						} else {
-							e.printStackTrace();
-							controller.setServerController(null);
-						}
-					}
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-				controller.setServerController(null);
-			}
-		});
-		serverThread.start();
+		listening = true;
+		transport = Transport.create(TRANSPORT);
+		audience = new Audience(this::summarize);
+		model.addGameListener(this);
+		try {
+			transport.listen(port, this);
+			InetAddress address = InetAddress.getLocalHost();
+			this.address = address.getHostAddress();
+			// Notify the chat controller about the server status
+			controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("host.server")
+					+ " " + loader.getResourceBundle().getString("host.status"));
+			controller.getChatController()
+					.receiveChatMessage(loader.getResourceBundle().getString("join.address") + ": " + this.address);
+			controller.getChatController()
+					.receiveChatMessage(loader.getResourceBundle().getString("host.port") + ": " + port);
+		} catch (IOException e) {
+			e.printStackTrace();
+			transport.close();
+			controller.setServerController(null);
+		}
 	}
 
 	/**
@@ -153,9 +245,10 @@ public class ServerController {
 	 */
 	public void connect() {
 		isHost = 0;
+		transport = Transport.create(TRANSPORT);
 		clientThread = new Thread(() -> {
 			try {
-				clientSocket = new Socket(address, port);
+				transport.connect(address, port, this);
 				controller.getChatController()
 						.receiveChatMessage(loader.getResourceBundle().getString("host.connected"));
 				controller.getChatController()
@@ -163,15 +256,11 @@ public class ServerController {
 				controller.getChatController()
 						.receiveChatMessage(loader.getResourceBundle().getString("host.port") + ": " + port);
 
-				out = new PrintWriter(new OutputStreamWriter(clientSocket.getOutputStream()), true);
-				in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-
-				// Start receiving data
-				receiveData();
-
-				sendData(MessageType.CHAT, name + " " + loader.getResourceBundle().getString("host.connected"));
+				announcing.set(true);
+				sendData(MessageType.NAME, name);
 
 			} catch (IOException e) {
+				transport.close();
 				controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("join.error"));
 				controller.setServerController(null);
 			}
@@ -180,63 +269,560 @@ public class ServerController {
 	}
 
 	/**
-	 * Sends data to the connected client or server.
+	 * Sends the opponent a notice to word in its own language, or the line in
+	 * the player's language to an opponent too old to understand a SYSTEM.
+	 *
+	 * @param notice    The notice.
+	 * @param arguments Its arguments.
+	 */
+	public void sendNotice(Notice notice, String... arguments) {
+		Message line = Message.of(MessageType.CHAT, notice.format(loader.getResourceBundle(), arguments));
+		Connection connection = this.connection;
+		if (connection == null || connection.getProtocolVersion() < Message.NOTICE_VERSION) {
+			sendData(line);
+			return;
+		}
+		sendData(Message.system(notice, arguments));
+		Audience audience = this.audience;
+		if (audience != null) {
+			audience.publish(line);
+		}
+	}
+
+	/**
+	 * Sends the opponent a notice from the player, and shows it in the chat.
+	 *
+	 * @param notice The notice, whose one argument is the player's name.
+	 */
+	public void sayNotice(Notice notice) {
+		sendNotice(notice, name);
+		controller.getChatController().receiveChatMessage(notice.format(loader.getResourceBundle(), name));
+	}
+
+	/**
+	 * Sends data to the connected client or server. Never blocks on the network.
 	 *
 	 * @param type    The type of the message being sent.
 	 * @param message The message content.
 	 */
 	public void sendData(MessageType type, String message) {
-		if (out != null) {
-			out.println(type + "::" + message);
-			out.flush();
+		Message parsed = Message.parse(type, message);
+		if (parsed != null) {
+			sendData(parsed);
 		}
 	}
 
 	/**
-	 * Receives data from the connected client or server.
+	 * Sends a message to the connected client or server. Never blocks on the
+	 * network. While the connection is being resumed the message is only kept
+	 * by the session, to be sent once it is.
+	 *
+	 * @param message The message.
 	 */
-	public void receiveData() {
-		Thread receiveThread = new Thread(() -> {
-			try {
-				String receivedMessage;
-				while ((receivedMessage = in.readLine()) != null) {
-					String[] parts = receivedMessage.split("::", 2);
-					MessageType type = MessageType.valueOf(parts[0]);
-					String message = parts.length > 1 ? parts[1] : "";
-
-					switch (type) {
-					case NAME:
-						this.opponentName = message;
-						break;
-					case PLACE:
-						handlePlace(message);
-						break;
-					case MOVE:
-						handleMove(message);
-						break;
-					case CHAT:
-						controller.getChatController().receiveChatMessage(message);
-						break;
-					case START:
-						handleStart(message);
-						break;
-					case RESTART:
-						handleRestart(message);
-						break;
-					case DISCONNECT:
-						disconnect();
-						break;
-					}
+	public void sendData(Message message) {
+		synchronized (this) {
+			Session session = this.session;
+			if (session != null) {
+				session.sent(message);
+			}
+			Connection connection = this.connection;
+			if (connection != null) {
+				connection.send(message);
+			}
+		}
+		if (message.getType() == MessageType.MOVE || message.getType() == MessageType.SHOT) {
+			// The player's shot is applied before it is sent, and a winning shot has
+			// already ended the match, so it is sent whether or not it is refused
+			match.move(getSeat());
+		}
+		Audience audience = this.audience;
+		if (audience != null && message.getType() == MessageType.CHAT) {
+			audience.publish(message);
+		}
+	}
+
+	/**
+	 * Asks the opponent to start a game, telling it when the host is to resolve
+	 * every shot of the game.
+	 */
+	public void sendStart() {
+		remoteAuthority = false;
+		authoritative = HOST_AUTHORITY && !dedicated && isFleetSupported();
+		sendData(MessageType.START, "START");
+		if (authoritative) {
+			sendData(MessageType.START, "AUTHORITY");
+		}
+	}
+
+	/**
+	 * Checks if the opponent understands the FLEET message, so the layout can be
+	 * sent at once instead of one PLACE per ship.
+	 *
+	 * @return true if the layout is sent with {@link #sendFleet()}.
+	 */
+	public boolean isFleetSupported() {
+		Connection connection = this.connection;
+		return connection != null && connection.getProtocolVersion() >= Message.FLEET_VERSION;
+	}
+
+	/**
+	 * Sends the player's layout once every ship is placed: the whole fleet in
+	 * one FLEET, or only a COMMIT when {@link #COMMIT_FLEET} is set and the
+	 * opponent resolves its own shots. Does nothing for an opponent that was
+	 * sent one PLACE per ship, or when the player resolves every shot.
+	 */
+	public void sendFleet() {
+		commitment = null;
+		if (!isFleetSupported() || authoritative) {
+			return;
+		}
+		Message fleet = Message.fleet(model.getPlayerLayout());
+		if (COMMIT_FLEET && !remoteAuthority) {
+			commitment = new FleetCommitment(fleet);
+			sendData(MessageType.COMMIT, commitment.getCommit());
+		} else {
+			sendData(fleet);
+		}
+	}
+
+	/**
+	 * Checks if the opponent's layout is hidden, so the player's shots are
+	 * resolved elsewhere and reported back as a RESULT.
+	 *
+	 * @return true if the opponent sent a COMMIT instead of its fleet, or the
+	 *         host or server resolves every shot.
+	 */
+	public boolean isOpponentFleetHidden() {
+		return opponentCommit != null || remoteAuthority;
+	}
+
+	/**
+	 * Tells the opponent about the player's shot: the move, or its outcome as a
+	 * SHOT when the player resolves every shot.
+	 *
+	 * @param row    The row fired at.
+	 * @param col    The column fired at.
+	 * @param result The outcome of the shot.
+	 */
+	public void sendShot(int row, int col, ShotResult result) {
+		if (authoritative && result != ShotResult.INVALID) {
+			int ship = result == ShotResult.SUNK ? model.getOpponentBoard().getShipAt(row, col) : -1;
+			sendData(Message.shot(row, col, result, ship));
+		} else {
+			sendData(Message.move(row, col));
+		}
+	}
+
+	/**
+	 * Reports the outcome of the opponent's shot back to it, if the player's
+	 * layout is hidden or the player resolves every shot, and reveals a hidden
+	 * layout if the shot ended the game.
+	 *
+	 * @param row    The row fired at.
+	 * @param col    The column fired at.
+	 * @param result The outcome of the shot.
+	 */
+	public void sendResult(int row, int col, ShotResult result) {
+		if (commitment == null && !authoritative || result == ShotResult.INVALID) {
+			return;
+		}
+		int ship = result == ShotResult.SUNK ? model.getPlayerBoard().getShipAt(row, col) : -1;
+		sendData(Message.result(row, col, result, ship));
+		if (model.isGameOver()) {
+			revealFleet();
+		}
+	}
+
+	/**
+	 * Reveals the player's hidden layout once the game is over, so the opponent
+	 * can check it against the commitment and the outcomes reported.
+	 */
+	public void revealFleet() {
+		FleetCommitment commitment = this.commitment;
+		if (commitment != null) {
+			this.commitment = null;
+			sendData(MessageType.REVEAL, commitment.getReveal());
+		}
+	}
+
+	/**
+	 * Keeps the connection to the opponent, or makes it a spectator if the host
+	 * already has a client. While a dropped connection is being resumed, the
+	 * client's new connection is kept aside until the resume succeeds, and the
+	 * host's guest comes back as a spectator until it sends its RESUME.
+	 */
+	@Override
+	public void onConnected(Connection connection) {
+		synchronized (this) {
+			if (disconnected.get()) {
+				// Turned away below
+			} else if (this.connection == null && !resuming) {
+				this.connection = connection;
+				clientConnected = isHost == 1;
+				return;
+			} else if (!listening && resuming && pending == null) {
+				pending = connection;
+				Session session = this.session;
+				connection.send(MessageType.RESUME, session.getToken() + "," + session.getReceived());
+				return;
+			} else if (listening) {
+				audience.add(connection);
+				connection.send(MessageType.CHAT,
+						loader.getResourceBundle().getString("spectate.watching") + " " + name + ".");
+				connection.send(summarize());
+				return;
+			}
+		}
+		connection.close();
+	}
+
+	/**
+	 * Handles a message from the opponent.
+	 */
+	@Override
+	public void onMessage(Connection connection, Message message) {
+		if (connection != this.connection) {
+			if (message.getType() == MessageType.RESUMED && connection == pending) {
+				handleResumed(connection, message.getText());
+			} else if (message.getType() == MessageType.RESUME && listening) {
+				// The guest may notice the drop first and resume before the host does
+				audience.remove(connection);
+				handleResume(connection, message.getText());
+			}
+			// Spectators are only listened to for a RESUME
+			return;
+		}
+		Session session = this.session;
+		if (session != null) {
+			session.received(message);
+		}
+		if (message.getType() != MessageType.CHAT && announcing.compareAndSet(true, false)) {
+			// A reply to the player's NAME follows the peer's hello, if it sent one
+			sendNotice(Notice.CONNECTED, name);
+		}
+		if (message.getType() == MessageType.CHAT && !dedicated && !admitChat()) {
+			return;
+		}
+		switch (message.getType()) {
+		case NAME:
+			this.opponentName = message.getText();
+			if (listening && !dedicated && session == null
+					&& connection.getProtocolVersion() >= Session.VERSION) {
+				// Issue the guest a session, so a dropped connection can be resumed
+				Session issued = new Session();
+				this.session = issued;
+				connection.send(MessageType.SESSION, issued.getToken());
+			}
+			break;
+		case SESSION:
+			if (!listening && !resuming) {
+				this.session = new Session(message.getText());
+			}
+			break;
+		case PLACE:
+			handlePlace(message);
+			break;
+		case MOVE:
+			// A move out of turn, or after the game is over, is dropped
+			if (match.move(1 - getSeat())) {
+				handleMove(message.getRow(), message.getColumn());
+			}
+			break;
+		case CHAT:
+			controller.getChatController().receiveChatMessage(message.getText());
+			Audience audience = this.audience;
+			if (audience != null) {
+				audience.publish(message);
+			}
+			break;
+		case SYSTEM:
+			String line = message.getNotice().format(loader.getResourceBundle(), message.getArguments());
+			controller.getChatController().receiveChatMessage(line);
+			Audience spectators = this.audience;
+			if (spectators != null) {
+				spectators.publish(Message.of(MessageType.CHAT, line));
+			}
+			break;
+		case START:
+			handleStart(message.getText());
+			break;
+		case RESTART:
+			handleRestart(message.getText());
+			break;
+		case DISCONNECT:
+			disconnect();
+			break;
+		case FLEET:
+			model.placeOpponentFleet(message.getShips());
+			break;
+		case COMMIT:
+			opponentCommit = message.getText();
+			break;
+		case RESULT:
+			controller.getGameController().recordPlayerShot(message.getRow(), message.getColumn(),
+					message.getResult(), message.getShip());
+			break;
+		case REVEAL:
+			handleReveal(message.getText());
+			break;
+		case SHOT:
+			if (remoteAuthority && match.move(1 - getSeat())) {
+				controller.getGameController().recordOpponentShot(message.getRow(), message.getColumn(),
+						message.getResult(), message.getShip());
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Counts a chat line from the opponent against its rate, telling the player
+	 * once each time the opponent goes over.
+	 *
+	 * @return true if the line may be shown, false if it is dropped.
+	 */
+	private boolean admitChat() {
+		switch (chatLimit.admit()) {
+		case PASSED:
+			return true;
+		case THROTTLED:
+			chatThrottled.incrementAndGet();
+			chatDropped.incrementAndGet();
+			controller.getChatController()
+					.receiveChatMessage(opponentName + " " + loader.getResourceBundle().getString("chat.throttled"));
+			controller.getGameController().updateChatDropped(getChatDropped(), getChatThrottled());
+			return false;
+		default:
+			chatDropped.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * Retrieves the number of chat lines from the opponent dropped for going
+	 * over its rate.
+	 *
+	 * @return The count since the controller was made.
+	 */
+	public long getChatDropped() {
+		return chatDropped.get();
+	}
+
+	/**
+	 * Retrieves the number of times the opponent went over its chat rate.
+	 *
+	 * @return The count since the controller was made.
+	 */
+	public long getChatThrottled() {
+		return chatThrottled.get();
+	}
+
+	/**
+	 * Tells the spectators the outcome of a shot.
+	 */
+	@Override
+	public void shotFired(boolean playerShot, int row, int col, ShotResult result, ShipModel ship) {
+		Audience audience = this.audience;
+		if (audience == null) {
+			return;
+		}
+		if (result != ShotResult.MISS) {
+			if (playerShot) {
+				playerHits++;
+			} else {
+				opponentHits++;
+			}
+		}
+		String outcome = result == ShotResult.MISS ? "chat.miss" : result == ShotResult.HIT ? "chat.hit" : "chat.sunken";
+		audience.publish(Message.of(MessageType.CHAT,
+				(playerShot ? name : opponentName) + " " + loader.getResourceBundle().getString("chat.name") + " "
+						+ (row + 1) + GameRules.getColumnLabel(col) + " "
+						+ loader.getResourceBundle().getString(outcome)));
+	}
+
+	/**
+	 * Tells the spectators who won.
+	 */
+	@Override
+	public void gameOver(boolean playerWon) {
+		Audience audience = this.audience;
+		if (audience != null) {
+			audience.publish(Message.of(MessageType.CHAT, (playerWon ? name : opponentName) + " "
+					+ loader.getResourceBundle().getString("chat.winner")));
+		}
+	}
+
+	/**
+	 * Makes the score line sent to a spectator that joins or falls behind.
+	 *
+	 * @return The line.
+	 */
+	private Message summarize() {
+		String line = loader.getResourceBundle().getString("spectate.score") + ": " + name + " " + playerHits;
+		if (opponentName != null) {
+			line += ", " + opponentName + " " + opponentHits;
+		}
+		return Message.of(MessageType.CHAT, line);
+	}
+
+	/**
+	 * Shows the median of the recent round trips to the opponent.
+	 */
+	@Override
+	public void onRoundTrip(Connection connection, long micros) {
+		if (connection == this.connection) {
+			controller.getGameController().updateRoundTripTime(connection.getRoundTrips().getPercentile(0.5));
+			// Lines dropped since the opponent went over its rate
+			controller.getGameController().updateChatDropped(getChatDropped(), getChatThrottled());
+		}
+	}
+
+	/**
+	 * Resumes the connection to the opponent when it is lost during a game, or
+	 * ends the session.
+	 */
+	@Override
+	public void onDisconnected(Connection connection) {
+		Audience audience = this.audience;
+		if (audience != null && audience.remove(connection)) {
+			return;
+		}
+		boolean resume = false;
+		synchronized (this) {
+			if (connection == pending) {
+				// The reconnect failed; another attempt follows while there is time
+				pending = null;
+				return;
+			}
+			if (connection != this.connection) {
+				return;
+			}
+			Session session = this.session;
+			if (RECONNECT > 0 && session != null && session.isStarted() && !disconnected.get()
+					&& controller.getMenuController().gameStart) {
+				this.connection = null;
+				resuming = true;
+				resume = true;
+			}
+		}
+		if (resume) {
+			controller.getGameController().updateRoundTripTime(-1);
+			controller.getChatController().receiveChatMessage(
+					loader.getResourceBundle().getString(listening ? "host.waiting" : "host.lost"));
+			Thread reconnect = new Thread(this::reconnect, "battleship-reconnect");
+			reconnect.setDaemon(true);
+			reconnect.start();
+		} else {
+			disconnect();
+		}
+	}
+
+	/**
+	 * Reconnects to the host or server every second until the connection is
+	 * resumed, while the host only waits for its guest to come back. Ends the
+	 * session if that takes longer than {@link #RECONNECT} seconds.
+	 */
+	private void reconnect() {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RECONNECT);
+		while (resuming && !disconnected.get() && System.nanoTime() < deadline) {
+			if (!listening && pending == null) {
+				try {
+					transport.connect(address, port, this);
+				} catch (IOException e) {
+					// Not reachable yet
 				}
-			} catch (IOException e) {
-				if (running) {
-					e.printStackTrace();
+			}
+			try {
+				Thread.sleep(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		if (resuming) {
+			disconnect();
+		}
+	}
+
+	/**
+	 * Handles the guest's RESUME on a new connection: answers how much of the
+	 * game was received and sends again what the guest missed, or turns it away.
+	 * The new connection takes over from the previous one, which is closed, even
+	 * if the host has not noticed yet that the guest's connection dropped.
+	 *
+	 * @param connection The new connection.
+	 * @param text       The token, then the number of messages received.
+	 */
+	private void handleResume(Connection connection, String text) {
+		String[] parts = text.split(",");
+		Connection previous;
+		boolean announce;
+		synchronized (this) {
+			Session session = this.session;
+			List<Message> missed = null;
+			if (session != null && session.isStarted() && !disconnected.get() && parts.length == 2
+					&& session.getToken().equals(parts[0])) {
+				try {
+					missed = session.since(Integer.parseInt(parts[1]));
+				} catch (NumberFormatException e) {
+					// Leave it unresumable
 				}
-			} finally {
-				disconnect();
 			}
-		});
-		receiveThread.start();
+			if (missed == null) {
+				connection.send(MessageType.RESUMED, "-1");
+				connection.close();
+				return;
+			}
+			previous = this.connection;
+			announce = resuming;
+			connection.send(MessageType.RESUMED, String.valueOf(session.getReceived()));
+			resumeOn(connection, missed);
+			if (previous != null && previous != connection) {
+				// Its drop is no longer resumed, as it is not the current connection
+				previous.close();
+			}
+		}
+		if (announce) {
+			controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("host.resumed"));
+		}
+	}
+
+	/**
+	 * Handles the answer to a RESUME: sends again what the host or server
+	 * missed, or ends the session if the game cannot be resumed.
+	 *
+	 * @param connection The new connection.
+	 * @param text       The number of messages the other side received.
+	 */
+	private void handleResumed(Connection connection, String text) {
+		List<Message> missed;
+		try {
+			missed = session.since(Integer.parseInt(text.trim()));
+		} catch (NumberFormatException e) {
+			missed = null;
+		}
+		if (missed == null) {
+			disconnect();
+			return;
+		}
+		resumeOn(connection, missed);
+		controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("host.resumed"));
+	}
+
+	/**
+	 * Sends the missed messages on the new connection and carries on over it.
+	 *
+	 * @param connection The new connection.
+	 * @param missed     The messages the other side missed.
+	 */
+	private synchronized void resumeOn(Connection connection, List<Message> missed) {
+		for (Message message : missed) {
+			connection.send(message);
+		}
+		this.connection = connection;
+		pending = null;
+		resuming = false;
 	}
 
 	/**
@@ -244,28 +830,34 @@ public class ServerController {
 	 *
 	 * @param message The ship placement message.
 	 */
-	private void handlePlace(String message) {
-		// Parse the message to get the ship placement details and update the model
-		String[] details = message.split(",");
-		int row = Integer.parseInt(details[0]);
-		int col = Integer.parseInt(details[1]);
-		int length = Integer.parseInt(details[2]);
-		boolean isHorizontal = Boolean.parseBoolean(details[3]);
-
+	private void handlePlace(Message message) {
 		// Notify the model to place the ship
-		model.placeOpponentShips(row, col, length, isHorizontal);
+		model.placeOpponentShips(message.getRow(), message.getColumn(), message.getLength(),
+				message.isHorizontal());
 	}
 
 	/**
 	 * Handles move messages.
 	 *
-	 * @param data The move message.
+	 * @param row The row fired at, or -1 if the opponent ran out of time.
+	 * @param col The column fired at, or -1 if the opponent ran out of time.
 	 */
-	public void handleMove(String data) {
-		String[] parts = data.split(",");
-		int row = Integer.parseInt(parts[0]);
-		int col = Integer.parseInt(parts[1]);
-		model.opponentFires(row, col);
+	public void handleMove(int row, int col) {
+		controller.getGameController().fireOpponentShot(row, col);
+	}
+
+	/**
+	 * Handles the opponent's layout revealed at the end of the game, checking
+	 * it against its commitment and the outcomes it reported.
+	 *
+	 * @param reveal The salt and layout from the REVEAL.
+	 */
+	private void handleReveal(String reveal) {
+		Message fleet = FleetCommitment.verify(opponentCommit, reveal);
+		opponentCommit = null;
+		boolean honest = fleet != null && controller.getGameController().revealOpponentFleet(fleet.getShips());
+		controller.getChatController()
+				.receiveChatMessage(loader.getResourceBundle().getString(honest ? "chat.verified" : "chat.mismatch"));
 	}
 
 	/**
@@ -275,6 +867,10 @@ public class ServerController {
 	 */
 	private void handleStart(String message) {
 		if ("START".equals(message)) {
+			match.begin();
+			opponentCommit = null;
+			authoritative = false;
+			remoteAuthority = false;
 			controller.getServerController().sendData(MessageType.NAME, controller.getServerController().getName());
 			sendData(MessageType.START, "ACK_START");
 			controller.getMenuController().gameStart = true;
@@ -283,29 +879,98 @@ public class ServerController {
 			controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.place"));
 			controller.getShipController().initializeGridListeners();
 		} else if ("ACK_START".equals(message)) {
+			match.begin();
+			opponentCommit = null;
+			Audience audience = this.audience;
+			if (audience != null) {
+				playerHits = 0;
+				opponentHits = 0;
+				audience.publish(Message.of(MessageType.CHAT, loader.getResourceBundle().getString("chat.start")));
+			}
 			controller.getMenuController().gameStart = true;
 			controller.getShipController().resetGrid();
 			model.resetModel();
 			controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.place"));
 			controller.getShipController().initializeGridListeners();
 		} else if ("PLACED".equals(message)) {
-			try {
-				barrier.await();
-			} catch (InterruptedException | BrokenBarrierException e) {
-				e.printStackTrace();
+			match.place(1 - getSeat());
+		} else if ("AUTHORITY".equals(message)) {
+			// The host or server resolves every shot of this game
+			remoteAuthority = !authoritative;
+		} else if ("HOST".equals(message)) {
+			// A dedicated server seated us first: we start the game and move first
+			dedicated = true;
+			isHost = 1;
+			clientConnected = true;
+		} else if ("GUEST".equals(message)) {
+			dedicated = true;
+			isHost = 0;
+			clientConnected = false;
+		} else if ("REVEAL".equals(message)) {
+			// A dedicated server whose other player cannot check a commitment
+			FleetCommitment commitment = this.commitment;
+			if (commitment != null) {
+				this.commitment = null;
+				sendData(Message.fleet(model.getPlayerLayout()));
+			}
+		} else if ("WAITING".equals(message)) {
+			// The opponent left the room on a dedicated server
+			isHost = 0;
+			clientConnected = false;
+			opponentCommit = null;
+			remoteAuthority = false;
+			match.end();
+			if (controller.getMenuController().gameStart) {
+				restartFlag = 1;
+				controller.getMenuController().startOrRestartGame(null);
+				restartFlag = -1;
 			}
 		}
 	}
 
 	/**
-	 * Synchronizes the threads using the CyclicBarrier.
+	 * Records that the player has placed their fleet. The countdown starts from
+	 * {@link #matchReady(MatchStateMachine)} once the opponent has too, on
+	 * whichever thread comes last.
 	 */
-	public void synchronize() {
-		try {
-			barrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			e.printStackTrace();
-		}
+	public void fleetPlaced() {
+		match.place(getSeat());
+	}
+
+	/**
+	 * Ends the game being followed, as it is won, lost or restarted.
+	 */
+	public void endMatch() {
+		match.end();
+	}
+
+	/**
+	 * Retrieves the seat of the player in the game: 0 for the host, who moves
+	 * first, or 1.
+	 *
+	 * @return The player's seat.
+	 */
+	private int getSeat() {
+		return isHost == 1 ? 0 : 1;
+	}
+
+	/**
+	 * Hands the first move to the host and starts the countdown once both
+	 * fleets are placed.
+	 */
+	@Override
+	public void matchReady(MatchStateMachine match) {
+		match.play(0);
+		controller.getGameController().startCountdown();
+	}
+
+	/**
+	 * Abandons a game in which the opponent took too long to place its fleet or
+	 * to move.
+	 */
+	@Override
+	public void matchTimedOut(MatchStateMachine match, MatchStateMachine.State state) {
+		controller.getGameController().abandonGame();
 	}
 
 	/**
@@ -330,70 +995,45 @@ public class ServerController {
 	}
 
 	/**
-	 * Disconnects the client or server from the game.
+	 * Disconnects the client or server from the game. Only the first call has
+	 * any effect.
 	 */
 	public void disconnect() {
+		if (!disconnected.compareAndSet(false, true)) {
+			return;
+		}
+		match.end();
 		try {
-			if (isHost == 0) { // If the current instance is the client, close the client socket
-
-				// Notify the chat controller about the disconnection
-				sendData(MessageType.CHAT, getName() + " " + loader.getResourceBundle().getString("host.disconnected"));
-
-				if (clientSocket != null && !clientSocket.isClosed()) {
-					clientSocket.close();
-				}
-
-				// Stop the client thread
-				if (clientThread != null && clientThread.isAlive()) {
-					clientThread.interrupt();
-				}
-			} // If the current instance is the host, close everything
-
-			else if (isHost == 1) {
-
-				sendData(MessageType.CHAT, getName() + " " + loader.getResourceBundle().getString("host.disconnected"));
-
-				// Send a disconnect message to the client
-				if (clientConnected) {
-					sendData(MessageType.DISCONNECT, "");
-				}
-
-				running = false;
-				clientConnected = false;
-
-				// Close the server socket
-				if (serverSocket != null && !serverSocket.isClosed()) {
-					serverSocket.close();
-				}
-
-				// Close the client socket if connected
-				if (clientSocket != null && !clientSocket.isClosed()) {
-					clientSocket.close();
-				}
-
-				// Stop the server thread
-				if (serverThread != null && serverThread.isAlive()) {
-					serverThread.interrupt();
-				}
-
-				// Stop the client thread if connected
-				if (clientThread != null && clientThread.isAlive()) {
-					clientThread.interrupt();
-				}
+			// Notify the opponent about the disconnection
+			sendNotice(Notice.DISCONNECTED, getName());
 
+			// Send a disconnect message to the client
+			if (isHost == 1 && clientConnected) {
+				sendData(MessageType.DISCONNECT, "");
 			}
+			clientConnected = false;
 
-			// Close the input and output streams
-			if (out != null) {
-				out.close();
+			// Close the connection once the messages above are written, then stop listening
+			Connection connection = this.connection;
+			if (connection != null) {
+				connection.close();
 			}
-			if (in != null) {
-				in.close();
+			Connection pending = this.pending;
+			if (pending != null) {
+				pending.close();
+			}
+			resuming = false;
+			Audience audience = this.audience;
+			if (audience != null) {
+				audience.clear();
+				model.removeGameListener(this);
+			}
+			if (transport != null) {
+				transport.close();
 			}
-
-		} catch (IOException e) {
-			e.printStackTrace();
 		} finally {
+			controller.getGameController().updateRoundTripTime(-1);
+			controller.getGameController().updateChatDropped(0, 0);
 			if (controller.getMenuController().gameStart) {
 				restartFlag = 1;
 				controller.getMenuController().startOrRestartGame(null);
@@ -10,9 +10,9 @@ import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.SwingUtilities;
 
-import battleship.controller.ServerController.MessageType;
 import battleship.model.BattleshipModel;
 import battleship.model.ShipModel;
+import battleship.net.Message;
 import battleship.view.BattleshipView;
 
 /**
@@ -89,12 +89,13 @@ public class ShipController {
 		ShipModel currentShip = getNextShip();
 		JButton button = view.getGridButtons()[row][col];
 		if (button.isEnabled()) {
-			if (model.canPlaceShip(model.getPlayerGrid(), row, col, currentShip.getLength(), horizontalOrientation)) {
-				if (controller.getServerController() != null) {
-					controller.getServerController().sendData(MessageType.PLACE,
-							row + "," + col + "," + currentShip.getLength() + "," + horizontalOrientation);
+			if (model.canPlaceShip(model.getPlayerBoard(), row, col, currentShip.getLength(), horizontalOrientation)) {
+				// Opponents that understand FLEET get the whole layout once every ship is placed
+				if (controller.getServerController() != null && !controller.getServerController().isFleetSupported()) {
+					controller.getServerController()
+							.sendData(Message.place(row, col, currentShip.getLength(), horizontalOrientation));
 				}
-				model.placeShip(model.getPlayerGrid(), currentShip, row, col, horizontalOrientation);
+				model.placeShip(model.getPlayerBoard(), currentShip, row, col, horizontalOrientation);
 				placeShipOnGrid(row, col, currentShip.getLength(), horizontalOrientation);
 			}
 		}
@@ -224,8 +225,8 @@ public class ShipController {
 		JButton[][] gridButtons = view.getGridButtons();
 
 		// Iterate through all grid buttons
-		for (int row = 0; row < 10; row++) {
-			for (int col = 0; col < 10; col++) {
+		for (int row = 0; row < gridButtons.length; row++) {
+			for (int col = 0; col < gridButtons[row].length; col++) {
 				JButton button = gridButtons[row][col];
 
 				// Remove all existing MouseListeners from the button
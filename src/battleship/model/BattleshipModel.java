@@ -2,75 +2,106 @@ package battleship.model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
-
-import javax.swing.ImageIcon;
-import javax.swing.JButton;
-
-import battleship.LocalizationLoader;
-import battleship.controller.BattleshipController;
-import battleship.controller.ServerController.MessageType;
-import battleship.view.BattleshipView;
+import java.util.SplittableRandom;
 
 /**
  * The BattleshipModel class represents the game model for Battleship. It
  * manages the game grids, fleets, ship placement, firing actions, and game
- * state checks.
+ * state checks. The model has no dependency on Swing; views and controllers
+ * observe it by registering a {@link GameListener}, so games can also be run
+ * headless.
  */
 public class BattleshipModel implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	// Number of times a random layout is started over before giving up
+	private static final int MAX_LAYOUT_ATTEMPTS = 1000;
+
 	// Constants for grid states
-	public static final int EMPTY = 0;
-	public static final int HIT = 3;
-	public static final int MISS = 2;
-	public static final int OCCUPIED = 1;
+	public static final int EMPTY = BoardModel.EMPTY;
+	public static final int HIT = BoardModel.HIT;
+	public static final int MISS = BoardModel.MISS;
+	public static final int OCCUPIED = BoardModel.OCCUPIED;
 
-	private BattleshipController controller;
-	private LocalizationLoader loader;
-	private BattleshipView view;
+	private transient GameListener[] listeners = new GameListener[0];
 
-	private ImageIcon hitIndicator = new ImageIcon("resources/images/hit.png");
-	private ImageIcon missIndicator = new ImageIcon("resources/images/miss.png");
+	private GameRules rules;
 
 	private List<ShipModel> opponentFleet;
-	private int[][] opponentGrid;
+	private BoardModel opponentBoard;
 
 	private List<ShipModel> playerFleet;
-	private int[][] playerGrid;
+	private BoardModel playerBoard;
+
+	private Difficulty difficulty = Difficulty.NORMAL;
+	private transient ShotStrategy opponentStrategy;
+	private transient ShotStrategy playerStrategy;
+
+	private transient SplittableRandom random = new SplittableRandom();
+	private transient PlacementGenerator placementGenerator;
+	private transient int[] placedShips = new int[0];
+	private transient int[] shipLengths = new int[0];
 
+	private boolean gameOver;
 	private int loses;
 	private int wins;
 
 	/**
 	 * Constructor for BattleshipModel. Initializes player and opponent grids and
-	 * fleets.
+	 * fleets with the standard rules.
+	 */
+	public BattleshipModel() {
+		this(GameRules.STANDARD);
+	}
+
+	/**
+	 * Constructor for BattleshipModel. Initializes player and opponent grids and
+	 * fleets with the given rules.
 	 *
-	 * @param loader The localization loader instance to load game resources.
+	 * @param rules The board dimensions and fleet to play with.
 	 */
-	public BattleshipModel(LocalizationLoader loader) {
-		this.loader = loader;
-		this.playerGrid = new int[10][10];
-		this.opponentGrid = new int[10][10];
+	public BattleshipModel(GameRules rules) {
+		this.rules = rules;
+		this.playerBoard = new BoardModel(rules.getWidth(), rules.getHeight());
+		this.opponentBoard = new BoardModel(rules.getWidth(), rules.getHeight());
 		this.playerFleet = new ArrayList<>();
 		this.opponentFleet = new ArrayList<>();
-		initializeGrid(playerGrid);
-		initializeGrid(opponentGrid);
 		initializeFleet(playerFleet);
 		initializeFleet(opponentFleet);
+		resetOpponentStrategy();
 		this.wins = 0;
 		this.loses = 0;
 	}
 
 	/**
-	 * Sets the BattleshipController instance associated with this model.
+	 * Registers a listener to be notified of shots and game over events.
+	 *
+	 * @param listener The GameListener to add.
+	 */
+	public synchronized void addGameListener(GameListener listener) {
+		GameListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+		updated[listeners.length] = listener;
+		listeners = updated;
+	}
+
+	/**
+	 * Removes a previously registered listener.
 	 *
-	 * @param controller The BattleshipController instance to set.
+	 * @param listener The GameListener to remove.
 	 */
-	public void setController(BattleshipController controller) {
-		this.controller = controller;
+	public synchronized void removeGameListener(GameListener listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				GameListener[] updated = new GameListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, updated, 0, i);
+				System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+				listeners = updated;
+				return;
+			}
+		}
 	}
 
 	/**
@@ -84,6 +115,72 @@ public class BattleshipModel implements Serializable {
 		}
 	}
 
+	/**
+	 * Sets the difficulty of the computer opponent. The opponent starts the
+	 * current game over with a new strategy.
+	 *
+	 * @param difficulty The Difficulty to set.
+	 */
+	public void setDifficulty(Difficulty difficulty) {
+		this.difficulty = difficulty;
+		this.opponentStrategy = null;
+		resetOpponentStrategy();
+	}
+
+	/**
+	 * Sets the rules of the game. The boards are resized if needed and the game
+	 * starts over with new fleets.
+	 *
+	 * @param rules The board dimensions and fleet to play with.
+	 */
+	public void setRules(GameRules rules) {
+		this.rules = rules;
+		if (playerBoard.getWidth() != rules.getWidth() || playerBoard.getHeight() != rules.getHeight()) {
+			playerBoard = new BoardModel(rules.getWidth(), rules.getHeight());
+			opponentBoard = new BoardModel(rules.getWidth(), rules.getHeight());
+		}
+		resetModel();
+	}
+
+	/**
+	 * Seeds the random number generator used for random fleet placement and by
+	 * the computer opponent, so that games can be reproduced. The opponent
+	 * starts the current game over with a new strategy for the current
+	 * difficulty.
+	 *
+	 * @param seed The seed to use.
+	 */
+	public void setSeed(long seed) {
+		this.random = new SplittableRandom(seed);
+		this.opponentStrategy = null;
+		resetOpponentStrategy();
+	}
+
+	/**
+	 * Replaces the computer opponent's strategy, for example to pit strategies
+	 * configured outside of the difficulty levels against each other. The
+	 * strategy is reset for the player's board.
+	 *
+	 * @param opponentStrategy The ShotStrategy the opponent fires with.
+	 */
+	public void setOpponentStrategy(ShotStrategy opponentStrategy) {
+		this.opponentStrategy = opponentStrategy;
+		resetOpponentStrategy();
+	}
+
+	/**
+	 * Lets a ShotStrategy play the player's side, so that a game can be played
+	 * between two computer opponents. The strategy is reset for the opponent's
+	 * board and is told the outcome of every shot fired by the player.
+	 *
+	 * @param playerStrategy The ShotStrategy the player fires with, or null to
+	 *                       leave the player's shots to the user.
+	 */
+	public void setPlayerStrategy(ShotStrategy playerStrategy) {
+		this.playerStrategy = playerStrategy;
+		resetPlayerStrategy();
+	}
+
 	/**
 	 * Sets the opponent's fleet of ships.
 	 *
@@ -95,12 +192,15 @@ public class BattleshipModel implements Serializable {
 	}
 
 	/**
-	 * Sets the opponent's grid representation.
+	 * Sets the opponent's grid representation by loading it into the opponent's
+	 * board, and indexes the placed ships of the opponent's fleet on it, so the
+	 * fleet is set first.
 	 *
 	 * @param opponentGrid The 2D integer array to set as the opponent's grid.
 	 */
 	public void setOpponentGrid(int[][] opponentGrid) {
-		this.opponentGrid = opponentGrid;
+		opponentBoard.loadGrid(opponentGrid);
+		indexFleet(opponentBoard, opponentFleet);
 	}
 
 	/**
@@ -114,21 +214,30 @@ public class BattleshipModel implements Serializable {
 	}
 
 	/**
-	 * Sets the player's grid representation.
+	 * Sets the player's grid representation by loading it into the player's
+	 * board, and indexes the placed ships of the player's fleet on it, so the
+	 * fleet is set first.
 	 *
 	 * @param playerGrid The 2D integer array to set as the player's grid.
 	 */
 	public void setPlayerGrid(int[][] playerGrid) {
-		this.playerGrid = playerGrid;
+		playerBoard.loadGrid(playerGrid);
+		indexFleet(playerBoard, playerFleet);
 	}
 
 	/**
-	 * Sets the BattleshipView instance associated with this model.
+	 * Indexes the placed ships of a fleet on a board just loaded from a grid.
 	 *
-	 * @param view The BattleshipView instance to set.
+	 * @param board The board loaded.
+	 * @param fleet The fleet whose ships lie on it.
 	 */
-	public void setView(BattleshipView view) {
-		this.view = view;
+	private void indexFleet(BoardModel board, List<ShipModel> fleet) {
+		for (ShipModel ship : fleet) {
+			CoordinateModel head = ship.getCoordinateHead();
+			if (ship.isPlaced() && head != null) {
+				board.index(head.getRow(), head.getColumn(), ship.getLength(), ship.isHorizontal(), ship.getId());
+			}
+		}
 	}
 
 	/**
@@ -143,12 +252,12 @@ public class BattleshipModel implements Serializable {
 	}
 
 	/**
-	 * Retrieves the BattleshipController instance associated with this model.
+	 * Retrieves the difficulty of the computer opponent.
 	 *
-	 * @return The BattleshipController instance.
+	 * @return The current Difficulty.
 	 */
-	public BattleshipController getController() {
-		return controller;
+	public Difficulty getDifficulty() {
+		return difficulty;
 	}
 
 	/**
@@ -170,12 +279,21 @@ public class BattleshipModel implements Serializable {
 	}
 
 	/**
-	 * Retrieves the opponent's grid representation.
+	 * Retrieves the opponent's board.
+	 *
+	 * @return The BoardModel holding the opponent's grid.
+	 */
+	public BoardModel getOpponentBoard() {
+		return opponentBoard;
+	}
+
+	/**
+	 * Retrieves a read-only view of the opponent's grid.
 	 *
 	 * @return The 2D integer array representing the opponent's grid.
 	 */
 	public int[][] getOpponentGrid() {
-		return opponentGrid;
+		return opponentBoard.toGrid();
 	}
 
 	/**
@@ -188,21 +306,30 @@ public class BattleshipModel implements Serializable {
 	}
 
 	/**
-	 * Retrieves the player's grid representation.
+	 * Retrieves the player's board.
+	 *
+	 * @return The BoardModel holding the player's grid.
+	 */
+	public BoardModel getPlayerBoard() {
+		return playerBoard;
+	}
+
+	/**
+	 * Retrieves a read-only view of the player's grid.
 	 *
 	 * @return The 2D integer array representing the player's grid.
 	 */
 	public int[][] getPlayerGrid() {
-		return playerGrid;
+		return playerBoard.toGrid();
 	}
 
 	/**
-	 * Retrieves the BattleshipView instance associated with this model.
+	 * Retrieves the rules of the game.
 	 *
-	 * @return The BattleshipView instance.
+	 * @return The current GameRules.
 	 */
-	public BattleshipView getView() {
-		return view;
+	public GameRules getRules() {
+		return rules;
 	}
 
 	/**
@@ -215,45 +342,47 @@ public class BattleshipModel implements Serializable {
 	}
 
 	/**
-	 * Initializes the player and opponent fleets with default ships.
+	 * Initializes a fleet with the ships listed in the rules.
 	 *
 	 * @param fleet The list to initialize with ships.
 	 */
 	private void initializeFleet(List<ShipModel> fleet) {
-		ShipModel ship1 = new ShipModel(loader, "aircraft", 5);
-		ship1.setController(controller);
-		ShipModel ship2 = new ShipModel(loader, "battleship", 4);
-		ship2.setController(controller);
-		ShipModel ship3 = new ShipModel(loader, "cruiser", 3);
-		ship3.setController(controller);
-		ShipModel ship4 = new ShipModel(loader, "destroyer", 3);
-		ship4.setController(controller);
-		ShipModel ship5 = new ShipModel(loader, "submarine", 2);
-		ship5.setController(controller);
-		fleet.add(ship1);
-		fleet.add(ship2);
-		fleet.add(ship3);
-		fleet.add(ship4);
-		fleet.add(ship5);
-	}
-
-	/**
-	 * Initializes a grid with EMPTY cells.
-	 *
-	 * @param grid The grid to initialize.
-	 */
-	private void initializeGrid(int[][] grid) {
-		for (int row = 0; row < 10; row++) {
-			for (int col = 0; col < 10; col++) {
-				grid[row][col] = EMPTY;
-			}
+		for (int i = 0; i < rules.getShipCount(); i++) {
+			ShipModel ship = new ShipModel(rules.getShipName(i), rules.getShipLength(i));
+			ship.setId(i);
+			fleet.add(ship);
 		}
 	}
 
 	/**
-	 * Checks if a ship can be placed at the specified position on the grid.
+	 * Resets every ship of a fleet for a new game, or builds a new fleet if the
+	 * fleet no longer matches the rules.
 	 *
-	 * @param grid       The grid to check.
+	 * @param fleet The fleet to reset.
+	 * @return The fleet to play the new game with.
+	 */
+	private List<ShipModel> resetFleet(List<ShipModel> fleet) {
+		boolean matches = fleet.size() == rules.getShipCount();
+		for (int i = 0; i < fleet.size() && matches; i++) {
+			ShipModel ship = fleet.get(i);
+			matches = ship.getId() == i && ship.getLength() == rules.getShipLength(i)
+					&& ship.getName().equals(rules.getShipName(i));
+		}
+		if (!matches) {
+			List<ShipModel> newFleet = new ArrayList<>();
+			initializeFleet(newFleet);
+			return newFleet;
+		}
+		for (ShipModel ship : fleet) {
+			ship.reset();
+		}
+		return fleet;
+	}
+
+	/**
+	 * Checks if a ship can be placed at the specified position on the board.
+	 *
+	 * @param board      The board to check.
 	 * @param row        The starting row index.
 	 * @param col        The starting column index.
 	 * @param length     The length of the ship.
@@ -261,24 +390,8 @@ public class BattleshipModel implements Serializable {
 	 *                   vertically.
 	 * @return true if the ship can be placed, false otherwise.
 	 */
-	public boolean canPlaceShip(int[][] grid, int row, int col, int length, boolean horizontal) {
-		// Check if a ship can be placed at the specified position
-		if (horizontal) {
-			if (col + length > 10)
-				return false;
-			for (int i = 0; i < length; i++) {
-				if (col + i >= 10 || grid[row][col + i] != EMPTY)
-					return false;
-			}
-		} else {
-			if (row + length > 10)
-				return false;
-			for (int i = 0; i < length; i++) {
-				if (row + i >= 10 || grid[row + i][col] != EMPTY)
-					return false;
-			}
-		}
-		return true;
+	public boolean canPlaceShip(BoardModel board, int row, int col, int length, boolean horizontal) {
+		return board.canPlace(row, col, length, horizontal);
 	}
 
 	/**
@@ -302,7 +415,8 @@ public class BattleshipModel implements Serializable {
 	 * @return true if the opponent's fleet is sunk, false otherwise.
 	 */
 	public boolean playerWon() {
-		return isFleetSunk(getOpponentFleet());
+		// A hidden fleet is sunk without its board ever being cleared
+		return opponentBoard.isCleared() || gameOver && !playerBoard.isCleared();
 	}
 
 	/**
@@ -311,7 +425,7 @@ public class BattleshipModel implements Serializable {
 	 * @return true if the player's fleet is sunk, false otherwise.
 	 */
 	public boolean opponentWon() {
-		return isFleetSunk(getPlayerFleet());
+		return playerBoard.isCleared();
 	}
 
 	/**
@@ -320,58 +434,31 @@ public class BattleshipModel implements Serializable {
 	 * @return true if either player's or opponent's fleet is sunk, false otherwise.
 	 */
 	public boolean isGameOver() {
-		return isFleetSunk(getPlayerFleet()) || isFleetSunk(getOpponentFleet());
-	}
-
-	/**
-	 * Checks if the game is over and displays the result.
-	 */
-	public void checkGameOver() {
-		if (isGameOver()) {
-			String message = playerWon() ? loader.getResourceBundle().getString("chat.win")
-					: loader.getResourceBundle().getString("chat.lose");
-			controller.getChatController().receiveChatMessage(message);
-			if (playerWon()) {
-				setWins(1);
-			} else {
-				setLoses(1);
-			}
-			view.updateWinLoseLabel();
-			view.viewOpponentGrid();
-			controller.getMenuController().gameStart = false;
-			view.updateStartMenu();
-			controller.getGameController().getTimer().cancel();
-			controller.getGameController().setTimeRemaining(10);
-			view.updateTimeLabel();
-			controller.getGameController().disableButtons(); // Disable all grid buttons when game is over
-			if (controller.getServerController() != null) {
-				controller.getServerController().setRestartFlag(-1);
-			}
-		}
+		return gameOver || playerBoard.isCleared() || opponentBoard.isCleared();
 	}
 
 	/**
-	 * Places a ship on the grid at the specified position.
+	 * Places a ship on the board at the specified position.
 	 *
-	 * @param grid       The grid to place the ship on.
+	 * @param board      The board to place the ship on.
 	 * @param ship       The ship to place.
 	 * @param row        The starting row index.
 	 * @param col        The starting column index.
 	 * @param horizontal Flag indicating if the ship is placed horizontally or
 	 *                   vertically.
 	 */
-	public void placeShip(int[][] grid, ShipModel ship, int row, int col, boolean horizontal) {
-		ship.setCoordinateHead(new CoordinateModel(row, col));
+	public void placeShip(BoardModel board, ShipModel ship, int row, int col, boolean horizontal) {
+		ship.setCoordinateHead(CoordinateModel.of(row, col));
+		ship.clearCoordinates();
 		int length = ship.getLength();
 		ship.setHorizontal(horizontal);
+		board.place(row, col, length, horizontal, ship.getId());
 		if (horizontal) {
 			for (int i = 0; i < length; i++) {
-				grid[row][col + i] = OCCUPIED;
 				ship.addCoordinate(row, col + i);
 			}
 		} else {
 			for (int i = 0; i < length; i++) {
-				grid[row + i][col] = OCCUPIED;
 				ship.addCoordinate(row + i, col);
 			}
 		}
@@ -382,22 +469,89 @@ public class BattleshipModel implements Serializable {
 	 * Randomly places opponent's ships on the grid.
 	 */
 	public void placeOpponentShipsRandomly() {
-		for (ShipModel ship : opponentFleet) {
-			if (!ship.isPlaced()) {
-				Random random = new Random();
-				boolean placed = false;
-				while (!placed) {
-					int row = random.nextInt(10);
-					int col = random.nextInt(10);
-					boolean horizontal = random.nextBoolean();
-					if (canPlaceShip(opponentGrid, row, col, ship.getLength(), horizontal)) {
-						placeShip(opponentGrid, ship, row, col, horizontal);
-						ship.setHorizontal(horizontal);
-						placed = true;
-					}
+		placeShipsRandomly(opponentBoard, opponentFleet, random);
+	}
+
+	/**
+	 * Randomly places opponent's ships on the grid, drawing from the given random
+	 * number generator so that the layout can be reproduced.
+	 *
+	 * @param random The random number generator to use.
+	 */
+	public void placeOpponentShipsRandomly(SplittableRandom random) {
+		placeShipsRandomly(opponentBoard, opponentFleet, random);
+	}
+
+	/**
+	 * Randomly places the player's ships that have not been placed yet, for
+	 * games where a ShotStrategy plays the player's side.
+	 */
+	public void placePlayerShipsRandomly() {
+		placeShipsRandomly(playerBoard, playerFleet, random);
+	}
+
+	/**
+	 * Randomly places the player's ships that have not been placed yet, drawing
+	 * from the given random number generator so that the layout can be
+	 * reproduced.
+	 *
+	 * @param random The random number generator to use.
+	 */
+	public void placePlayerShipsRandomly(SplittableRandom random) {
+		placeShipsRandomly(playerBoard, playerFleet, random);
+	}
+
+	/**
+	 * Randomly places the ships of a fleet that have not been placed yet. Each
+	 * ship is placed uniformly among the placements still free, in bounded time
+	 * however crowded the board is. If the ships placed first leave no room for
+	 * a later one, the ships placed by this call are taken back and the layout
+	 * starts over.
+	 *
+	 * @param board  The board to place the ships on.
+	 * @param fleet  The fleet to place.
+	 * @param random The random number generator to use.
+	 * @throws IllegalStateException If the fleet does not fit on the board.
+	 */
+	private void placeShipsRandomly(BoardModel board, List<ShipModel> fleet, SplittableRandom random) {
+		PlacementGenerator generator = placementGenerator;
+		if (generator == null || generator.getWidth() != board.getWidth()
+				|| generator.getHeight() != board.getHeight()) {
+			generator = new PlacementGenerator(board.getWidth(), board.getHeight());
+			placementGenerator = generator;
+		}
+		if (placedShips.length < fleet.size()) {
+			placedShips = new int[fleet.size()];
+		}
+		int[] placed = placedShips;
+		for (int attempt = 0; attempt < MAX_LAYOUT_ATTEMPTS; attempt++) {
+			int placedCount = 0;
+			boolean stuck = false;
+			for (int i = 0; i < fleet.size() && !stuck; i++) {
+				ShipModel ship = fleet.get(i);
+				if (ship.isPlaced()) {
+					continue;
+				}
+				int placement = generator.choose(board, ship.getLength(), random);
+				if (placement < 0) {
+					stuck = true;
+				} else {
+					placeShip(board, ship, generator.getRow(placement), generator.getColumn(placement),
+							generator.isHorizontal(placement));
+					placed[placedCount++] = i;
 				}
 			}
+			if (!stuck) {
+				return;
+			}
+			for (int i = 0; i < placedCount; i++) {
+				ShipModel ship = fleet.get(placed[i]);
+				CoordinateModel head = ship.getCoordinateHead();
+				board.remove(head.getRow(), head.getColumn(), ship.getLength(), ship.isHorizontal(), ship.getId());
+				ship.reset();
+			}
 		}
+		throw new IllegalStateException("The fleet does not fit on the board");
 	}
 
 	/**
@@ -408,17 +562,131 @@ public class BattleshipModel implements Serializable {
 	 * @param length       The length of the ship to be placed.
 	 * @param isHorizontal True if the ship is to be placed horizontally, false if
 	 *                     vertically.
+	 * @return true if an unplaced ship of that length was placed.
 	 */
-	public void placeOpponentShips(int row, int col, int length, boolean isHorizontal) {
-		for (ShipModel ship : opponentFleet) {
-			if (!ship.isPlaced()) {
-				if (canPlaceShip(opponentGrid, row, col, ship.getLength(), isHorizontal)
-						&& length == ship.getLength()) {
-					placeShip(opponentGrid, ship, row, col, isHorizontal);
-					ship.setHorizontal(isHorizontal);
+	public boolean placeOpponentShips(int row, int col, int length, boolean isHorizontal) {
+		return placeShipOfLength(opponentBoard, opponentFleet, row, col, length, isHorizontal);
+	}
+
+	/**
+	 * Places one of the player's ships on the grid, for games where the player's
+	 * layout arrives from elsewhere.
+	 *
+	 * @param row          The starting row for placing the ship.
+	 * @param col          The starting column for placing the ship.
+	 * @param length       The length of the ship to be placed.
+	 * @param isHorizontal True if the ship is to be placed horizontally, false if
+	 *                     vertically.
+	 * @return true if an unplaced ship of that length was placed.
+	 */
+	public boolean placePlayerShips(int row, int col, int length, boolean isHorizontal) {
+		return placeShipOfLength(playerBoard, playerFleet, row, col, length, isHorizontal);
+	}
+
+	/**
+	 * Places the opponent's whole fleet from a layout received at once.
+	 *
+	 * @param ships Four numbers for each ship in fleet order: its starting row,
+	 *              starting column, length, and 1 if it lies horizontally or 0
+	 *              if vertically.
+	 * @return true if the layout matches the rules and every ship was placed;
+	 *         otherwise nothing is placed.
+	 */
+	public boolean placeOpponentFleet(int[] ships) {
+		return placeFleet(opponentBoard, opponentFleet, ships);
+	}
+
+	/**
+	 * Places the player's whole fleet from a layout received at once, for games
+	 * where the player's layout arrives from elsewhere.
+	 *
+	 * @param ships Four numbers for each ship in fleet order, as in
+	 *              {@link #placeOpponentFleet(int[])}.
+	 * @return true if the layout matches the rules and every ship was placed;
+	 *         otherwise nothing is placed.
+	 */
+	public boolean placePlayerFleet(int[] ships) {
+		return placeFleet(playerBoard, playerFleet, ships);
+	}
+
+	/**
+	 * Retrieves the layout of the player's fleet, to send to the opponent.
+	 *
+	 * @return Four numbers for each ship in fleet order, as taken by
+	 *         {@link #placeOpponentFleet(int[])}.
+	 */
+	public int[] getPlayerLayout() {
+		int[] ships = new int[playerFleet.size() * 4];
+		for (int i = 0; i < playerFleet.size(); i++) {
+			ShipModel ship = playerFleet.get(i);
+			CoordinateModel head = ship.getCoordinateHead();
+			ships[i * 4] = head.getRow();
+			ships[i * 4 + 1] = head.getColumn();
+			ships[i * 4 + 2] = ship.getLength();
+			ships[i * 4 + 3] = ship.isHorizontal() ? 1 : 0;
+		}
+		return ships;
+	}
+
+	/**
+	 * Places a whole fleet from a layout on a board holding none of its ships.
+	 *
+	 * @param board The board to place the ships on.
+	 * @param fleet The fleet to place.
+	 * @param ships Four numbers for each ship in fleet order.
+	 * @return true if every ship was placed; otherwise the ships placed by this
+	 *         call are taken back.
+	 */
+	private boolean placeFleet(BoardModel board, List<ShipModel> fleet, int[] ships) {
+		if (ships.length != fleet.size() * 4) {
+			return false;
+		}
+		for (int i = 0; i < fleet.size(); i++) {
+			ShipModel ship = fleet.get(i);
+			int row = ships[i * 4];
+			int col = ships[i * 4 + 1];
+			boolean horizontal = ships[i * 4 + 3] != 0;
+			if (ship.isPlaced() || ships[i * 4 + 2] != ship.getLength()
+					|| !canPlaceShip(board, row, col, ship.getLength(), horizontal)) {
+				for (int j = 0; j < i; j++) {
+					ShipModel placed = fleet.get(j);
+					CoordinateModel head = placed.getCoordinateHead();
+					board.remove(head.getRow(), head.getColumn(), placed.getLength(), placed.isHorizontal(),
+							placed.getId());
+					placed.reset();
 				}
+				return false;
+			}
+			placeShip(board, ship, row, col, horizontal);
+		}
+		return true;
+	}
+
+	/**
+	 * Places the first unplaced ship of a length from a fleet, if it fits.
+	 *
+	 * @param board        The board to place the ship on.
+	 * @param fleet        The fleet the ship belongs to.
+	 * @param row          The starting row for placing the ship.
+	 * @param col          The starting column for placing the ship.
+	 * @param length       The length of the ship to be placed.
+	 * @param isHorizontal True if the ship is to be placed horizontally, false if
+	 *                     vertically.
+	 * @return true if a ship was placed.
+	 */
+	private boolean placeShipOfLength(BoardModel board, List<ShipModel> fleet, int row, int col, int length,
+			boolean isHorizontal) {
+		if (!canPlaceShip(board, row, col, length, isHorizontal)) {
+			return false;
+		}
+		for (ShipModel ship : fleet) {
+			if (!ship.isPlaced() && length == ship.getLength()) {
+				placeShip(board, ship, row, col, isHorizontal);
+				ship.setHorizontal(isHorizontal);
+				return true;
 			}
 		}
+		return false;
 	}
 
 	/**
@@ -430,73 +698,154 @@ public class BattleshipModel implements Serializable {
 	 *         empty or already fired upon, -1 if the move is invalid.
 	 */
 	public int playerFire(int row, int col) {
-		switch (opponentGrid[row][col]) {
-		case EMPTY:
-			opponentGrid[row][col] = MISS;
-			return MISS;
-		case OCCUPIED:
-			opponentGrid[row][col] = HIT;
-			return HIT;
-		case MISS:
-			return -1;
-		case HIT:
-			return -1;
-		default:
-			return -1;
-		}
-	}
-
-	/**
-	 * Initiates player's firing action at specified row and column.
-	 *
-	 * @param row The row index of the grid cell.
-	 * @param col The column index of the grid cell.
-	 */
-	public void playerFires(int row, int col) {
-		if (row == -1 && col == -1) {
-			controller.getChatController().sendChatMessage(loader.getResourceBundle().getString("game.timeout"));
-			controller.getServerController().sendData(MessageType.MOVE, row + "," + col);
-		} else if (controller.getGameController().playerTurn) {
-			JButton button = view.getGridButtons()[row][col];
-			char columnLabel = (char) ('A' + col); // Convert column index to character label (A-J)
-			controller.getChatController().receiveChatMessage(
-					loader.getResourceBundle().getString("chat.fire") + " " + (row + 1) + columnLabel);
-			int result = playerFire(row, col); // Perform player's firing action
-			switch (result) {
-			case BattleshipModel.HIT:
-				for (ShipModel ship : getOpponentFleet()) {
-					ship.registerHit(row, col);
+		return opponentBoard.fire(row, col);
+	}
+
+	/**
+	 * Fires the player's shot at the opponent's board, registers the hit on the
+	 * struck ship and notifies listeners. If the shot ends the game, the win is
+	 * recorded and listeners are notified of the game over.
+	 *
+	 * @param row The row index of the target cell.
+	 * @param col The column index of the target cell.
+	 * @return The outcome of the shot; INVALID if the cell is off the board or
+	 *         has already been fired upon.
+	 */
+	public ShotResult playerFires(int row, int col) {
+		return resolveShot(true, opponentBoard, opponentFleet, row, col);
+	}
+
+	/**
+	 * Records the player's shot at an opponent whose layout is hidden, with the
+	 * outcome reported by the opponent or by the host or server that resolves
+	 * every shot, and notifies listeners as {@link #playerFires(int, int)} does.
+	 * The game is won once every ship of the opponent's fleet has been reported
+	 * sunk.
+	 *
+	 * @param row    The row index of the target cell.
+	 * @param col    The column index of the target cell.
+	 * @param result The reported outcome: HIT, MISS or SUNK.
+	 * @param shipId The id of the ship reported sunk, or -1.
+	 * @return The outcome recorded; INVALID if the cell is off the board or has
+	 *         already been fired upon, or the game is over.
+	 */
+	public ShotResult recordPlayerShot(int row, int col, ShotResult result, int shipId) {
+		return recordShot(true, opponentBoard, opponentFleet, row, col, result, shipId);
+	}
+
+	/**
+	 * Records the opponent's shot at the player's board with the outcome decided
+	 * by the host or server that resolves every shot, and notifies listeners as
+	 * {@link #opponentFires(int, int)} does. The game is lost once every ship of
+	 * the player's fleet has been reported sunk.
+	 *
+	 * @param row    The row index of the target cell.
+	 * @param col    The column index of the target cell.
+	 * @param result The decided outcome: HIT, MISS or SUNK.
+	 * @param shipId The id of the ship sunk, or -1.
+	 * @return The outcome recorded; INVALID if the cell is off the board or has
+	 *         already been fired upon, or the game is over.
+	 */
+	public ShotResult recordOpponentShot(int row, int col, ShotResult result, int shipId) {
+		return recordShot(false, playerBoard, playerFleet, row, col, result, shipId);
+	}
+
+	/**
+	 * Records a shot whose outcome was decided elsewhere and notifies listeners.
+	 * A board that holds its fleet is fired upon as usual, so its ships keep
+	 * count of their hits; a hidden board is only marked.
+	 *
+	 * @param playerShot true if the player fired, false for the opponent.
+	 * @param board      The board fired upon.
+	 * @param fleet      The fleet of that board.
+	 * @param row        The row index of the target cell.
+	 * @param col        The column index of the target cell.
+	 * @param result     The decided outcome.
+	 * @param shipId     The id of the ship sunk, or -1.
+	 * @return The outcome recorded.
+	 */
+	private ShotResult recordShot(boolean playerShot, BoardModel board, List<ShipModel> fleet, int row, int col,
+			ShotResult result, int shipId) {
+		if (gameOver || result == ShotResult.INVALID || !board.canFire(row, col)) {
+			return ShotResult.INVALID;
+		}
+		ShipModel struck = null;
+		if (board.getShipCount() > 0) {
+			if (board.fire(row, col) == HIT) {
+				int id = board.getShipAt(row, col);
+				if (id >= 0 && id < fleet.size()) {
+					struck = fleet.get(id);
+					struck.registerHit();
 				}
-				button.setIcon(hitIndicator); // Display hit indicator icon on grid button
-				button.setEnabled(false); // Disable button after hitting
-				break;
-			case BattleshipModel.MISS:
-				button.setIcon(missIndicator); // Display miss indicator icon on grid button
-				controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.miss"));
-				button.setEnabled(false); // Disable button after miss
-				break;
-			case -1:
-				controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached.
-				return;
-			default:
-				controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached.
-				return;
 			}
-			if (controller.getServerController() != null) {
-				controller.getServerController().sendData(MessageType.MOVE, row + "," + col);
+		} else {
+			board.mark(row, col, result != ShotResult.MISS);
+			if (result == ShotResult.SUNK && shipId >= 0 && shipId < fleet.size()) {
+				struck = fleet.get(shipId);
+				struck.setHits(struck.getLength());
 			}
 		}
-		controller.getGameController().playerTurn = false; // Switch turn to opponent after player's action
-		view.updateOpponentInfo(getOpponentFleet());
-		checkGameOver(); // Check if the game is over after each turn
-		if (!isGameOver()) {
-			view.updateTurnLabel();
-			if (controller.getServerController() == null) {
-				opponentFires(-1, -1); // Opponent continues firing if game is not over
-			} else {
-				controller.getGameController().opponentFires();
+		notifyShot(playerShot, row, col, result, struck, result == ShotResult.SUNK && isFleetSunk(fleet));
+		return result;
+	}
+
+	/**
+	 * Checks the opponent's layout, revealed at the end of a game in which it
+	 * was hidden, against the outcomes the opponent reported, and shows it on
+	 * the opponent's board if they agree.
+	 *
+	 * @param ships Four numbers for each ship in fleet order, as in
+	 *              {@link #placeOpponentFleet(int[])}.
+	 * @return true if the layout is valid and every reported HIT, MISS and
+	 *         SUNK matches it.
+	 */
+	public boolean revealOpponentFleet(int[] ships) {
+		if (ships.length != opponentFleet.size() * 4) {
+			return false;
+		}
+		BoardModel layout = new BoardModel(opponentBoard.getWidth(), opponentBoard.getHeight());
+		for (int i = 0; i < opponentFleet.size(); i++) {
+			boolean horizontal = ships[i * 4 + 3] != 0;
+			int length = opponentFleet.get(i).getLength();
+			if (ships[i * 4 + 2] != length || !layout.canPlace(ships[i * 4], ships[i * 4 + 1], length, horizontal)) {
+				return false;
+			}
+			layout.place(ships[i * 4], ships[i * 4 + 1], length, horizontal, i);
+		}
+		for (int row = 0; row < layout.getHeight(); row++) {
+			for (int col = 0; col < layout.getWidth(); col++) {
+				int cell = opponentBoard.getCell(row, col);
+				if (cell == HIT || cell == MISS) {
+					if ((layout.getCell(row, col) == OCCUPIED) != (cell == HIT)) {
+						return false;
+					}
+					layout.fire(row, col);
+				}
+			}
+		}
+		for (int i = 0; i < opponentFleet.size(); i++) {
+			if (layout.isSunk(i) != opponentFleet.get(i).isSunk()) {
+				return false;
 			}
 		}
+		for (int i = 0; i < opponentFleet.size(); i++) {
+			ShipModel ship = opponentFleet.get(i);
+			int hits = ship.getHits();
+			placeShip(opponentBoard, ship, ships[i * 4], ships[i * 4 + 1], ships[i * 4 + 3] != 0);
+			ship.setHits(hits);
+		}
+		return true;
+	}
+
+	/**
+	 * Asks the player's strategy where to fire next.
+	 *
+	 * @return The index {@code row * width + col} of the target cell on the
+	 *         opponent's board, or -1 if no strategy plays the player's side or
+	 *         every cell has been fired upon.
+	 */
+	public int nextPlayerShot() {
+		return playerStrategy == null ? -1 : playerStrategy.nextShot();
 	}
 
 	/**
@@ -508,127 +857,170 @@ public class BattleshipModel implements Serializable {
 	 *         or already fired upon, -1 if the move is invalid.
 	 */
 	public int opponentFire(int row, int col) {
-		switch (playerGrid[row][col]) {
-		case EMPTY:
-			playerGrid[row][col] = MISS;
-			return MISS;
-		case OCCUPIED:
-			playerGrid[row][col] = HIT;
-			return HIT;
-		case MISS:
-			return -1;
-		case HIT:
-			return -1;
-		default:
-			return -1;
-		}
-	}
-
-	/**
-	 * Initiates opponent's firing action randomly.
-	 * 
-	 * @param row The grid row.
-	 * @param col The grid column.
-	 */
-	public void opponentFires(int row, int col) {
-		if (controller.getGameController().isShowingPlayerGrid()) {
-			controller.getGameController().swapGridView();
-		}
-		controller.getGameController().disableButtons(); // Disable player's grid buttons during opponent's turn
-		if (controller.getServerController() == null) {
-			Random random = new Random();
-			boolean validMove = false;
-			while (!validMove) {
-				int r = random.nextInt(10);
-				int c = random.nextInt(10);
-				int result = opponentFire(r, c); // Perform opponent's firing action
-				if (result != -1) {
-					validMove = true; // Valid move if opponent hits a valid target
-					char columnLabel = (char) ('A' + c); // Convert column index to character label (A-J)
-					controller.getChatController().receiveChatMessage(
-							loader.getResourceBundle().getString("chat.opponent") + " " + (r + 1) + columnLabel);
-					switch (result) {
-					case BattleshipModel.HIT:
-						for (ShipModel ship : getPlayerFleet()) {
-							ship.registerHit(r, c);
-						}
-						break;
-					case BattleshipModel.MISS:
-						controller.getChatController()
-								.receiveChatMessage(loader.getResourceBundle().getString("chat.miss"));
-						break;
-					case -1:
-						controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached
-						return;
-					default:
-						controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached
-						return;
-					}
-				}
-			}
-			controller.getGameController().playerTurn = true; // Switch turn back to player after opponent's action
-			view.updatePlayerInfo(getPlayerFleet());
-			checkGameOver(); // Check if the game is over after each turn
-			if (!isGameOver()) {
-				view.updateTurnLabel();
-				controller.getGameController().playerFires(); // Player continues firing if game is not over
-				return;
+		return playerBoard.fire(row, col);
+	}
+
+	/**
+	 * Asks the computer opponent's strategy where to fire next.
+	 *
+	 * @return The index {@code row * width + col} of the target cell on the
+	 *         player's board, or -1 if every cell has been fired upon.
+	 */
+	public int nextOpponentShot() {
+		if (opponentStrategy == null) {
+			resetOpponentStrategy();
+		}
+		return opponentStrategy.nextShot();
+	}
+
+	/**
+	 * Fires the opponent's shot at the player's board, registers the hit on the
+	 * struck ship and notifies listeners. If the shot ends the game, the loss is
+	 * recorded and listeners are notified of the game over.
+	 *
+	 * @param row The row index of the target cell.
+	 * @param col The column index of the target cell.
+	 * @return The outcome of the shot; INVALID if the cell is off the board or
+	 *         has already been fired upon.
+	 */
+	public ShotResult opponentFires(int row, int col) {
+		return resolveShot(false, playerBoard, playerFleet, row, col);
+	}
+
+	/**
+	 * Resolves a shot against a board and fleet and notifies listeners.
+	 *
+	 * @param playerShot true if the player is firing, false for the opponent.
+	 * @param board      The board being fired upon.
+	 * @param fleet      The fleet placed on that board.
+	 * @param row        The row index of the target cell.
+	 * @param col        The column index of the target cell.
+	 * @return The outcome of the shot.
+	 */
+	private ShotResult resolveShot(boolean playerShot, BoardModel board, List<ShipModel> fleet, int row, int col) {
+		if (gameOver || !board.canFire(row, col)) {
+			return ShotResult.INVALID;
+		}
+		ShotResult result;
+		ShipModel struck = null;
+		if (board.fire(row, col) == HIT) {
+			int shipId = board.getShipAt(row, col);
+			if (shipId >= 0 && shipId < fleet.size()) {
+				struck = fleet.get(shipId);
+				struck.registerHit();
 			}
+			result = board.isSunk(shipId) ? ShotResult.SUNK : ShotResult.HIT;
 		} else {
-			if (row == -1 && col == -1) {
-				// do nothing
+			result = ShotResult.MISS;
+		}
+		notifyShot(playerShot, row, col, result, struck, result != ShotResult.MISS && board.isCleared());
+		return result;
+	}
+
+	/**
+	 * Tells the strategy and listeners about a resolved shot, and ends the game
+	 * if it sank the last ship of a fleet.
+	 *
+	 * @param playerShot true if the player fired, false for the opponent.
+	 * @param row        The row index of the target cell.
+	 * @param col        The column index of the target cell.
+	 * @param result     The outcome of the shot.
+	 * @param struck     The ship that was struck, or null.
+	 * @param cleared    true if the shot sank the last ship of the fleet.
+	 */
+	private void notifyShot(boolean playerShot, int row, int col, ShotResult result, ShipModel struck,
+			boolean cleared) {
+		ShotStrategy strategy = playerShot ? playerStrategy : opponentStrategy;
+		if (strategy != null) {
+			strategy.shotResolved(row, col, result, struck);
+		}
+		GameListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			current[i].shotFired(playerShot, row, col, result, struck);
+		}
+		if (cleared) {
+			gameOver = true;
+			if (playerShot) {
+				setWins(1);
 			} else {
-				int result = opponentFire(row, col); // Perform opponent's firing action
-				if (result != -1) {
-					char columnLabel = (char) ('A' + col); // Convert column index to character label (A-J)
-					controller.getChatController().receiveChatMessage(controller.getServerController().getOpponentName()
-							+ " " + loader.getResourceBundle().getString("chat.name") + " " + (row + 1) + columnLabel);
-					switch (result) {
-					case BattleshipModel.HIT:
-						for (ShipModel ship : getPlayerFleet()) {
-							ship.registerHit(row, col);
-						}
-						break;
-					case BattleshipModel.MISS:
-						controller.getChatController()
-								.receiveChatMessage(loader.getResourceBundle().getString("chat.miss"));
-						break;
-					case -1:
-						controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached
-						return;
-					default:
-						controller.getChatController().receiveChatMessage("Invalid move."); // Should never be reached
-						return;
-					}
-				}
+				setLoses(1);
 			}
-			controller.getGameController().playerTurn = true; // Switch turn back to player after opponent's action
-			view.updatePlayerInfo(getPlayerFleet());
-			checkGameOver(); // Check if the game is over after each turn
-			if (!isGameOver()) {
-				view.updateTurnLabel();
-				controller.getGameController().playerFires(); // Player continues firing if game is not over
-				return;
+			for (int i = 0; i < current.length; i++) {
+				current[i].gameOver(playerShot);
 			}
 		}
 	}
 
 	/**
-	 * Resets the game model by initializing new grids and fleets for both the
-	 * player and opponent. Clears existing grids and fleets and initializes them
-	 * with default values.
+	 * Resets the game model by clearing both boards and resetting the fleets of
+	 * the player and opponent. Ships are reused when the fleets still match the
+	 * rules, so starting a new game creates no garbage for them.
 	 */
 	public void resetModel() {
-		playerGrid = new int[10][10];
-		opponentGrid = new int[10][10];
+		playerBoard.clear();
+		opponentBoard.clear();
 
-		playerFleet = new ArrayList<>();
-		opponentFleet = new ArrayList<>();
+		playerFleet = resetFleet(playerFleet);
+		opponentFleet = resetFleet(opponentFleet);
+		resetOpponentStrategy();
+		resetPlayerStrategy();
 
-		initializeGrid(playerGrid);
-		initializeGrid(opponentGrid);
+		gameOver = false;
+	}
 
-		initializeFleet(playerFleet);
-		initializeFleet(opponentFleet);
+	/**
+	 * Prepares the computer opponent's strategy for a new game against the
+	 * player's board and fleet, creating it for the current difficulty if needed.
+	 */
+	private void resetOpponentStrategy() {
+		if (opponentStrategy == null) {
+			opponentStrategy = difficulty.createStrategy(random.split());
+		}
+		opponentStrategy.reset(playerBoard.getWidth(), playerBoard.getHeight(), shipLengths(playerFleet));
+	}
+
+	/**
+	 * Prepares the player's strategy, if any, for a new game against the
+	 * opponent's board and fleet.
+	 */
+	private void resetPlayerStrategy() {
+		if (playerStrategy == null) {
+			return;
+		}
+		playerStrategy.reset(opponentBoard.getWidth(), opponentBoard.getHeight(), shipLengths(opponentFleet));
+	}
+
+	/**
+	 * Lists the lengths of the ships of a fleet, in an array reused from one
+	 * call to the next.
+	 *
+	 * @param fleet The fleet.
+	 * @return The lengths, valid until the next call.
+	 */
+	private int[] shipLengths(List<ShipModel> fleet) {
+		if (shipLengths.length != fleet.size()) {
+			shipLengths = new int[fleet.size()];
+		}
+		for (int i = 0; i < shipLengths.length; i++) {
+			shipLengths[i] = fleet.get(i).getLength();
+		}
+		return shipLengths;
+	}
+
+	/**
+	 * Restores the transient listener list and random number generator after
+	 * deserialization, and the standard rules for games saved without rules.
+	 *
+	 * @return This model.
+	 */
+	private Object readResolve() {
+		listeners = new GameListener[0];
+		random = new SplittableRandom();
+		placedShips = new int[0];
+		shipLengths = new int[0];
+		if (rules == null) {
+			rules = GameRules.STANDARD;
+		}
+		return this;
 	}
 }
@@ -0,0 +1,470 @@
+package battleship.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The BoardModel class represents one side's grid as packed bitboards. Each
+ * cell is a single bit at index {@code row * width + col}, and the occupied,
+ * hit and miss states are kept in separate {@code long[]} masks so that
+ * placement checks, firing and game-over checks are word operations rather
+ * than per-cell branches. A 10x10 board fits in two words per mask.
+ *
+ * <p>
+ * The board also indexes which ship occupies each cell and how many intact
+ * cells each ship has left, so attributing a hit, detecting a sunk ship and
+ * checking for game over are all constant time.
+ * </p>
+ */
+public class BoardModel implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// Constants for grid states
+	public static final int EMPTY = 0;
+	public static final int OCCUPIED = 1;
+	public static final int MISS = 2;
+	public static final int HIT = 3;
+
+	private final int width;
+	private final int height;
+
+	private final long[] occupied;
+	private final long[] hit;
+	private final long[] miss;
+
+	private final short[] shipAt;
+	private int[] remaining = new int[0];
+
+	private int occupiedCount;
+	private int hitCount;
+	private int shipCount;
+	private int sunkCount;
+
+	private transient int[][] grid;
+	private transient boolean gridDirty = true;
+
+	/**
+	 * Constructs an empty BoardModel with the specified dimensions.
+	 *
+	 * @param width  The number of columns on the board.
+	 * @param height The number of rows on the board.
+	 */
+	public BoardModel(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int words = (width * height + 63) >>> 6;
+		this.occupied = new long[words];
+		this.hit = new long[words];
+		this.miss = new long[words];
+		this.shipAt = new short[width * height];
+	}
+
+	/**
+	 * Retrieves the number of columns on the board.
+	 *
+	 * @return The board width.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Retrieves the number of rows on the board.
+	 *
+	 * @return The board height.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Clears every mask, returning the board to all EMPTY cells.
+	 */
+	public void clear() {
+		Arrays.fill(occupied, 0L);
+		Arrays.fill(hit, 0L);
+		Arrays.fill(miss, 0L);
+		Arrays.fill(shipAt, (short) 0);
+		Arrays.fill(remaining, -1);
+		occupiedCount = 0;
+		hitCount = 0;
+		shipCount = 0;
+		sunkCount = 0;
+		gridDirty = true;
+	}
+
+	/**
+	 * Retrieves the state of a single cell.
+	 *
+	 * @param row The row index of the cell.
+	 * @param col The column index of the cell.
+	 * @return EMPTY, OCCUPIED, MISS or HIT.
+	 */
+	public int getCell(int row, int col) {
+		int index = row * width + col;
+		if (test(hit, index)) {
+			return HIT;
+		}
+		if (test(miss, index)) {
+			return MISS;
+		}
+		return test(occupied, index) ? OCCUPIED : EMPTY;
+	}
+
+	/**
+	 * Checks if a ship can be placed at the specified position.
+	 *
+	 * @param row        The starting row index.
+	 * @param col        The starting column index.
+	 * @param length     The length of the ship.
+	 * @param horizontal Flag indicating if the ship is placed horizontally or
+	 *                   vertically.
+	 * @return true if the ship fits on the board and overlaps no other ship.
+	 */
+	public boolean canPlace(int row, int col, int length, boolean horizontal) {
+		if (row < 0 || col < 0 || length <= 0) {
+			return false;
+		}
+		if (horizontal) {
+			if (row >= height || col + length > width) {
+				return false;
+			}
+			return isRangeClear(occupied, row * width + col, length);
+		}
+		if (col >= width || row + length > height) {
+			return false;
+		}
+		for (int i = 0, index = row * width + col; i < length; i++, index += width) {
+			if (test(occupied, index)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Marks the cells of a ship as OCCUPIED. The caller is expected to have
+	 * checked the placement with {@link #canPlace(int, int, int, boolean)}.
+	 *
+	 * @param row        The starting row index.
+	 * @param col        The starting column index.
+	 * @param length     The length of the ship.
+	 * @param horizontal Flag indicating if the ship is placed horizontally or
+	 *                   vertically.
+	 * @param shipId     The id of the ship within its fleet.
+	 */
+	public void place(int row, int col, int length, boolean horizontal, int shipId) {
+		int step = horizontal ? 1 : width;
+		if (horizontal) {
+			setRange(occupied, row * width + col, length);
+		} else {
+			for (int i = 0, index = row * width + col; i < length; i++, index += width) {
+				occupied[index >>> 6] |= 1L << index;
+			}
+		}
+		for (int i = 0, index = row * width + col; i < length; i++, index += step) {
+			shipAt[index] = (short) (shipId + 1);
+		}
+		if (shipId >= remaining.length) {
+			int previous = remaining.length;
+			remaining = Arrays.copyOf(remaining, Math.max(shipId + 1, previous * 2));
+			Arrays.fill(remaining, previous, remaining.length, -1);
+		}
+		remaining[shipId] = length;
+		occupiedCount += length;
+		shipCount++;
+		gridDirty = true;
+	}
+
+	/**
+	 * Removes a ship placed with
+	 * {@link #place(int, int, int, boolean, int)} before any shot has been fired
+	 * at it.
+	 *
+	 * @param row        The starting row index.
+	 * @param col        The starting column index.
+	 * @param length     The length of the ship.
+	 * @param horizontal Flag indicating if the ship is placed horizontally or
+	 *                   vertically.
+	 * @param shipId     The id of the ship within its fleet.
+	 */
+	public void remove(int row, int col, int length, boolean horizontal, int shipId) {
+		int step = horizontal ? 1 : width;
+		for (int i = 0, index = row * width + col; i < length; i++, index += step) {
+			occupied[index >>> 6] &= ~(1L << index);
+			shipAt[index] = 0;
+		}
+		remaining[shipId] = -1;
+		occupiedCount -= length;
+		shipCount--;
+		gridDirty = true;
+	}
+
+	/**
+	 * Checks if a cell is on the board and has not been fired upon yet.
+	 *
+	 * @param row The row index of the cell.
+	 * @param col The column index of the cell.
+	 * @return true if the cell is a valid target.
+	 */
+	public boolean canFire(int row, int col) {
+		if (row < 0 || col < 0 || row >= height || col >= width) {
+			return false;
+		}
+		int index = row * width + col;
+		return !test(hit, index) && !test(miss, index);
+	}
+
+	/**
+	 * Fires at a cell on this board.
+	 *
+	 * @param row The row index of the target cell.
+	 * @param col The column index of the target cell.
+	 * @return HIT if the cell holds a ship, MISS if it is empty, -1 if the cell
+	 *         has already been fired upon.
+	 */
+	public int fire(int row, int col) {
+		int index = row * width + col;
+		int word = index >>> 6;
+		long bit = 1L << index;
+		if (((hit[word] | miss[word]) & bit) != 0) {
+			return -1;
+		}
+		gridDirty = true;
+		if ((occupied[word] & bit) != 0) {
+			hit[word] |= bit;
+			hitCount++;
+			int shipId = shipAt[index] - 1;
+			if (shipId >= 0 && --remaining[shipId] == 0) {
+				sunkCount++;
+			}
+			return HIT;
+		}
+		miss[word] |= bit;
+		return MISS;
+	}
+
+	/**
+	 * Marks a cell as fired upon with an outcome decided elsewhere, for a board
+	 * whose ships are hidden from this side. The caller is expected to have
+	 * checked the cell with {@link #canFire(int, int)}.
+	 *
+	 * @param row The row index of the target cell.
+	 * @param col The column index of the target cell.
+	 * @param hit true to mark the cell HIT, false to mark it MISS.
+	 */
+	public void mark(int row, int col, boolean hit) {
+		int index = row * width + col;
+		long bit = 1L << index;
+		if (hit) {
+			this.hit[index >>> 6] |= bit;
+		} else {
+			miss[index >>> 6] |= bit;
+		}
+		gridDirty = true;
+	}
+
+	/**
+	 * Retrieves the id of the ship occupying a cell.
+	 *
+	 * @param row The row index of the cell.
+	 * @param col The column index of the cell.
+	 * @return The ship id, or -1 if no ship occupies the cell.
+	 */
+	public int getShipAt(int row, int col) {
+		return shipAt[row * width + col] - 1;
+	}
+
+	/**
+	 * Checks if every cell of a ship has been hit.
+	 *
+	 * @param shipId The id of the ship.
+	 * @return true if the ship is sunk.
+	 */
+	public boolean isSunk(int shipId) {
+		return shipId >= 0 && shipId < remaining.length && remaining[shipId] == 0;
+	}
+
+	/**
+	 * Retrieves the number of ships placed on this board.
+	 *
+	 * @return The number of ships placed.
+	 */
+	public int getShipCount() {
+		return shipCount;
+	}
+
+	/**
+	 * Retrieves the number of ships on this board that have been sunk.
+	 *
+	 * @return The number of sunk ships.
+	 */
+	public int getSunkCount() {
+		return sunkCount;
+	}
+
+	/**
+	 * Checks if every occupied cell on this board has been hit.
+	 *
+	 * @return true if at least one ship was placed and all of its cells are hit.
+	 */
+	public boolean isCleared() {
+		return occupiedCount > 0 && hitCount == occupiedCount;
+	}
+
+	/**
+	 * Returns a read-only {@code int[][]} view of the board, indexed
+	 * {@code [row][col]}, holding EMPTY, OCCUPIED, MISS or HIT. The array is
+	 * cached and only rebuilt after the board changes, so callers must not modify
+	 * it.
+	 *
+	 * @return The grid view of this board.
+	 */
+	public int[][] toGrid() {
+		if (grid == null) {
+			grid = new int[height][width];
+			gridDirty = true;
+		}
+		if (gridDirty) {
+			for (int row = 0; row < height; row++) {
+				for (int col = 0; col < width; col++) {
+					grid[row][col] = getCell(row, col);
+				}
+			}
+			gridDirty = false;
+		}
+		return grid;
+	}
+
+	/**
+	 * Replaces the contents of the board with the given grid. The grid does not
+	 * say which ship is where, so the ships are then indexed with
+	 * {@link #index(int, int, int, boolean, int)}.
+	 *
+	 * @param source The grid of EMPTY, OCCUPIED, MISS or HIT values to load.
+	 */
+	public void loadGrid(int[][] source) {
+		clear();
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				int index = row * width + col;
+				int word = index >>> 6;
+				long bit = 1L << index;
+				switch (source[row][col]) {
+				case OCCUPIED:
+					occupied[word] |= bit;
+					occupiedCount++;
+					break;
+				case HIT:
+					occupied[word] |= bit;
+					hit[word] |= bit;
+					occupiedCount++;
+					hitCount++;
+					break;
+				case MISS:
+					miss[word] |= bit;
+					break;
+				default:
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indexes a ship over cells already loaded with {@link #loadGrid(int[][])},
+	 * counting the hits it has taken, so later hits on it are attributed and
+	 * its sinking is detected.
+	 *
+	 * @param row        The starting row index.
+	 * @param col        The starting column index.
+	 * @param length     The length of the ship.
+	 * @param horizontal Flag indicating if the ship lies horizontally or
+	 *                   vertically.
+	 * @param shipId     The id of the ship within its fleet.
+	 */
+	public void index(int row, int col, int length, boolean horizontal, int shipId) {
+		int step = horizontal ? 1 : width;
+		int intact = length;
+		for (int i = 0, index = row * width + col; i < length; i++, index += step) {
+			shipAt[index] = (short) (shipId + 1);
+			if (test(hit, index)) {
+				intact--;
+			}
+		}
+		if (shipId >= remaining.length) {
+			int previous = remaining.length;
+			remaining = Arrays.copyOf(remaining, Math.max(shipId + 1, previous * 2));
+			Arrays.fill(remaining, previous, remaining.length, -1);
+		}
+		remaining[shipId] = intact;
+		shipCount++;
+		if (intact == 0) {
+			sunkCount++;
+		}
+	}
+
+	/**
+	 * Tests a single bit of a mask.
+	 *
+	 * @param mask  The mask to test.
+	 * @param index The bit index.
+	 * @return true if the bit is set.
+	 */
+	private static boolean test(long[] mask, int index) {
+		return (mask[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Checks that a contiguous run of bits is clear in a mask.
+	 *
+	 * @param mask   The mask to check.
+	 * @param from   The index of the first bit.
+	 * @param length The number of bits in the run.
+	 * @return true if none of the bits are set.
+	 */
+	private static boolean isRangeClear(long[] mask, int from, int length) {
+		int to = from + length - 1;
+		int fromWord = from >>> 6;
+		int toWord = to >>> 6;
+		long first = -1L << from;
+		long last = -1L >>> (63 - (to & 63));
+		if (fromWord == toWord) {
+			return (mask[fromWord] & first & last) == 0;
+		}
+		if ((mask[fromWord] & first) != 0 || (mask[toWord] & last) != 0) {
+			return false;
+		}
+		for (int word = fromWord + 1; word < toWord; word++) {
+			if (mask[word] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets a contiguous run of bits in a mask.
+	 *
+	 * @param mask   The mask to modify.
+	 * @param from   The index of the first bit.
+	 * @param length The number of bits in the run.
+	 */
+	private static void setRange(long[] mask, int from, int length) {
+		int to = from + length - 1;
+		int fromWord = from >>> 6;
+		int toWord = to >>> 6;
+		long first = -1L << from;
+		long last = -1L >>> (63 - (to & 63));
+		if (fromWord == toWord) {
+			mask[fromWord] |= first & last;
+			return;
+		}
+		mask[fromWord] |= first;
+		for (int word = fromWord + 1; word < toWord; word++) {
+			mask[word] = -1L;
+		}
+		mask[toWord] |= last;
+	}
+}
@@ -1,16 +1,30 @@
 package battleship.model;
 
 /**
- * Represents a coordinate in a two-dimensional space.
+ * Represents a coordinate in a two-dimensional space. Coordinates are
+ * immutable, and those that fit on a board are shared: {@link #of(int, int)}
+ * returns the same instance for the same cell every time, so looking up a
+ * coordinate creates no garbage.
+ *
+ * <p>
+ * Where even a shared object is too much, a coordinate can be packed into a
+ * single {@code int} with {@link #pack(int, int)} and read back with
+ * {@link #packedRow(int)} and {@link #packedColumn(int)}.
+ * </p>
  */
-public class CoordinateModel {
-	private int column;
-	private int row;
+public final class CoordinateModel {
+
+	// Shared instances for every cell of the largest board, created on first use
+	private static final CoordinateModel[] TABLE = new CoordinateModel[GameRules.MAX_SIZE * GameRules.MAX_SIZE];
+
+	private final int column;
+	private final int row;
 
 	/**
-	 * Constructs a CoordinateModel with the specified row and column.
+	 * Constructs a CoordinateModel with the specified row and column. Prefer
+	 * {@link #of(int, int)}, which reuses shared instances.
 	 *
-	 * @param row The row index of the coordinate.
+	 * @param row    The row index of the coordinate.
 	 * @param column The column index of the coordinate.
 	 */
 	public CoordinateModel(int row, int column) {
@@ -18,6 +32,59 @@ public class CoordinateModel {
 		this.column = column;
 	}
 
+	/**
+	 * Retrieves the coordinate for the specified row and column. Coordinates on a
+	 * board of up to {@link GameRules#MAX_SIZE} cells on each side are shared.
+	 *
+	 * @param row    The row index of the coordinate.
+	 * @param column The column index of the coordinate.
+	 * @return The coordinate.
+	 */
+	public static CoordinateModel of(int row, int column) {
+		if (row < 0 || column < 0 || row >= GameRules.MAX_SIZE || column >= GameRules.MAX_SIZE) {
+			return new CoordinateModel(row, column);
+		}
+		int index = row * GameRules.MAX_SIZE + column;
+		CoordinateModel coordinate = TABLE[index];
+		if (coordinate == null) {
+			// Racing threads may both create one; either is correct as fields are final
+			coordinate = new CoordinateModel(row, column);
+			TABLE[index] = coordinate;
+		}
+		return coordinate;
+	}
+
+	/**
+	 * Packs a row and column into a single int.
+	 *
+	 * @param row    The row index, between 0 and 65535.
+	 * @param column The column index, between 0 and 65535.
+	 * @return The packed coordinate.
+	 */
+	public static int pack(int row, int column) {
+		return (row << 16) | column;
+	}
+
+	/**
+	 * Retrieves the row index of a packed coordinate.
+	 *
+	 * @param packed The packed coordinate.
+	 * @return The row index.
+	 */
+	public static int packedRow(int packed) {
+		return packed >>> 16;
+	}
+
+	/**
+	 * Retrieves the column index of a packed coordinate.
+	 *
+	 * @param packed The packed coordinate.
+	 * @return The column index.
+	 */
+	public static int packedColumn(int packed) {
+		return packed & 0xFFFF;
+	}
+
 	/**
 	 * Gets the column index of the coordinate.
 	 *
@@ -37,20 +104,33 @@ public class CoordinateModel {
 	}
 
 	/**
-	 * Sets the column index of the coordinate.
+	 * Packs this coordinate into a single int.
 	 *
-	 * @param col The new column index.
+	 * @return The packed coordinate.
 	 */
-	public void setColumn(int column) {
-		this.column = column;
+	public int toPacked() {
+		return pack(row, column);
 	}
 
-	/**
-	 * Sets the row index of the coordinate.
-	 *
-	 * @param row The new row index.
-	 */
-	public void setRow(int row) {
-		this.row = row;
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CoordinateModel)) {
+			return false;
+		}
+		CoordinateModel coordinate = (CoordinateModel) other;
+		return row == coordinate.row && column == coordinate.column;
+	}
+
+	@Override
+	public int hashCode() {
+		return pack(row, column);
+	}
+
+	@Override
+	public String toString() {
+		return "(" + row + ", " + column + ")";
 	}
 }
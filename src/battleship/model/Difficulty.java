@@ -0,0 +1,52 @@
+package battleship.model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Enum to define the difficulty levels of the computer opponent. Each level
+ * creates the ShotStrategy the opponent fires with.
+ */
+public enum Difficulty {
+	/**
+	 * Fires at random cells.
+	 */
+	EASY,
+	/**
+	 * Fires at the cell most likely to hold a ship.
+	 */
+	NORMAL,
+	/**
+	 * Fires at the cell covered most often by sampled fleet layouts, using every
+	 * core of the common ForkJoinPool.
+	 */
+	HARD;
+
+	/**
+	 * Creates a new ShotStrategy for this difficulty level.
+	 *
+	 * @param random The random number generator the strategy should use.
+	 * @return A new ShotStrategy.
+	 */
+	public ShotStrategy createStrategy(SplittableRandom random) {
+		switch (this) {
+		case EASY:
+			return new RandomShotStrategy(random);
+		case HARD:
+			return new MonteCarloShotStrategy(random, ForkJoinPool.commonPool(),
+					MonteCarloShotStrategy.DEFAULT_BUDGET_MILLIS);
+		case NORMAL:
+		default:
+			return new ProbabilityShotStrategy(random);
+		}
+	}
+
+	/**
+	 * Retrieves the localization key for the name of this difficulty level.
+	 *
+	 * @return The resource bundle key.
+	 */
+	public String getKey() {
+		return "difficulty." + name().toLowerCase();
+	}
+}
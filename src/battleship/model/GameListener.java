@@ -0,0 +1,29 @@
+package battleship.model;
+
+/**
+ * The GameListener interface receives events from a {@link BattleshipModel}.
+ * Listeners are called on the thread that fired the shot, so implementations
+ * that touch Swing components are responsible for their own threading.
+ */
+public interface GameListener {
+
+	/**
+	 * Called after a shot has been resolved against a board.
+	 *
+	 * @param playerShot true if the player fired at the opponent's board, false
+	 *                   if the opponent fired at the player's board.
+	 * @param row        The row index of the target cell.
+	 * @param col        The column index of the target cell.
+	 * @param result     The outcome of the shot. Never INVALID.
+	 * @param ship       The ship that was struck, or null on a MISS.
+	 */
+	void shotFired(boolean playerShot, int row, int col, ShotResult result, ShipModel ship);
+
+	/**
+	 * Called once when a shot sinks the last ship of either fleet.
+	 *
+	 * @param playerWon true if the opponent's fleet was sunk, false if the
+	 *                  player's fleet was sunk.
+	 */
+	void gameOver(boolean playerWon);
+}
@@ -0,0 +1,138 @@
+package battleship.model;
+
+import java.io.Serializable;
+
+/**
+ * The GameRules class holds the configuration of a game: the dimensions of the
+ * boards and the names and lengths of the ships in each fleet. Boards can be up
+ * to {@link #MAX_SIZE} cells on each side. Rules are immutable, so one instance
+ * can be shared by any number of models.
+ */
+public class GameRules implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The largest number of rows or columns a board can have.
+	 */
+	public static final int MAX_SIZE = 100;
+
+	/**
+	 * The classic rules: a 10x10 board with an aircraft carrier, a battleship, a
+	 * cruiser, a destroyer and a submarine.
+	 */
+	public static final GameRules STANDARD = new GameRules(10, 10,
+			new String[] { "aircraft", "battleship", "cruiser", "destroyer", "submarine" },
+			new int[] { 5, 4, 3, 3, 2 });
+
+	private final int width;
+	private final int height;
+	private final String[] shipNames;
+	private final int[] shipLengths;
+
+	/**
+	 * Constructs GameRules with the specified board dimensions and fleet.
+	 *
+	 * @param width       The number of columns on each board.
+	 * @param height      The number of rows on each board.
+	 * @param shipNames   The name of each ship in the fleet.
+	 * @param shipLengths The length of each ship in the fleet.
+	 * @throws IllegalArgumentException If a dimension is out of range, the names
+	 *                                  and lengths do not match, a ship cannot fit
+	 *                                  on the board or the fleet has more cells
+	 *                                  than the board.
+	 */
+	public GameRules(int width, int height, String[] shipNames, int[] shipLengths) {
+		if (width < 1 || height < 1 || width > MAX_SIZE || height > MAX_SIZE) {
+			throw new IllegalArgumentException("Board dimensions must be between 1 and " + MAX_SIZE);
+		}
+		if (shipNames.length != shipLengths.length || shipNames.length == 0) {
+			throw new IllegalArgumentException("Every ship needs a name and a length");
+		}
+		int cells = 0;
+		for (int length : shipLengths) {
+			if (length < 1 || length > Math.max(width, height)) {
+				throw new IllegalArgumentException("A ship of length " + length + " does not fit on the board");
+			}
+			cells += length;
+		}
+		if (cells > width * height) {
+			throw new IllegalArgumentException("The fleet has more cells than the board");
+		}
+		this.width = width;
+		this.height = height;
+		this.shipNames = shipNames.clone();
+		this.shipLengths = shipLengths.clone();
+	}
+
+	/**
+	 * Retrieves the number of columns on each board.
+	 *
+	 * @return The board width.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Retrieves the number of rows on each board.
+	 *
+	 * @return The board height.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Retrieves the number of ships in each fleet.
+	 *
+	 * @return The number of ships.
+	 */
+	public int getShipCount() {
+		return shipLengths.length;
+	}
+
+	/**
+	 * Retrieves the name of a ship in the fleet.
+	 *
+	 * @param index The index of the ship.
+	 * @return The name of the ship.
+	 */
+	public String getShipName(int index) {
+		return shipNames[index];
+	}
+
+	/**
+	 * Retrieves the length of a ship in the fleet.
+	 *
+	 * @param index The index of the ship.
+	 * @return The length of the ship.
+	 */
+	public int getShipLength(int index) {
+		return shipLengths[index];
+	}
+
+	/**
+	 * Retrieves the lengths of every ship in the fleet.
+	 *
+	 * @return A copy of the ship lengths.
+	 */
+	public int[] getShipLengths() {
+		return shipLengths.clone();
+	}
+
+	/**
+	 * Retrieves the label of a column as shown on the board: A to Z, then AA,
+	 * AB and so on.
+	 *
+	 * @param col The column index.
+	 * @return The column label.
+	 */
+	public static String getColumnLabel(int col) {
+		StringBuilder label = new StringBuilder(2);
+		for (int n = col + 1; n > 0; n = (n - 1) / 26) {
+			label.insert(0, (char) ('A' + (n - 1) % 26));
+		}
+		return label.toString();
+	}
+}
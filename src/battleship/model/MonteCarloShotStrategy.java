@@ -0,0 +1,371 @@
+package battleship.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MonteCarloShotStrategy class samples random layouts of the remaining
+ * fleet that agree with every hit, miss and sunk ship seen so far, and fires at
+ * the unknown cell covered by ships in the most samples.
+ *
+ * <p>
+ * Sampling runs for a fixed time budget per move and is split into one task
+ * per worker of a {@link ForkJoinPool}. Each task draws from its own split of
+ * the random number generator and counts into its own array, so the number of
+ * samples grows with the number of cores. If no sample agrees with what is
+ * known, the move falls back to a {@link ProbabilityShotStrategy} that is kept
+ * up to date alongside.
+ * </p>
+ */
+public class MonteCarloShotStrategy implements ShotStrategy {
+
+	/**
+	 * The time budget per move used by the HARD difficulty, in milliseconds.
+	 */
+	public static final long DEFAULT_BUDGET_MILLIS = 50;
+
+	// Constants for what the strategy knows about each cell
+	private static final byte UNKNOWN = 0;
+	private static final byte MISS = 1;
+	private static final byte HIT = 2;
+	private static final byte SUNK = 3;
+
+	private static final int MAX_ATTEMPTS = 64;
+
+	private final SplittableRandom random;
+	private final ForkJoinPool pool;
+	private final long budgetNanos;
+	private final ProbabilityShotStrategy fallback;
+
+	private int width;
+	private int height;
+	private byte[] state = new byte[0];
+
+	private int[] remaining = new int[0];
+	private int remainingCount;
+
+	private int[] hits = new int[0];
+	private int hitCount;
+
+	private long lastSamples;
+
+	/**
+	 * Constructs a MonteCarloShotStrategy.
+	 *
+	 * @param random       The random number generator to split for each task.
+	 * @param pool         The pool to run the sampling tasks in.
+	 * @param budgetMillis The time to spend sampling per move, in milliseconds.
+	 */
+	public MonteCarloShotStrategy(SplittableRandom random, ForkJoinPool pool, long budgetMillis) {
+		this.random = random;
+		this.pool = pool;
+		this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+		this.fallback = new ProbabilityShotStrategy(random.split());
+	}
+
+	/**
+	 * Retrieves the number of layouts accepted while choosing the last move.
+	 *
+	 * @return The number of accepted samples.
+	 */
+	public long getLastSamples() {
+		return lastSamples;
+	}
+
+	@Override
+	public void reset(int width, int height, int[] shipLengths) {
+		this.width = width;
+		this.height = height;
+		int cells = width * height;
+		if (state.length != cells) {
+			state = new byte[cells];
+			hits = new int[cells];
+		} else {
+			Arrays.fill(state, UNKNOWN);
+		}
+		hitCount = 0;
+
+		// Keep the longest ships first, they are the hardest to fit
+		remaining = shipLengths.clone();
+		Arrays.sort(remaining);
+		for (int i = 0, j = remaining.length - 1; i < j; i++, j--) {
+			int swap = remaining[i];
+			remaining[i] = remaining[j];
+			remaining[j] = swap;
+		}
+		remainingCount = remaining.length;
+		fallback.reset(width, height, shipLengths);
+	}
+
+	@Override
+	public int nextShot() {
+		long deadline = System.nanoTime() + budgetNanos;
+		int tasks = pool.getParallelism();
+		SplittableRandom[] randoms = new SplittableRandom[tasks];
+		for (int i = 0; i < tasks; i++) {
+			randoms[i] = random.split();
+		}
+		int[] counts = pool.invoke(new SampleTask(randoms, 0, tasks, deadline));
+		int cells = state.length;
+		lastSamples = counts[cells];
+		if (lastSamples == 0) {
+			return fallback.nextShot();
+		}
+
+		int best = -1;
+		int bestScore = -1;
+		int ties = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (state[cell] != UNKNOWN) {
+				continue;
+			}
+			int score = counts[cell];
+			if (score > bestScore) {
+				best = cell;
+				bestScore = score;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				best = cell;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public void shotResolved(int row, int col, ShotResult result, ShipModel ship) {
+		fallback.shotResolved(row, col, result, ship);
+		int cell = row * width + col;
+		switch (result) {
+		case MISS:
+			state[cell] = MISS;
+			break;
+		case HIT:
+			markHit(cell);
+			break;
+		case SUNK:
+			markHit(cell);
+			if (ship != null) {
+				sink(ship);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Records a hit that does not yet belong to a sunk ship.
+	 *
+	 * @param cell The index of the cell that was hit.
+	 */
+	private void markHit(int cell) {
+		if (state[cell] == UNKNOWN) {
+			state[cell] = HIT;
+			hits[hitCount++] = cell;
+		}
+	}
+
+	/**
+	 * Removes a sunk ship from the remaining fleet and marks its cells.
+	 *
+	 * @param ship The ship that was sunk.
+	 */
+	private void sink(ShipModel ship) {
+		int length = ship.getLength();
+		for (int i = 0; i < remainingCount; i++) {
+			if (remaining[i] == length) {
+				System.arraycopy(remaining, i + 1, remaining, i, remainingCount - i - 1);
+				remainingCount--;
+				break;
+			}
+		}
+		int head = ship.getCoordinateHead().getRow() * width + ship.getCoordinateHead().getColumn();
+		int step = ship.isHorizontal() ? 1 : width;
+		for (int k = 0, cell = head; k < length; k++, cell += step) {
+			state[cell] = SUNK;
+		}
+		int kept = 0;
+		for (int i = 0; i < hitCount; i++) {
+			if (state[hits[i]] == HIT) {
+				hits[kept++] = hits[i];
+			}
+		}
+		hitCount = kept;
+	}
+
+	/**
+	 * Draws one random layout of the remaining fleet. If there are unresolved
+	 * hits, one ship is first placed through a randomly chosen hit so that
+	 * targeting does not depend on rejection alone. The layout is accepted only
+	 * if it avoids every miss and sunk ship and covers every unresolved hit.
+	 *
+	 * @param rng    The random number generator of the calling task.
+	 * @param taken  Scratch flags for the cells used by this layout, all clear on
+	 *               entry and on exit.
+	 * @param placed Scratch list of the cells used by this layout.
+	 * @param counts The per-cell counts to add an accepted layout to.
+	 * @return true if the layout was accepted.
+	 */
+	private boolean sample(SplittableRandom rng, boolean[] taken, int[] placed, int[] counts) {
+		int placedCount = 0;
+		boolean accepted = true;
+		int forced = -1;
+		if (hitCount > 0 && remainingCount > 0) {
+			forced = rng.nextInt(remainingCount);
+			int hit = hits[rng.nextInt(hitCount)];
+			int length = remaining[forced];
+			int origin = -1;
+			int step = 1;
+			for (int attempt = 0; attempt < MAX_ATTEMPTS && origin < 0; attempt++) {
+				boolean horizontal = rng.nextBoolean();
+				int offset = rng.nextInt(length);
+				int row = hit / width - (horizontal ? 0 : offset);
+				int col = hit % width - (horizontal ? offset : 0);
+				step = horizontal ? 1 : width;
+				if (fits(row, col, length, horizontal, taken)) {
+					origin = row * width + col;
+				}
+			}
+			if (origin < 0) {
+				accepted = false;
+			} else {
+				placedCount = take(origin, step, length, taken, placed, placedCount);
+			}
+		}
+		for (int i = 0; i < remainingCount && accepted; i++) {
+			if (i == forced) {
+				continue;
+			}
+			int length = remaining[i];
+			int origin = -1;
+			int step = 1;
+			for (int attempt = 0; attempt < MAX_ATTEMPTS && origin < 0; attempt++) {
+				boolean horizontal = rng.nextBoolean();
+				int rows = horizontal ? height : height - length + 1;
+				int cols = horizontal ? width - length + 1 : width;
+				if (rows <= 0 || cols <= 0) {
+					continue;
+				}
+				int row = rng.nextInt(rows);
+				int col = rng.nextInt(cols);
+				step = horizontal ? 1 : width;
+				if (fits(row, col, length, horizontal, taken)) {
+					origin = row * width + col;
+				}
+			}
+			if (origin < 0) {
+				accepted = false;
+			} else {
+				placedCount = take(origin, step, length, taken, placed, placedCount);
+			}
+		}
+		for (int h = 0; h < hitCount && accepted; h++) {
+			accepted = taken[hits[h]];
+		}
+		for (int i = 0; i < placedCount; i++) {
+			int cell = placed[i];
+			taken[cell] = false;
+			if (accepted && state[cell] == UNKNOWN) {
+				counts[cell]++;
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * Checks that a ship fits on the board without crossing a miss, a sunk ship
+	 * or another ship of the same layout.
+	 *
+	 * @param row        The starting row index.
+	 * @param col        The starting column index.
+	 * @param length     The length of the ship.
+	 * @param horizontal Flag indicating if the ship is horizontal.
+	 * @param taken      The cells already used by the layout.
+	 * @return true if the ship fits.
+	 */
+	private boolean fits(int row, int col, int length, boolean horizontal, boolean[] taken) {
+		if (row < 0 || col < 0) {
+			return false;
+		}
+		if (horizontal ? col + length > width || row >= height : row + length > height || col >= width) {
+			return false;
+		}
+		int step = horizontal ? 1 : width;
+		for (int k = 0, cell = row * width + col; k < length; k++, cell += step) {
+			if (taken[cell] || state[cell] == MISS || state[cell] == SUNK) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Marks the cells of a ship as used by the current layout.
+	 *
+	 * @param origin      The index of the first cell.
+	 * @param step        1 for a horizontal ship, the width for a vertical one.
+	 * @param length      The length of the ship.
+	 * @param taken       The cells used by the layout.
+	 * @param placed      The list of cells used by the layout.
+	 * @param placedCount The number of cells in the list.
+	 * @return The updated number of cells in the list.
+	 */
+	private static int take(int origin, int step, int length, boolean[] taken, int[] placed, int placedCount) {
+		for (int k = 0, cell = origin; k < length; k++, cell += step) {
+			taken[cell] = true;
+			placed[placedCount++] = cell;
+		}
+		return placedCount;
+	}
+
+	/**
+	 * Samples layouts until the deadline, splitting its range of random number
+	 * generators in half until each task owns one. The result holds a count per
+	 * cell followed by the number of accepted layouts.
+	 */
+	private class SampleTask extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient SplittableRandom[] randoms;
+		private final int from;
+		private final int to;
+		private final long deadline;
+
+		SampleTask(SplittableRandom[] randoms, int from, int to, long deadline) {
+			this.randoms = randoms;
+			this.from = from;
+			this.to = to;
+			this.deadline = deadline;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				SampleTask left = new SampleTask(randoms, from, middle, deadline);
+				left.fork();
+				int[] counts = new SampleTask(randoms, middle, to, deadline).compute();
+				int[] other = left.join();
+				for (int i = 0; i < counts.length; i++) {
+					counts[i] += other[i];
+				}
+				return counts;
+			}
+			int cells = state.length;
+			int[] counts = new int[cells + 1];
+			boolean[] taken = new boolean[cells];
+			int[] placed = new int[cells];
+			SplittableRandom rng = randoms[from];
+			do {
+				if (sample(rng, taken, placed, counts)) {
+					counts[cells]++;
+				}
+			} while (System.nanoTime() < deadline);
+			return counts;
+		}
+	}
+}
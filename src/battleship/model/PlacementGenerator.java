@@ -0,0 +1,172 @@
+package battleship.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * The PlacementGenerator class chooses random ship placements in bounded time.
+ * For every ship length it precomputes the list of placements that fit on the
+ * board, built the first time that length is asked for and reused for every
+ * later layout.
+ *
+ * <p>
+ * A placement is chosen uniformly among the ones still free on a board. A few
+ * placements are first drawn from the whole list and checked against the
+ * board, which is all it takes on a sparse board. If they are all taken, the
+ * free placements are collected in one pass over the list and one of them is
+ * drawn, so a crowded board never costs more than a single pass.
+ * </p>
+ *
+ * <p>
+ * A placement is encoded as {@code (row * width + col) * 2 + (horizontal ? 1 :
+ * 0)}.
+ * </p>
+ */
+public class PlacementGenerator {
+
+	// Number of draws from the whole list before collecting the free placements
+	private static final int QUICK_DRAWS = 8;
+
+	private final int width;
+	private final int height;
+
+	private final int[][] byLength;
+	private int[] free = new int[0];
+
+	/**
+	 * Constructs a PlacementGenerator for a board of the specified dimensions.
+	 *
+	 * @param width  The number of columns on the board.
+	 * @param height The number of rows on the board.
+	 */
+	public PlacementGenerator(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.byLength = new int[Math.max(width, height) + 1][];
+	}
+
+	/**
+	 * Retrieves the number of columns of the board this generator is for.
+	 *
+	 * @return The board width.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Retrieves the number of rows of the board this generator is for.
+	 *
+	 * @return The board height.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Chooses a placement for a ship uniformly at random among the placements
+	 * that do not overlap a ship already on the board.
+	 *
+	 * @param board  The board to place the ship on.
+	 * @param length The length of the ship.
+	 * @param random The random number generator to use.
+	 * @return The chosen placement, or -1 if no placement of that length is free.
+	 */
+	public int choose(BoardModel board, int length, SplittableRandom random) {
+		if (length <= 0 || length >= byLength.length) {
+			return -1;
+		}
+		int[] placements = placementsFor(length);
+		if (placements.length == 0) {
+			return -1;
+		}
+		for (int draw = 0; draw < QUICK_DRAWS; draw++) {
+			int placement = placements[random.nextInt(placements.length)];
+			if (isFree(board, placement, length)) {
+				return placement;
+			}
+		}
+
+		if (free.length < placements.length) {
+			free = new int[placements.length];
+		}
+		int count = 0;
+		for (int placement : placements) {
+			if (isFree(board, placement, length)) {
+				free[count++] = placement;
+			}
+		}
+		return count == 0 ? -1 : free[random.nextInt(count)];
+	}
+
+	/**
+	 * Retrieves the starting row of a placement.
+	 *
+	 * @param placement The placement.
+	 * @return The row index.
+	 */
+	public int getRow(int placement) {
+		return (placement >>> 1) / width;
+	}
+
+	/**
+	 * Retrieves the starting column of a placement.
+	 *
+	 * @param placement The placement.
+	 * @return The column index.
+	 */
+	public int getColumn(int placement) {
+		return (placement >>> 1) % width;
+	}
+
+	/**
+	 * Checks if a placement is horizontal.
+	 *
+	 * @param placement The placement.
+	 * @return true if the placement is horizontal, false if it is vertical.
+	 */
+	public boolean isHorizontal(int placement) {
+		return (placement & 1) != 0;
+	}
+
+	/**
+	 * Checks that a placement overlaps no ship on the board.
+	 *
+	 * @param board     The board to check.
+	 * @param placement The placement.
+	 * @param length    The length of the ship.
+	 * @return true if the placement is free.
+	 */
+	private boolean isFree(BoardModel board, int placement, int length) {
+		return board.canPlace(getRow(placement), getColumn(placement), length, isHorizontal(placement));
+	}
+
+	/**
+	 * Retrieves the placements of a length that fit on the board, building them
+	 * on first use.
+	 *
+	 * @param length The length of the ship.
+	 * @return The placements of that length.
+	 */
+	private int[] placementsFor(int length) {
+		int[] placements = byLength[length];
+		if (placements == null) {
+			int horizontal = Math.max(0, width - length + 1) * height;
+			int vertical = Math.max(0, height - length + 1) * width;
+			placements = new int[horizontal + vertical];
+			int count = 0;
+			for (int row = 0; row < height; row++) {
+				for (int col = 0; col < width; col++) {
+					int origin = row * width + col;
+					if (col + length <= width) {
+						placements[count++] = origin * 2 + 1;
+					}
+					if (row + length <= height) {
+						placements[count++] = origin * 2;
+					}
+				}
+			}
+			byLength[length] = placements;
+		}
+		return placements;
+	}
+}
@@ -0,0 +1,400 @@
+package battleship.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The ProbabilityShotStrategy class fires at the cell most likely to hold a
+ * ship. For every remaining ship it counts the placements that do not cross a
+ * known miss or sunk ship, and sums those counts per cell into a density map.
+ *
+ * <p>
+ * The density map is maintained incrementally: a miss only removes the
+ * placements that cross the missed cell, and a sunk ship removes that ship's
+ * placements and blocks its cells. While there are hits that do not belong to
+ * a sunk ship, the strategy switches to targeting and only scores placements
+ * that pass through those hits.
+ * </p>
+ */
+public class ProbabilityShotStrategy implements ShotStrategy {
+
+	// Constants for what the strategy knows about each cell
+	private static final byte UNKNOWN = 0;
+	private static final byte MISS = 1;
+	private static final byte HIT = 2;
+	private static final byte SUNK = 3;
+
+	private final SplittableRandom random;
+
+	private int width;
+	private int height;
+	private byte[] state = new byte[0];
+
+	// The fleet and the counts on its empty board, kept from game to game
+	private int[] fleet;
+	private int[] fleetCounts = new int[0];
+	private int[][] emptyCoverage = new int[0][];
+	private int[] emptyDensity = new int[0];
+
+	private int[] lengths = new int[0];
+	private int[] counts = new int[0];
+	private int[][] coverage = new int[0][];
+	private int[] density = new int[0];
+
+	private int[] hits = new int[0];
+	private int hitCount;
+
+	private int[] target = new int[0];
+	private int[] touched = new int[0];
+
+	/**
+	 * Constructs a ProbabilityShotStrategy with the given source of randomness,
+	 * which is used to break ties between equally likely cells.
+	 *
+	 * @param random The random number generator to use.
+	 */
+	public ProbabilityShotStrategy(SplittableRandom random) {
+		this.random = random;
+	}
+
+	@Override
+	public void reset(int width, int height, int[] shipLengths) {
+		if (width != this.width || height != this.height || !Arrays.equals(shipLengths, fleet)) {
+			prepare(width, height, shipLengths);
+		}
+		// Start from the counts on the empty board, worked out once per board and fleet
+		Arrays.fill(state, UNKNOWN);
+		System.arraycopy(emptyDensity, 0, density, 0, density.length);
+		System.arraycopy(fleetCounts, 0, counts, 0, counts.length);
+		for (int i = 0; i < coverage.length; i++) {
+			System.arraycopy(emptyCoverage[i], 0, coverage[i], 0, density.length);
+		}
+		hitCount = 0;
+	}
+
+	/**
+	 * Sizes the arrays for a board and counts every placement of each ship
+	 * length on it while it is empty.
+	 *
+	 * @param width       The number of columns on the target board.
+	 * @param height      The number of rows on the target board.
+	 * @param shipLengths The lengths of the ships in the target fleet.
+	 */
+	private void prepare(int width, int height, int[] shipLengths) {
+		this.width = width;
+		this.height = height;
+		fleet = shipLengths.clone();
+		int cells = width * height;
+		if (state.length != cells) {
+			state = new byte[cells];
+			density = new int[cells];
+			hits = new int[cells];
+			target = new int[cells];
+			touched = new int[cells];
+		}
+
+		// Group the fleet by ship length
+		int distinct = 0;
+		int[] sortedLengths = shipLengths.clone();
+		Arrays.sort(sortedLengths);
+		lengths = new int[sortedLengths.length];
+		fleetCounts = new int[sortedLengths.length];
+		for (int length : sortedLengths) {
+			if (distinct > 0 && lengths[distinct - 1] == length) {
+				fleetCounts[distinct - 1]++;
+			} else {
+				lengths[distinct] = length;
+				fleetCounts[distinct] = 1;
+				distinct++;
+			}
+		}
+		lengths = Arrays.copyOf(lengths, distinct);
+		fleetCounts = Arrays.copyOf(fleetCounts, distinct);
+		counts = new int[distinct];
+
+		// Count every placement of each length on the empty board
+		emptyCoverage = new int[distinct][cells];
+		coverage = new int[distinct][cells];
+		emptyDensity = new int[cells];
+		for (int i = 0; i < distinct; i++) {
+			int length = lengths[i];
+			int[] cover = emptyCoverage[i];
+			for (int row = 0; row < height; row++) {
+				for (int col = 0; col < width; col++) {
+					int cell = row * width + col;
+					if (col + length <= width) {
+						for (int k = 0; k < length; k++) {
+							cover[cell + k]++;
+						}
+					}
+					if (row + length <= height) {
+						for (int k = 0; k < length; k++) {
+							cover[cell + k * width]++;
+						}
+					}
+				}
+			}
+			for (int cell = 0; cell < cells; cell++) {
+				emptyDensity[cell] += fleetCounts[i] * cover[cell];
+			}
+		}
+	}
+
+	@Override
+	public int nextShot() {
+		if (hitCount > 0) {
+			int cell = chooseTarget();
+			if (cell >= 0) {
+				return cell;
+			}
+		}
+		return chooseHunt();
+	}
+
+	@Override
+	public void shotResolved(int row, int col, ShotResult result, ShipModel ship) {
+		int cell = row * width + col;
+		switch (result) {
+		case MISS:
+			block(cell, MISS);
+			break;
+		case HIT:
+			markHit(cell);
+			break;
+		case SUNK:
+			markHit(cell);
+			if (ship != null) {
+				sink(ship);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Records a hit that does not yet belong to a sunk ship.
+	 *
+	 * @param cell The index of the cell that was hit.
+	 */
+	private void markHit(int cell) {
+		if (state[cell] == UNKNOWN) {
+			state[cell] = HIT;
+			hits[hitCount++] = cell;
+		}
+	}
+
+	/**
+	 * Removes a sunk ship from the remaining fleet and blocks its cells.
+	 *
+	 * @param ship The ship that was sunk.
+	 */
+	private void sink(ShipModel ship) {
+		int length = ship.getLength();
+		for (int i = 0; i < lengths.length; i++) {
+			if (lengths[i] == length && counts[i] > 0) {
+				counts[i]--;
+				int[] cover = coverage[i];
+				for (int cell = 0; cell < density.length; cell++) {
+					density[cell] -= cover[cell];
+				}
+				break;
+			}
+		}
+		int head = ship.getCoordinateHead().getRow() * width + ship.getCoordinateHead().getColumn();
+		int step = ship.isHorizontal() ? 1 : width;
+		for (int k = 0, cell = head; k < length; k++, cell += step) {
+			block(cell, SUNK);
+		}
+		// Drop the sunk cells from the unresolved hits
+		int kept = 0;
+		for (int i = 0; i < hitCount; i++) {
+			if (state[hits[i]] == HIT) {
+				hits[kept++] = hits[i];
+			}
+		}
+		hitCount = kept;
+	}
+
+	/**
+	 * Marks a cell as unable to hold a ship and removes every placement crossing
+	 * it from the density map.
+	 *
+	 * @param cell     The index of the cell to block.
+	 * @param newState MISS or SUNK.
+	 */
+	private void block(int cell, byte newState) {
+		if (state[cell] == MISS || state[cell] == SUNK) {
+			return;
+		}
+		int row = cell / width;
+		int col = cell % width;
+		for (int i = 0; i < lengths.length; i++) {
+			if (counts[i] == 0) {
+				continue;
+			}
+			int length = lengths[i];
+			int weight = counts[i];
+			int[] cover = coverage[i];
+			int first = Math.max(0, col - length + 1);
+			int last = Math.min(col, width - length);
+			for (int start = first; start <= last; start++) {
+				int origin = row * width + start;
+				if (isOpen(origin, 1, length)) {
+					for (int k = 0; k < length; k++) {
+						cover[origin + k]--;
+						density[origin + k] -= weight;
+					}
+				}
+			}
+			first = Math.max(0, row - length + 1);
+			last = Math.min(row, height - length);
+			for (int start = first; start <= last; start++) {
+				int origin = start * width + col;
+				if (isOpen(origin, width, length)) {
+					for (int k = 0; k < length; k++) {
+						cover[origin + k * width]--;
+						density[origin + k * width] -= weight;
+					}
+				}
+			}
+		}
+		state[cell] = newState;
+	}
+
+	/**
+	 * Checks that no cell of a placement is a miss or part of a sunk ship.
+	 *
+	 * @param origin The index of the first cell of the placement.
+	 * @param step   1 for a horizontal placement, the width for a vertical one.
+	 * @param length The length of the placement.
+	 * @return true if the placement is still possible.
+	 */
+	private boolean isOpen(int origin, int step, int length) {
+		for (int k = 0, cell = origin; k < length; k++, cell += step) {
+			if (state[cell] == MISS || state[cell] == SUNK) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Chooses the unknown cell with the highest density, breaking ties at random.
+	 *
+	 * @return The index of the chosen cell, or -1 if no unknown cell remains.
+	 */
+	private int chooseHunt() {
+		int best = -1;
+		int bestScore = -1;
+		int ties = 0;
+		for (int cell = 0; cell < state.length; cell++) {
+			if (state[cell] != UNKNOWN) {
+				continue;
+			}
+			int score = density[cell];
+			if (score > bestScore) {
+				best = cell;
+				bestScore = score;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				best = cell;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Scores the unknown cells next to unresolved hits. Each open placement that
+	 * passes through at least one hit adds a weight, growing with the number of
+	 * hits it explains, to its unknown cells. Placements are counted once, from
+	 * their first hit.
+	 *
+	 * @return The index of the best scoring cell, or -1 if no placement explains
+	 *         the hits.
+	 */
+	private int chooseTarget() {
+		int touchedCount = 0;
+		for (int h = 0; h < hitCount; h++) {
+			int hit = hits[h];
+			int row = hit / width;
+			int col = hit % width;
+			for (int i = 0; i < lengths.length; i++) {
+				if (counts[i] == 0) {
+					continue;
+				}
+				int length = lengths[i];
+				int first = Math.max(0, col - length + 1);
+				int last = Math.min(col, width - length);
+				for (int start = first; start <= last; start++) {
+					touchedCount = scorePlacement(row * width + start, 1, length, hit, counts[i], touchedCount);
+				}
+				first = Math.max(0, row - length + 1);
+				last = Math.min(row, height - length);
+				for (int start = first; start <= last; start++) {
+					touchedCount = scorePlacement(start * width + col, width, length, hit, counts[i], touchedCount);
+				}
+			}
+		}
+
+		int best = -1;
+		long bestScore = -1;
+		int ties = 0;
+		for (int t = 0; t < touchedCount; t++) {
+			int cell = touched[t];
+			// Prefer the target score, then the hunt density
+			long score = ((long) target[cell] << 32) | density[cell];
+			target[cell] = 0;
+			if (score > bestScore) {
+				best = cell;
+				bestScore = score;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				best = cell;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Adds the target weight of one placement to its unknown cells.
+	 *
+	 * @param origin       The index of the first cell of the placement.
+	 * @param step         1 for a horizontal placement, the width for a vertical
+	 *                     one.
+	 * @param length       The length of the placement.
+	 * @param hit          The hit this placement is being scored from.
+	 * @param ships        The number of remaining ships of this length.
+	 * @param touchedCount The number of cells scored so far.
+	 * @return The updated number of cells scored.
+	 */
+	private int scorePlacement(int origin, int step, int length, int hit, int ships, int touchedCount) {
+		int firstHit = -1;
+		int hitsCovered = 0;
+		for (int k = 0, cell = origin; k < length; k++, cell += step) {
+			byte known = state[cell];
+			if (known == MISS || known == SUNK) {
+				return touchedCount;
+			}
+			if (known == HIT) {
+				if (firstHit < 0) {
+					firstHit = cell;
+				}
+				hitsCovered++;
+			}
+		}
+		if (firstHit != hit) {
+			return touchedCount;
+		}
+		int weight = ships * hitsCovered * hitsCovered;
+		for (int k = 0, cell = origin; k < length; k++, cell += step) {
+			if (state[cell] == UNKNOWN) {
+				if (target[cell] == 0) {
+					touched[touchedCount++] = cell;
+				}
+				target[cell] += weight;
+			}
+		}
+		return touchedCount;
+	}
+}
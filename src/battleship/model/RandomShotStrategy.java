@@ -0,0 +1,62 @@
+package battleship.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * The RandomShotStrategy class fires at a uniformly random cell that has not
+ * been fired upon yet. The cells still open are kept in a dense array with a
+ * reverse index, so choosing and removing a cell are constant time no matter
+ * how full the board is.
+ */
+public class RandomShotStrategy implements ShotStrategy {
+
+	private final SplittableRandom random;
+
+	private int width;
+	private int[] open = new int[0];
+	private int[] position = new int[0];
+	private int openCount;
+
+	/**
+	 * Constructs a RandomShotStrategy with the given source of randomness.
+	 *
+	 * @param random The random number generator to use.
+	 */
+	public RandomShotStrategy(SplittableRandom random) {
+		this.random = random;
+	}
+
+	@Override
+	public void reset(int width, int height, int[] shipLengths) {
+		this.width = width;
+		int cells = width * height;
+		if (open.length != cells) {
+			open = new int[cells];
+			position = new int[cells];
+		}
+		for (int cell = 0; cell < cells; cell++) {
+			open[cell] = cell;
+			position[cell] = cell;
+		}
+		openCount = cells;
+	}
+
+	@Override
+	public int nextShot() {
+		return openCount == 0 ? -1 : open[random.nextInt(openCount)];
+	}
+
+	@Override
+	public void shotResolved(int row, int col, ShotResult result, ShipModel ship) {
+		int cell = row * width + col;
+		int index = position[cell];
+		if (result == ShotResult.INVALID || index >= openCount || open[index] != cell) {
+			return;
+		}
+		int last = open[--openCount];
+		open[index] = last;
+		position[last] = index;
+		open[openCount] = cell;
+		position[cell] = openCount;
+	}
+}
@@ -1,22 +1,19 @@
 package battleship.model;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import battleship.LocalizationLoader;
-import battleship.controller.BattleshipController;
+import java.util.Arrays;
 
 /**
- * Represents a ship in the Battleship game.
+ * Represents a ship in the Battleship game. The cells a ship occupies are kept
+ * as packed coordinates in an array sized to its length, so placing the ship
+ * and registering hits create no garbage.
  */
 public class ShipModel {
-	private BattleshipController controller;
-	private LocalizationLoader loader;
-
 	private CoordinateModel coordinateHead;
-	private List<CoordinateModel> coordinates;
-	
+	private int[] coordinates;
+	private int coordinateCount;
+
 	private int hits;
+	private int id;
 	private boolean isHorizontal;
 	private boolean isPlaced;
 	private int length;
@@ -25,28 +22,48 @@ public class ShipModel {
 	/**
 	 * Constructs a ShipModel with the specified name and length.
 	 *
-	 * @param loader The localization loader instance to load game resources.
 	 * @param name   The name of the ship.
 	 * @param length The length of the ship.
 	 */
-	public ShipModel(LocalizationLoader loader, String name, int length) {
-		this.loader = loader;
+	public ShipModel(String name, int length) {
 		this.name = name;
 		this.length = length;
 		this.hits = 0;
 		this.isPlaced = false;
 		this.isHorizontal = true;
-		this.coordinates = new ArrayList<>();
+		this.coordinates = new int[length];
 	}
 
 	/**
-	 * Adds a coordinate to the list of coordinates occupied by the ship.
+	 * Adds a coordinate to the coordinates occupied by the ship.
 	 *
 	 * @param row The row coordinate to add.
 	 * @param col The column coordinate to add.
 	 */
 	public void addCoordinate(int row, int col) {
-		coordinates.add(new CoordinateModel(row, col));
+		if (coordinateCount == coordinates.length) {
+			coordinates = Arrays.copyOf(coordinates, Math.max(1, coordinateCount * 2));
+		}
+		coordinates[coordinateCount++] = CoordinateModel.pack(row, col);
+	}
+
+	/**
+	 * Removes every coordinate occupied by the ship.
+	 */
+	public void clearCoordinates() {
+		coordinateCount = 0;
+	}
+
+	/**
+	 * Returns the ship to its state before placement: no coordinates, no hits
+	 * and horizontal.
+	 */
+	public void reset() {
+		coordinateHead = null;
+		coordinateCount = 0;
+		hits = 0;
+		isHorizontal = true;
+		isPlaced = false;
 	}
 
 	/**
@@ -59,12 +76,33 @@ public class ShipModel {
 	}
 
 	/**
-	 * Retrieves the list of coordinates occupied by the ship.
+	 * Retrieves the number of coordinates occupied by the ship.
+	 *
+	 * @return The number of coordinates.
+	 */
+	public int getCoordinateCount() {
+		return coordinateCount;
+	}
+
+	/**
+	 * Retrieves one of the coordinates occupied by the ship.
+	 *
+	 * @param index The index of the coordinate, from the head of the ship.
+	 * @return The shared coordinate.
+	 */
+	public CoordinateModel getCoordinate(int index) {
+		int packed = coordinates[index];
+		return CoordinateModel.of(CoordinateModel.packedRow(packed), CoordinateModel.packedColumn(packed));
+	}
+
+	/**
+	 * Retrieves one of the coordinates occupied by the ship, packed into an int.
 	 *
-	 * @return The list of coordinates.
+	 * @param index The index of the coordinate, from the head of the ship.
+	 * @return The packed coordinate.
 	 */
-	public List<CoordinateModel> getCoordinates() {
-		return coordinates;
+	public int getPackedCoordinate(int index) {
+		return coordinates[index];
 	}
 
 	/**
@@ -76,6 +114,15 @@ public class ShipModel {
 		return hits;
 	}
 
+	/**
+	 * Retrieves the id of the ship, which is its index within its fleet.
+	 *
+	 * @return The id of the ship.
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Retrieves the length of the ship.
 	 *
@@ -121,15 +168,6 @@ public class ShipModel {
 		return hits >= length;
 	}
 
-	/**
-	 * Sets the controller of the ship.
-	 *
-	 * @param controller The BattleshipController instance to set.
-	 */
-	public void setController(BattleshipController controller) {
-		this.controller = controller;
-	}
-
 	/**
 	 * Sets the coordinate of the head of the ship.
 	 *
@@ -157,6 +195,15 @@ public class ShipModel {
 		isHorizontal = horizontal;
 	}
 
+	/**
+	 * Sets the id of the ship, which is its index within its fleet.
+	 *
+	 * @param id The new id of the ship.
+	 */
+	public void setId(int id) {
+		this.id = id;
+	}
+
 	/**
 	 * Sets the name of the ship.
 	 *
@@ -175,6 +222,17 @@ public class ShipModel {
 		isPlaced = placed;
 	}
 
+	/**
+	 * Registers a hit on this ship. Used when the board has already attributed the
+	 * struck cell to this ship.
+	 *
+	 * @return true if the hit sank the ship, false otherwise.
+	 */
+	public boolean registerHit() {
+		hits++;
+		return isSunk();
+	}
+
 	/**
 	 * Checks if the given coordinates are part of this ship and registers a hit if
 	 * they are.
@@ -185,14 +243,10 @@ public class ShipModel {
 	 *         registered, false otherwise.
 	 */
 	public boolean registerHit(int row, int col) {
-		for (CoordinateModel coordinate : coordinates) {
-			if (coordinate.getRow() == row && coordinate.getColumn() == col) {
+		int packed = CoordinateModel.pack(row, col);
+		for (int i = 0; i < coordinateCount; i++) {
+			if (coordinates[i] == packed) {
 				hits++;
-				controller.getChatController().receiveChatMessage(loader.getResourceBundle().getString("chat.hit"));
-				if (isSunk()) {
-					controller.getChatController()
-							.receiveChatMessage(loader.getResourceBundle().getString("chat.sunk"));
-				}
 				return true;
 			}
 		}
@@ -0,0 +1,23 @@
+package battleship.model;
+
+/**
+ * Enum to define the possible outcomes of a shot fired at a board.
+ */
+public enum ShotResult {
+	/**
+	 * The shot struck a ship that is still afloat.
+	 */
+	HIT,
+	/**
+	 * The shot landed in an empty cell.
+	 */
+	MISS,
+	/**
+	 * The shot struck the last intact cell of a ship.
+	 */
+	SUNK,
+	/**
+	 * The cell is off the board or has already been fired upon.
+	 */
+	INVALID
+}
@@ -0,0 +1,38 @@
+package battleship.model;
+
+/**
+ * The ShotStrategy interface chooses where a computer opponent fires. A
+ * strategy only sees the results of its own shots, and cells are identified by
+ * their index {@code row * width + col}.
+ */
+public interface ShotStrategy {
+
+	/**
+	 * Prepares the strategy for a new game.
+	 *
+	 * @param width        The number of columns on the target board.
+	 * @param height       The number of rows on the target board.
+	 * @param shipLengths  The lengths of the ships in the target fleet. The
+	 *                     caller may reuse the array, so a strategy keeps a
+	 *                     copy if it needs one.
+	 */
+	void reset(int width, int height, int[] shipLengths);
+
+	/**
+	 * Chooses the next cell to fire at.
+	 *
+	 * @return The index of a cell that has not been fired upon, or -1 if every
+	 *         cell has been fired upon.
+	 */
+	int nextShot();
+
+	/**
+	 * Informs the strategy of the outcome of one of its shots.
+	 *
+	 * @param row    The row index of the target cell.
+	 * @param col    The column index of the target cell.
+	 * @param result The outcome of the shot.
+	 * @param ship   The ship that was struck, or null on a MISS.
+	 */
+	void shotResolved(int row, int col, ShotResult result, ShipModel ship);
+}
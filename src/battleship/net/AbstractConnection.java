@@ -0,0 +1,399 @@
+package battleship.net;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The AbstractConnection class holds what every transport's connections share:
+ * the handler, the attachment, the codecs and the protocol version handshake.
+ * Subclasses write the encoded frames and feed in the bytes they read.
+ *
+ * <p>
+ * Every connection starts out speaking text, which every version of the game
+ * understands. The side that connected sends a hello,
+ * {@code START::HELLO <version>}, which older versions read as a START they do
+ * not know and ignore. A peer that knows binary framing answers with the
+ * version both speak and switches to it for what it sends next. The connecting
+ * side switches what it reads on that answer, and sends one more hello to mark
+ * where its own binary frames begin. An older peer never answers the first
+ * hello, so both sides go on speaking text, and a peer that sends no hello is
+ * answered in text.
+ * </p>
+ *
+ * <p>
+ * Once open, a connection is watched by the {@link Heartbeat}: PING and PONG
+ * are answered and timed here, never reaching the handler, and the round trips
+ * are kept in a {@link RoundTripHistogram}.
+ * </p>
+ *
+ * <p>
+ * Sending never waits on the network: frames are encoded on the sending
+ * thread and handed to the transport's queue, which a thread of the transport
+ * writes out.
+ * </p>
+ *
+ * <p>
+ * From version 4 the connection can carry several matches at once, each on a
+ * {@link Channel} of its own. Messages outside any channel go to the
+ * connection's own handler, as they always have.
+ * </p>
+ */
+abstract class AbstractConnection implements Connection {
+
+	/**
+	 * The newest protocol version this side speaks, set with the
+	 * {@code battleship.protocol} system property: 1 for text only, 2 for
+	 * binary framing, 3, which adds the SYSTEM message, or 4, the default, which
+	 * adds channels.
+	 */
+	static final int PROTOCOL_VERSION = Math.max(TextCodec.VERSION,
+			Math.min(Channel.VERSION, Integer.getInteger("battleship.protocol", Channel.VERSION)));
+
+	private static final Codec TEXT = new TextCodec();
+	// Hellos ride on START, whose unknown texts every version ignores
+	private static final String HELLO = "HELLO ";
+
+	final MessageHandler handler;
+	private final boolean initiator;
+	private final ReentrantLock sendLock = new ReentrantLock();
+	private Codec encoder = TEXT;
+	private Codec decoder = new TextCodec();
+	private boolean answered;
+	private volatile int version = TextCodec.VERSION;
+	private volatile Object attachment;
+	private volatile long lastReceived = System.nanoTime();
+	private volatile boolean timedOut;
+	private final RoundTripHistogram roundTrips = new RoundTripHistogram();
+	private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+	private final AtomicInteger nextChannel = new AtomicInteger(1);
+	// The channel of the frames being written, guarded by the send lock
+	private int sendChannel;
+	// The channel of the frames being read, and the highest the peer has opened
+	private int receiveChannel;
+	private int openedChannel;
+
+	/**
+	 * Constructs an AbstractConnection.
+	 *
+	 * @param handler   The handler for the connection.
+	 * @param initiator True if this side connected to the peer, false if it
+	 *                  accepted the connection.
+	 */
+	AbstractConnection(MessageHandler handler, boolean initiator) {
+		this.handler = handler;
+		this.initiator = initiator;
+	}
+
+	/**
+	 * Queues one encoded frame to be written. Called with the send lock held, so
+	 * frames are written in the order they were encoded, and must never block.
+	 *
+	 * @param frame The frame, which must not be changed afterwards.
+	 */
+	abstract void write(byte[] frame);
+
+	/**
+	 * Closes the connection at once, dropping what is left to write.
+	 */
+	abstract void abort();
+
+	/**
+	 * Starts the handshake and tells the handler the connection is open. Called
+	 * once by the transport before any bytes are read.
+	 */
+	void open() {
+		if (initiator && PROTOCOL_VERSION > TextCodec.VERSION) {
+			sendHello(PROTOCOL_VERSION, null);
+		}
+		Heartbeat.watch(this);
+		handler.onConnected(this);
+	}
+
+	@Override
+	public void send(Message message) {
+		send(0, message);
+	}
+
+	@Override
+	public void send(Broadcast broadcast) {
+		send(0, broadcast);
+	}
+
+	/**
+	 * Sends a message on a channel.
+	 *
+	 * @param channel The id of the channel, or 0 for the connection itself.
+	 * @param message The message.
+	 */
+	void send(int channel, Message message) {
+		if (!isOpen()) {
+			return;
+		}
+		sendLock.lock();
+		try {
+			select(channel, message.getType());
+			write(encoder.encode(message));
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	/**
+	 * Sends a message shared with other connections on a channel.
+	 *
+	 * @param channel   The id of the channel, or 0 for the connection itself.
+	 * @param broadcast The message.
+	 */
+	void send(int channel, Broadcast broadcast) {
+		if (!isOpen()) {
+			return;
+		}
+		sendLock.lock();
+		try {
+			select(channel, broadcast.getMessage().getType());
+			write(broadcast.encode(encoder));
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes a CHANNEL ahead of a message for another channel than the last
+	 * one. Called with the send lock held.
+	 *
+	 * @param channel The id of the channel of the message.
+	 * @param type    The type of the message.
+	 */
+	private void select(int channel, MessageType type) {
+		if (channel == sendChannel || type == MessageType.PING || type == MessageType.PONG) {
+			// The heartbeat belongs to the connection, whatever the channel
+			return;
+		}
+		sendChannel = channel;
+		write(encoder.encode(Message.of(MessageType.CHANNEL, Integer.toString(channel))));
+	}
+
+	/**
+	 * Opens a channel to carry another match over this connection. Only the side
+	 * that connected opens channels, and only once the peer speaks
+	 * {@link Channel#VERSION}.
+	 *
+	 * @param handler The handler for the channel's messages.
+	 * @return The channel, already open.
+	 * @throws IllegalStateException If this side accepted the connection or the
+	 *                               peer does not speak channels.
+	 */
+	@Override
+	public Connection openChannel(MessageHandler handler) {
+		if (!initiator || version < Channel.VERSION) {
+			throw new IllegalStateException("Channels need a connecting side at version " + Channel.VERSION);
+		}
+		Channel channel = new Channel(this, nextChannel.getAndIncrement(), handler);
+		channels.put(channel.getId(), channel);
+		handler.onConnected(channel);
+		return channel;
+	}
+
+	/**
+	 * Forgets a channel once it is closed.
+	 *
+	 * @param channel The channel.
+	 */
+	void forget(Channel channel) {
+		channels.remove(channel.getId(), channel);
+	}
+
+	/**
+	 * Closes every channel without telling the peer. Called by the transport
+	 * when the connection closes, before its own handler is told.
+	 */
+	void closeChannels() {
+		for (Channel channel : channels.values()) {
+			channel.close(false);
+		}
+	}
+
+	/**
+	 * Decodes the bytes read and passes every complete message to the handler.
+	 * Called on the connection's reading thread only.
+	 *
+	 * @param buffer The bytes read.
+	 * @throws ProtocolException If the peer sends a frame that is too long.
+	 */
+	void receive(ByteBuffer buffer) throws ProtocolException {
+		lastReceived = System.nanoTime();
+		Message message;
+		while (isOpen() && (message = decoder.decode(buffer)) != null) {
+			if (message.getType() == MessageType.START && message.getText().startsWith(HELLO)) {
+				hello(message.getText().substring(HELLO.length()));
+				continue;
+			}
+			switch (message.getType()) {
+			case PING:
+				send(Message.of(MessageType.PONG, message.getText()));
+				break;
+			case PONG:
+				pong(message.getText());
+				break;
+			case CHANNEL:
+				try {
+					receiveChannel = Integer.parseInt(message.getText().trim());
+				} catch (NumberFormatException e) {
+					throw new ProtocolException("Bad channel: " + message.getText());
+				}
+				break;
+			default:
+				if (receiveChannel == 0) {
+					handler.onMessage(this, message);
+				} else {
+					deliver(message);
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Passes a message to the channel being read, opening it if the peer has
+	 * just started it. Messages for a channel already closed are dropped.
+	 *
+	 * @param message The message.
+	 */
+	private void deliver(Message message) {
+		Channel channel = channels.get(receiveChannel);
+		boolean disconnect = message.getType() == MessageType.DISCONNECT;
+		if (channel == null) {
+			if (initiator || receiveChannel <= openedChannel || disconnect) {
+				return;
+			}
+			openedChannel = receiveChannel;
+			channel = new Channel(this, receiveChannel, handler);
+			channels.put(receiveChannel, channel);
+			handler.onConnected(channel);
+		}
+		channel.handler.onMessage(channel, message);
+		if (disconnect) {
+			channel.close(false);
+		}
+	}
+
+	/**
+	 * Pings the peer, or closes the connection if the peer has been silent for
+	 * too long. A peer that does not even take what is left to write by the
+	 * next heartbeat is dropped. Called by the {@link Heartbeat} thread.
+	 *
+	 * @param now     The time of the heartbeat, from {@link System#nanoTime()}.
+	 * @param timeout The longest silence allowed, in nanoseconds.
+	 * @return false if the connection was dropped.
+	 */
+	boolean beat(long now, long timeout) {
+		if (version < Heartbeat.VERSION) {
+			return true;
+		}
+		if (now - lastReceived > timeout) {
+			if (timedOut) {
+				abort();
+				return false;
+			}
+			timedOut = true;
+			close();
+			return true;
+		}
+		send(Message.of(MessageType.PING, Long.toString(now)));
+		return true;
+	}
+
+	/**
+	 * Records the round trip of a PING on receiving its PONG.
+	 *
+	 * @param text The time the PING was sent, as it sent it.
+	 */
+	private void pong(String text) {
+		long sent;
+		try {
+			sent = Long.parseLong(text.trim());
+		} catch (NumberFormatException e) {
+			return;
+		}
+		long micros = (System.nanoTime() - sent) / 1000;
+		roundTrips.record(micros);
+		handler.onRoundTrip(this, micros);
+	}
+
+	/**
+	 * Takes a step of the handshake on receiving a hello.
+	 *
+	 * @param text The version in the hello.
+	 */
+	private void hello(String text) {
+		int version;
+		try {
+			version = Math.min(PROTOCOL_VERSION, Integer.parseInt(text.trim()));
+		} catch (NumberFormatException e) {
+			return;
+		}
+		if (PROTOCOL_VERSION == TextCodec.VERSION || version < TextCodec.VERSION) {
+			// Act as a peer from before the handshake
+			return;
+		}
+		Codec binary = version >= BinaryCodec.VERSION ? new BinaryCodec() : null;
+		this.version = version;
+		if (initiator) {
+			// The answer: the peer's frames are binary from here on
+			if (binary != null) {
+				decoder = binary;
+				sendHello(version, binary);
+			}
+		} else if (!answered) {
+			answered = true;
+			sendHello(version, binary);
+		} else if (binary != null) {
+			// The connecting side's last text frame
+			decoder = binary;
+		}
+	}
+
+	/**
+	 * Sends a hello in text, then switches what this side sends to another
+	 * codec.
+	 *
+	 * @param version The version to announce.
+	 * @param next    The codec to send with afterwards, or null to keep the
+	 *                current one.
+	 */
+	private void sendHello(int version, Codec next) {
+		sendLock.lock();
+		try {
+			write(TEXT.encode(Message.of(MessageType.START, HELLO + version)));
+			if (next != null) {
+				encoder = next;
+			}
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	@Override
+	public int getProtocolVersion() {
+		return version;
+	}
+
+	@Override
+	public RoundTripHistogram getRoundTrips() {
+		return roundTrips;
+	}
+
+	@Override
+	public Object getAttachment() {
+		return attachment;
+	}
+
+	@Override
+	public void setAttachment(Object attachment) {
+		this.attachment = attachment;
+	}
+}
@@ -0,0 +1,248 @@
+package battleship.net;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The Audience class sends the stream of a match to the connections watching
+ * it. Each message is published once as a {@link Broadcast}, so it is encoded
+ * once per codec however many spectators there are, and each spectator has
+ * its own bounded queue, written from a virtual thread of its own. Publishing
+ * never waits, so a slow spectator holds up neither the players nor the other
+ * spectators.
+ *
+ * <p>
+ * A spectator whose queue fills up falls behind: what it had queued is
+ * dropped, along with what is published until its connection catches up, and
+ * it is then sent one summary of the match in their place before the stream
+ * carries on.
+ * </p>
+ */
+public class Audience {
+
+	/**
+	 * The number of messages queued for a spectator before it falls behind.
+	 */
+	public static final int CAPACITY = 64;
+
+	// Frames a connection may hold unwritten before its spectator waits
+	private static final int MAX_BACKLOG = 16;
+	// Milliseconds a spectator waits for its connection to catch up
+	private static final long BACKLOG_WAIT = 20;
+	private static final Executor WRITERS = Executors
+			.newThreadPerTaskExecutor(Thread.ofVirtual().name("battleship-spectator-", 0).factory());
+
+	private final Supplier<Message> summary;
+	private final int capacity;
+	private final List<Spectator> spectators = new CopyOnWriteArrayList<>();
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private Broadcast lastSummary;
+	private long summarized = -1;
+
+	/**
+	 * Constructs an Audience with queues of {@link #CAPACITY} messages.
+	 *
+	 * @param summary Makes the message sent to a spectator that fell behind, or
+	 *                returns null to send nothing.
+	 */
+	public Audience(Supplier<Message> summary) {
+		this(summary, CAPACITY);
+	}
+
+	/**
+	 * Constructs an Audience.
+	 *
+	 * @param summary  Makes the message sent to a spectator that fell behind, or
+	 *                 returns null to send nothing.
+	 * @param capacity The number of messages queued for a spectator before it
+	 *                 falls behind.
+	 */
+	public Audience(Supplier<Message> summary, int capacity) {
+		this.summary = summary;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds a spectator.
+	 *
+	 * @param connection The spectator's connection.
+	 * @return false if it was already watching.
+	 */
+	public boolean add(Connection connection) {
+		for (Spectator spectator : spectators) {
+			if (spectator.connection == connection) {
+				return false;
+			}
+		}
+		spectators.add(new Spectator(connection));
+		return true;
+	}
+
+	/**
+	 * Removes a spectator. Messages already handed to its connection are still
+	 * written.
+	 *
+	 * @param connection The spectator's connection.
+	 * @return true if it was watching.
+	 */
+	public boolean remove(Connection connection) {
+		for (Spectator spectator : spectators) {
+			if (spectator.connection == connection) {
+				return spectators.remove(spectator);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every spectator.
+	 */
+	public void clear() {
+		spectators.clear();
+	}
+
+	/**
+	 * Retrieves the number of spectators.
+	 *
+	 * @return The number of connections watching.
+	 */
+	public int size() {
+		return spectators.size();
+	}
+
+	/**
+	 * Queues a message for every spectator. Never blocks.
+	 *
+	 * @param message The message, copied so the caller may reuse it.
+	 */
+	public void publish(Message message) {
+		published.incrementAndGet();
+		if (spectators.isEmpty()) {
+			return;
+		}
+		Broadcast broadcast = new Broadcast(message);
+		for (Spectator spectator : spectators) {
+			spectator.offer(broadcast);
+		}
+	}
+
+	/**
+	 * Retrieves the number of times a spectator fell behind and had its queue
+	 * replaced by a summary.
+	 *
+	 * @return The count since the audience was made.
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * Makes the summary of the match as it stands, shared by the spectators
+	 * that fell behind until something new is published.
+	 *
+	 * @return The summary, or null if there is none.
+	 */
+	private synchronized Broadcast summarize() {
+		long now = published.get();
+		if (summarized != now) {
+			Message message = summary.get();
+			lastSummary = message == null ? null : new Broadcast(message);
+			summarized = now;
+		}
+		return lastSummary;
+	}
+
+	/**
+	 * A connection watching the match, with its queue.
+	 */
+	private final class Spectator {
+
+		private final Connection connection;
+		private final ArrayDeque<Broadcast> queue = new ArrayDeque<>();
+		private boolean writing;
+		private boolean behind;
+
+		/**
+		 * Constructs a Spectator.
+		 *
+		 * @param connection The spectator's connection.
+		 */
+		Spectator(Connection connection) {
+			this.connection = connection;
+		}
+
+		/**
+		 * Queues a message, or drops the queue if it is full, and starts the
+		 * writer if it is not running.
+		 *
+		 * @param broadcast The message.
+		 */
+		void offer(Broadcast broadcast) {
+			synchronized (this) {
+				if (behind) {
+					// The summary will stand in for it
+					return;
+				}
+				if (queue.size() >= capacity) {
+					queue.clear();
+					behind = true;
+					coalesced.incrementAndGet();
+				} else {
+					queue.add(broadcast);
+				}
+				if (writing) {
+					return;
+				}
+				writing = true;
+			}
+			WRITERS.execute(this::write);
+		}
+
+		/**
+		 * Hands the queued messages to the connection as fast as it writes them,
+		 * then the summary if the spectator fell behind. Runs on the spectator's
+		 * own virtual thread until the queue is empty.
+		 */
+		private void write() {
+			while (true) {
+				Broadcast next;
+				synchronized (this) {
+					next = queue.poll();
+					if (next == null) {
+						if (!behind) {
+							writing = false;
+							return;
+						}
+						// What is published from here on follows the summary
+						behind = false;
+					}
+				}
+				if (next == null && (next = summarize()) == null) {
+					continue;
+				}
+				try {
+					while (connection.isOpen() && connection.getBacklog() > MAX_BACKLOG) {
+						Thread.sleep(BACKLOG_WAIT);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (!connection.isOpen()) {
+					spectators.remove(this);
+					synchronized (this) {
+						queue.clear();
+						writing = false;
+					}
+					return;
+				}
+				connection.send(next);
+			}
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package battleship.net;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import battleship.model.ShotResult;
+
+/**
+ * The BinaryCodec class reads and writes length-prefixed binary frames. It is
+ * version 2 of the protocol, agreed on with a hello exchange when both peers
+ * speak it.
+ *
+ * <p>
+ * A frame is its body length as a varint followed by the body. The body is the
+ * message type as one byte, its position in {@link MessageType}, and then:
+ * </p>
+ * <ul>
+ * <li>MOVE: row + 1 and column + 1 as varints, so a move on a board of up to
+ * 127 rows and columns is 3 bytes and its frame 4.</li>
+ * <li>PLACE: row + 1 and column + 1 as varints, then the ship length shifted
+ * left by one with the horizontal flag in the low bit.</li>
+ * <li>FLEET: the number of ships as a varint, then each ship as in a
+ * PLACE.</li>
+ * <li>RESULT and SHOT: row + 1 and column + 1 as varints, the position of
+ * the outcome in {@link ShotResult} and the ship id + 1.</li>
+ * <li>SYSTEM: the position of the notice in {@link Notice} as a varint,
+ * then its arguments in UTF-8, separated by commas.</li>
+ * <li>Any other type: the text in UTF-8.</li>
+ * </ul>
+ * <p>
+ * Frames of a type or notice this version does not know are skipped.
+ * </p>
+ */
+public class BinaryCodec implements Codec {
+
+	/**
+	 * The protocol version of this format.
+	 */
+	public static final int VERSION = 2;
+
+	private static final MessageType[] TYPES = MessageType.values();
+	private static final ShotResult[] RESULTS = ShotResult.values();
+
+	private final Message message = new Message();
+	// Body of a frame that has not fully arrived
+	private byte[] frame = new byte[64];
+	private int frameLength = -1;
+	private int framePosition;
+	// Length prefix that has not fully arrived
+	private int header;
+	private int headerShift;
+	// Index of the next byte of the body being read
+	private int readPosition;
+
+	@Override
+	public byte[] encode(Message message) {
+		MessageType type = message.getType();
+		if (type == MessageType.MOVE) {
+			int row = message.getRow() + 1;
+			int column = message.getColumn() + 1;
+			// The body of a MOVE or PLACE is under 128 bytes, so its prefix is one byte
+			byte[] out = new byte[2 + varintSize(row) + varintSize(column)];
+			out[0] = (byte) (out.length - 1);
+			out[1] = (byte) type.ordinal();
+			putVarint(out, putVarint(out, 2, row), column);
+			return out;
+		}
+		if (type == MessageType.PLACE) {
+			int row = message.getRow() + 1;
+			int column = message.getColumn() + 1;
+			int ship = message.getLength() << 1 | (message.isHorizontal() ? 1 : 0);
+			byte[] out = new byte[2 + varintSize(row) + varintSize(column) + varintSize(ship)];
+			out[0] = (byte) (out.length - 1);
+			out[1] = (byte) type.ordinal();
+			putVarint(out, putVarint(out, putVarint(out, 2, row), column), ship);
+			return out;
+		}
+		if (type == MessageType.FLEET) {
+			int[] ships = message.getShips();
+			int[] values = new int[1 + ships.length / 4 * 3];
+			values[0] = ships.length / 4;
+			for (int i = 0, v = 1; i < ships.length; i += 4) {
+				values[v++] = ships[i] + 1;
+				values[v++] = ships[i + 1] + 1;
+				values[v++] = ships[i + 2] << 1 | ships[i + 3];
+			}
+			return encode(type, values);
+		}
+		if (type == MessageType.RESULT || type == MessageType.SHOT) {
+			return encode(type, new int[] { message.getRow() + 1, message.getColumn() + 1,
+					message.getResult().ordinal(), message.getShip() + 1 });
+		}
+		int notice = -1;
+		String content = message.getText();
+		if (type == MessageType.SYSTEM) {
+			notice = message.getNotice().ordinal();
+			int separator = content.indexOf(',');
+			content = separator >= 0 ? content.substring(separator + 1) : "";
+		}
+		byte[] text = content.getBytes(StandardCharsets.UTF_8);
+		int head = notice >= 0 ? varintSize(notice) : 0;
+		int length = 1 + head + text.length;
+		int prefix = varintSize(length);
+		byte[] out = new byte[prefix + length];
+		putVarint(out, 0, length);
+		out[prefix] = (byte) type.ordinal();
+		if (notice >= 0) {
+			putVarint(out, prefix + 1, notice);
+		}
+		System.arraycopy(text, 0, out, prefix + 1 + head, text.length);
+		return out;
+	}
+
+	/**
+	 * Encodes a message whose body is a list of varints.
+	 *
+	 * @param type   The type of the message.
+	 * @param values The numbers of the body.
+	 * @return The encoded frame.
+	 */
+	private static byte[] encode(MessageType type, int[] values) {
+		int length = 1;
+		for (int value : values) {
+			length += varintSize(value);
+		}
+		int prefix = varintSize(length);
+		byte[] out = new byte[prefix + length];
+		int position = putVarint(out, 0, length);
+		out[position++] = (byte) type.ordinal();
+		for (int value : values) {
+			position = putVarint(out, position, value);
+		}
+		return out;
+	}
+
+	@Override
+	public Message decode(ByteBuffer buffer) throws ProtocolException {
+		while (true) {
+			if (frameLength < 0 && !readHeader(buffer)) {
+				return null;
+			}
+			Message decoded;
+			if (framePosition == 0 && buffer.remaining() >= frameLength && buffer.hasArray()) {
+				// The whole frame is here; read it in place
+				int start = buffer.arrayOffset() + buffer.position();
+				buffer.position(buffer.position() + frameLength);
+				decoded = read(buffer.array(), start, frameLength);
+			} else {
+				int count = Math.min(buffer.remaining(), frameLength - framePosition);
+				buffer.get(frame, framePosition, count);
+				framePosition += count;
+				if (framePosition < frameLength) {
+					return null;
+				}
+				decoded = read(frame, 0, frameLength);
+			}
+			frameLength = -1;
+			framePosition = 0;
+			if (decoded != null) {
+				return decoded;
+			}
+		}
+	}
+
+	/**
+	 * Reads the length prefix of the next frame, which may arrive a byte at a
+	 * time.
+	 *
+	 * @param buffer The bytes received.
+	 * @return true if the whole prefix has been read.
+	 * @throws ProtocolException If the frame is too long.
+	 */
+	private boolean readHeader(ByteBuffer buffer) throws ProtocolException {
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get();
+			header |= (b & 0x7F) << headerShift;
+			headerShift += 7;
+			if (header > MAX_FRAME || headerShift > 21) {
+				throw new ProtocolException("Frame longer than " + MAX_FRAME + " bytes");
+			}
+			if (b >= 0) {
+				frameLength = header;
+				header = 0;
+				headerShift = 0;
+				if (frame.length < frameLength) {
+					frame = new byte[Math.max(frameLength, frame.length * 2)];
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads a frame body into the reused message.
+	 *
+	 * @param bytes  The array holding the body.
+	 * @param start  The index of the body in the array.
+	 * @param length The length of the body.
+	 * @return The message, or null if the frame should be skipped.
+	 * @throws ProtocolException If a MOVE or PLACE is cut short.
+	 */
+	private Message read(byte[] bytes, int start, int length) throws ProtocolException {
+		if (length == 0) {
+			return null;
+		}
+		int ordinal = bytes[start] & 0xFF;
+		if (ordinal >= TYPES.length) {
+			return null;
+		}
+		MessageType type = TYPES[ordinal];
+		int end = start + length;
+		if (type == MessageType.MOVE) {
+			readPosition = start + 1;
+			int row = readVarint(bytes, end) - 1;
+			int column = readVarint(bytes, end) - 1;
+			return message.setMove(row, column);
+		}
+		if (type == MessageType.PLACE) {
+			readPosition = start + 1;
+			int row = readVarint(bytes, end) - 1;
+			int column = readVarint(bytes, end) - 1;
+			int ship = readVarint(bytes, end);
+			return message.setPlace(row, column, ship >>> 1, (ship & 1) != 0);
+		}
+		if (type == MessageType.FLEET) {
+			readPosition = start + 1;
+			int count = readVarint(bytes, end);
+			if (count > length) {
+				throw new ProtocolException("Malformed frame");
+			}
+			int[] ships = new int[count * 4];
+			for (int i = 0; i < ships.length; i += 4) {
+				ships[i] = readVarint(bytes, end) - 1;
+				ships[i + 1] = readVarint(bytes, end) - 1;
+				int ship = readVarint(bytes, end);
+				ships[i + 2] = ship >>> 1;
+				ships[i + 3] = ship & 1;
+			}
+			return message.setFleet(ships);
+		}
+		if (type == MessageType.RESULT || type == MessageType.SHOT) {
+			readPosition = start + 1;
+			int row = readVarint(bytes, end) - 1;
+			int column = readVarint(bytes, end) - 1;
+			int result = readVarint(bytes, end);
+			int ship = readVarint(bytes, end) - 1;
+			if (result >= RESULTS.length || RESULTS[result] == ShotResult.INVALID) {
+				throw new ProtocolException("Malformed frame");
+			}
+			return message.setResult(type, row, column, RESULTS[result], ship);
+		}
+		if (type == MessageType.SYSTEM) {
+			readPosition = start + 1;
+			int notice = readVarint(bytes, end);
+			String line = readPosition < end
+					? notice + "," + new String(bytes, readPosition, end - readPosition, StandardCharsets.UTF_8)
+					: String.valueOf(notice);
+			return message.read(type, line) ? message : null;
+		}
+		return message.setText(type, new String(bytes, start + 1, length - 1, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads a varint from a frame body at {@link #readPosition}.
+	 *
+	 * @param bytes The array holding the body.
+	 * @param end   The index after the body.
+	 * @return The number.
+	 * @throws ProtocolException If the body ends inside the varint.
+	 */
+	private int readVarint(byte[] bytes, int end) throws ProtocolException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (readPosition >= end) {
+				break;
+			}
+			byte b = bytes[readPosition++];
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new ProtocolException("Malformed frame");
+	}
+
+	/**
+	 * Writes a number as a varint: seven bits per byte, low bits
+	 * first, the high bit set on every byte but the last.
+	 *
+	 * @param out      The array to write to.
+	 * @param position The index to write at.
+	 * @param value    The number.
+	 * @return The index after the last byte written.
+	 */
+	private static int putVarint(byte[] out, int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			out[position++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * Counts the bytes a number takes as a varint.
+	 *
+	 * @param value The number.
+	 * @return The number of bytes.
+	 */
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,54 @@
+package battleship.net;
+
+/**
+ * The Broadcast class is one message sent to many connections. Encoding has
+ * no state, so the frame is encoded once per codec the first time a
+ * connection speaking it sends the message, and the same bytes are written to
+ * every other connection speaking that codec.
+ */
+public final class Broadcast {
+
+	private final Message message;
+	private volatile byte[] text;
+	private volatile byte[] binary;
+
+	/**
+	 * Constructs a Broadcast.
+	 *
+	 * @param message The message, copied so the caller may reuse it.
+	 */
+	public Broadcast(Message message) {
+		this.message = message.copy();
+	}
+
+	/**
+	 * Retrieves the message.
+	 *
+	 * @return The message, which must not be changed.
+	 */
+	public Message getMessage() {
+		return message;
+	}
+
+	/**
+	 * Retrieves the frame of the message for a codec, encoding it on first use.
+	 * Two connections may race to encode it; both get equal frames.
+	 *
+	 * @param codec The codec of the connection sending it.
+	 * @return The encoded frame, shared and never to be changed.
+	 */
+	byte[] encode(Codec codec) {
+		if (codec instanceof BinaryCodec) {
+			byte[] frame = binary;
+			if (frame == null) {
+				binary = frame = codec.encode(message);
+			}
+			return frame;
+		}
+		byte[] frame = text;
+		if (frame == null) {
+			text = frame = codec.encode(message);
+		}
+		return frame;
+	}
+}
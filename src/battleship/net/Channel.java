@@ -0,0 +1,157 @@
+package battleship.net;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Channel class is one of several matches carried over a single
+ * connection. To the code using it, a channel is a connection of its own,
+ * with its own handler and attachment; it shares the socket, the codec, the
+ * heartbeat and the round trips of the connection it is carried on.
+ *
+ * <p>
+ * On the wire, a {@code CHANNEL::<id>} message selects the channel that the
+ * messages after it belong to, until the next CHANNEL. It is only sent when
+ * the channel changes, so a connection that carries a single match never
+ * sends one, and channel 0 is the connection itself. Hellos, PING and PONG
+ * always belong to the connection. A DISCONNECT on a channel closes only that
+ * channel.
+ * </p>
+ *
+ * <p>
+ * Channels are opened by the side that connected, with
+ * {@link Connection#openChannel(MessageHandler)}, once the peer speaks
+ * {@link #VERSION}. The other side sees a new channel as a new connection,
+ * opened on its first message and handed to the transport's handler.
+ * </p>
+ */
+public final class Channel implements Connection {
+
+	/**
+	 * The protocol version from which peers understand the CHANNEL message.
+	 */
+	public static final int VERSION = 4;
+
+	private final AbstractConnection connection;
+	private final int id;
+	final MessageHandler handler;
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private volatile Object attachment;
+
+	/**
+	 * Constructs a Channel.
+	 *
+	 * @param connection The connection the channel is carried on.
+	 * @param id         The id of the channel, above 0.
+	 * @param handler    The handler for the channel's messages.
+	 */
+	Channel(AbstractConnection connection, int id, MessageHandler handler) {
+		this.connection = connection;
+		this.id = id;
+		this.handler = handler;
+	}
+
+	/**
+	 * Retrieves the id of the channel.
+	 *
+	 * @return The id, above 0.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Retrieves the connection the channel is carried on.
+	 *
+	 * @return The connection.
+	 */
+	public Connection getConnection() {
+		return connection;
+	}
+
+	@Override
+	public void send(Message message) {
+		if (isOpen()) {
+			connection.send(id, message);
+		}
+	}
+
+	@Override
+	public void send(Broadcast broadcast) {
+		if (isOpen()) {
+			connection.send(id, broadcast);
+		}
+	}
+
+	/**
+	 * Opens a channel on the connection this channel is carried on; channels
+	 * are not nested.
+	 */
+	@Override
+	public Connection openChannel(MessageHandler handler) {
+		return connection.openChannel(handler);
+	}
+
+	@Override
+	public int getBacklog() {
+		return connection.getBacklog();
+	}
+
+	@Override
+	public int getProtocolVersion() {
+		return connection.getProtocolVersion();
+	}
+
+	@Override
+	public RoundTripHistogram getRoundTrips() {
+		return connection.getRoundTrips();
+	}
+
+	/**
+	 * Closes the channel, telling the peer with a DISCONNECT on it. The
+	 * connection stays open.
+	 */
+	@Override
+	public void close() {
+		close(true);
+	}
+
+	/**
+	 * Closes the channel and tells the handler, only the first time.
+	 *
+	 * @param tellPeer true to send the peer a DISCONNECT on the channel.
+	 */
+	void close(boolean tellPeer) {
+		if (!closed.compareAndSet(false, true)) {
+			return;
+		}
+		if (tellPeer) {
+			connection.send(id, Message.of(MessageType.DISCONNECT, ""));
+		}
+		connection.forget(this);
+		try {
+			handler.onDisconnected(this);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed.get() && connection.isOpen();
+	}
+
+	@Override
+	public String getRemoteAddress() {
+		return connection.getRemoteAddress() + "#" + id;
+	}
+
+	@Override
+	public Object getAttachment() {
+		return attachment;
+	}
+
+	@Override
+	public void setAttachment(Object attachment) {
+		this.attachment = attachment;
+	}
+}
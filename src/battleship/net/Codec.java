@@ -0,0 +1,37 @@
+package battleship.net;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * The Codec interface turns messages into frames of bytes and back. Encoding
+ * has no state and can be shared; decoding keeps the bytes of a frame that
+ * has not fully arrived, so each connection decodes with its own instance.
+ */
+public interface Codec {
+
+	/**
+	 * The longest frame accepted, in bytes.
+	 */
+	int MAX_FRAME = 64 * 1024;
+
+	/**
+	 * Encodes a message as one frame.
+	 *
+	 * @param message The message.
+	 * @return The encoded frame.
+	 */
+	byte[] encode(Message message);
+
+	/**
+	 * Decodes the next message from the bytes received. Bytes of an incomplete
+	 * frame are kept for the next call.
+	 *
+	 * @param buffer The bytes received; its position is advanced past the bytes
+	 *               used.
+	 * @return The message, reused by the next call, or null if the buffer holds
+	 *         no further complete message.
+	 * @throws ProtocolException If a frame is longer than {@link #MAX_FRAME}.
+	 */
+	Message decode(ByteBuffer buffer) throws ProtocolException;
+}
@@ -0,0 +1,116 @@
+package battleship.net;
+
+/**
+ * The Connection interface is one open link to a peer, created by a
+ * {@link Transport}. Messages can be sent from any thread.
+ */
+public interface Connection {
+
+	/**
+	 * Sends a message to the peer. The message is queued and written by the
+	 * transport, so this never waits on the network.
+	 *
+	 * @param message The message.
+	 */
+	void send(Message message);
+
+	/**
+	 * Sends a message to the peer from its type and its content as text. A MOVE
+	 * or PLACE that cannot be read is not sent.
+	 *
+	 * @param type    The type of the message being sent.
+	 * @param message The message content.
+	 */
+	default void send(MessageType type, String message) {
+		Message parsed = Message.parse(type, message);
+		if (parsed != null) {
+			send(parsed);
+		}
+	}
+
+	/**
+	 * Sends a message shared with other connections, reusing its frame when
+	 * another connection speaking the same codec already encoded it.
+	 *
+	 * @param broadcast The message.
+	 */
+	default void send(Broadcast broadcast) {
+		send(broadcast.getMessage());
+	}
+
+	/**
+	 * Retrieves the number of frames sent but not yet handed to the socket. It
+	 * grows while the peer reads more slowly than messages are sent.
+	 *
+	 * @return The number of frames waiting to be written.
+	 */
+	default int getBacklog() {
+		return 0;
+	}
+
+	/**
+	 * Retrieves the protocol version agreed with the peer. Features a peer may
+	 * not know, such as the FLEET message, are only used from version 2.
+	 *
+	 * @return 1 until the peer has shown it speaks a newer version.
+	 */
+	int getProtocolVersion();
+
+	/**
+	 * Opens a {@link Channel} to carry another match over this connection, for
+	 * gateways and bots that play many games at once. The channel acts as a
+	 * connection of its own towards its handler.
+	 *
+	 * @param handler The handler for the channel's messages.
+	 * @return The channel, already open.
+	 * @throws UnsupportedOperationException If the connection cannot carry
+	 *                                       channels.
+	 */
+	default Connection openChannel(MessageHandler handler) {
+		throw new UnsupportedOperationException("Channels are not supported");
+	}
+
+	/**
+	 * Retrieves the round-trip times measured by the heartbeat. Peers before
+	 * version 2 are not pinged, so theirs stays empty.
+	 *
+	 * @return The histogram of recent round trips.
+	 */
+	RoundTripHistogram getRoundTrips();
+
+	/**
+	 * Closes the connection once the messages already sent have been written.
+	 * A peer that stops answering the heartbeat is closed the same way. The
+	 * handler is told through {@link MessageHandler#onDisconnected(Connection)}.
+	 */
+	void close();
+
+	/**
+	 * Checks if the connection is still open.
+	 *
+	 * @return true if the connection has not been closed.
+	 */
+	boolean isOpen();
+
+	/**
+	 * Retrieves the address of the peer.
+	 *
+	 * @return The remote address as text.
+	 */
+	String getRemoteAddress();
+
+	/**
+	 * Retrieves the object attached to this connection.
+	 *
+	 * @return The attachment, or null if none has been set.
+	 */
+	Object getAttachment();
+
+	/**
+	 * Attaches an object to this connection, such as the state of the player on
+	 * the other end.
+	 *
+	 * @param attachment The object to attach.
+	 */
+	void setAttachment(Object attachment);
+}
@@ -0,0 +1,93 @@
+package battleship.net;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * The FleetCommitment class lets a player commit to a fleet layout without
+ * showing it, and prove at the end of the game that it never changed.
+ *
+ * <p>
+ * The reveal is a random salt and the layout in the text form of a FLEET,
+ * {@code salt:layout}. The commitment is the SHA-256 hash of the reveal in
+ * hexadecimal, sent as a COMMIT before the first shot; the reveal is sent as a
+ * REVEAL once the game is over. The salt keeps the opponent from trying every
+ * possible layout against the hash.
+ * </p>
+ */
+public final class FleetCommitment {
+
+	// Bytes of randomness in each salt
+	private static final int SALT_BYTES = 16;
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final String commit;
+	private final String reveal;
+
+	/**
+	 * Constructs a FleetCommitment to a layout with a fresh salt.
+	 *
+	 * @param fleet The FLEET message holding the layout.
+	 */
+	public FleetCommitment(Message fleet) {
+		byte[] salt = new byte[SALT_BYTES];
+		RANDOM.nextBytes(salt);
+		this.reveal = HexFormat.of().formatHex(salt) + ":" + fleet.getText();
+		this.commit = hash(reveal);
+	}
+
+	/**
+	 * Retrieves the commitment to send as a COMMIT.
+	 *
+	 * @return The hash of the reveal in hexadecimal.
+	 */
+	public String getCommit() {
+		return commit;
+	}
+
+	/**
+	 * Retrieves the reveal to send as a REVEAL.
+	 *
+	 * @return The salt and the layout.
+	 */
+	public String getReveal() {
+		return reveal;
+	}
+
+	/**
+	 * Checks a reveal against the commitment received earlier and reads the
+	 * layout it holds.
+	 *
+	 * @param commit The commitment from the COMMIT.
+	 * @param reveal The reveal from the REVEAL.
+	 * @return The FLEET message holding the revealed layout, or null if the
+	 *         reveal does not match the commitment or is malformed.
+	 */
+	public static Message verify(String commit, String reveal) {
+		int separator = reveal.indexOf(':');
+		if (commit == null || separator < 0 || !MessageDigest.isEqual(
+				hash(reveal).getBytes(StandardCharsets.US_ASCII), commit.getBytes(StandardCharsets.US_ASCII))) {
+			return null;
+		}
+		return Message.parse(MessageType.FLEET, reveal.substring(separator + 1));
+	}
+
+	/**
+	 * Hashes text with SHA-256.
+	 *
+	 * @param text The text to hash.
+	 * @return The hash in hexadecimal.
+	 */
+	private static String hash(String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package battleship.net;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Heartbeat class pings every open connection on a fixed interval from one
+ * shared daemon thread, measuring the round trip and closing a connection that
+ * has been silent for {@link #MISSES} intervals. It is set with the
+ * {@code battleship.heartbeat} system property, in milliseconds: 2000 by
+ * default, or 0 to turn heartbeats off.
+ *
+ * <p>
+ * Only peers at {@link #VERSION} or newer are pinged or timed out; older ones
+ * would neither answer a PING nor could be told apart from an idle player.
+ * </p>
+ */
+final class Heartbeat {
+
+	/**
+	 * The time between two pings, in milliseconds, or 0 if heartbeats are off.
+	 */
+	static final long INTERVAL = Math.max(0, Long.getLong("battleship.heartbeat", 2000));
+
+	/**
+	 * The number of intervals a peer may stay silent before it is taken for
+	 * dead.
+	 */
+	static final int MISSES = 3;
+
+	/**
+	 * The protocol version from which peers answer a PING.
+	 */
+	static final int VERSION = 2;
+
+	private static final Set<AbstractConnection> CONNECTIONS = ConcurrentHashMap.newKeySet();
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private Heartbeat() {
+	}
+
+	/**
+	 * Starts pinging a connection until it is closed.
+	 *
+	 * @param connection The open connection.
+	 */
+	static void watch(AbstractConnection connection) {
+		if (INTERVAL == 0) {
+			return;
+		}
+		CONNECTIONS.add(connection);
+		synchronized (Heartbeat.class) {
+			if (scheduler == null) {
+				scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "battleship-heartbeat");
+					thread.setDaemon(true);
+					return thread;
+				});
+				scheduler.scheduleWithFixedDelay(Heartbeat::beat, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Pings every watched connection, and forgets those that are closed.
+	 */
+	private static void beat() {
+		long now = System.nanoTime();
+		long timeout = TimeUnit.MILLISECONDS.toNanos(INTERVAL * MISSES);
+		for (AbstractConnection connection : CONNECTIONS) {
+			try {
+				if (!connection.isOpen() || !connection.beat(now, timeout)) {
+					CONNECTIONS.remove(connection);
+				}
+			} catch (RuntimeException e) {
+				// One broken connection must not stop the others' heartbeats
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package battleship.net;
+
+/**
+ * The MatchListener interface is told when a {@link MatchStateMachine} is
+ * ready to play or has timed out. Calls are made on the thread that delivered
+ * the last PLACED, or on the shared timer thread, never while the state
+ * machine is locked, so implementations may call back into it.
+ */
+public interface MatchListener {
+
+	/**
+	 * Called once per game when both seats have placed their fleets.
+	 *
+	 * @param match The match, now {@link MatchStateMachine.State#READY}.
+	 */
+	void matchReady(MatchStateMachine match);
+
+	/**
+	 * Called when a state lasted longer than its timeout, after the match was
+	 * abandoned.
+	 *
+	 * @param match The match, now {@link MatchStateMachine.State#GAME_OVER}.
+	 * @param state The state that timed out.
+	 */
+	void matchTimedOut(MatchStateMachine match, MatchStateMachine.State state);
+}
@@ -0,0 +1,225 @@
+package battleship.net;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MatchStateMachine class follows one match between two seats through
+ * {@link State#PLACING}, {@link State#READY}, {@link State#IN_TURN} and
+ * {@link State#GAME_OVER}. It never blocks: each event is a method call that
+ * moves the match on, or is refused if it does not fit the state, and the
+ * timeouts run on one shared daemon thread however many matches there are.
+ *
+ * <p>
+ * Seat 0 is the side that moves first. A state that has a timeout and lasts
+ * longer than it abandons the match: it goes to GAME_OVER and the
+ * {@link MatchListener} is told. A timeout of 0 waits forever.
+ * </p>
+ */
+public class MatchStateMachine {
+
+	/**
+	 * The states of a match.
+	 */
+	public enum State {
+		/**
+		 * The seats are placing their fleets.
+		 */
+		PLACING,
+		/**
+		 * Both fleets are placed and the first move is about to be made.
+		 */
+		READY,
+		/**
+		 * A seat is to move.
+		 */
+		IN_TURN,
+		/**
+		 * The match is over, abandoned, or not yet begun.
+		 */
+		GAME_OVER
+	}
+
+	private static final ScheduledThreadPoolExecutor TIMERS = new ScheduledThreadPoolExecutor(1, runnable -> {
+		Thread thread = new Thread(runnable, "battleship-match-timer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		// Most timeouts are cancelled by the next event long before they are due
+		TIMERS.setRemoveOnCancelPolicy(true);
+	}
+
+	private final MatchListener listener;
+	private final long placingTimeout;
+	private final long turnTimeout;
+
+	private State state = State.GAME_OVER;
+	private int placed;
+	private int turn = -1;
+	// Counts the transitions, so a timeout due after the next one does nothing
+	private long generation;
+	private ScheduledFuture<?> timeout;
+
+	/**
+	 * Constructs a MatchStateMachine without timeouts or a listener.
+	 */
+	public MatchStateMachine() {
+		this(null, 0, 0);
+	}
+
+	/**
+	 * Constructs a MatchStateMachine.
+	 *
+	 * @param listener       Told when the match is ready or timed out, or null.
+	 * @param placingTimeout The longest the seats may take to place their
+	 *                       fleets, in milliseconds, or 0 for no limit.
+	 * @param turnTimeout    The longest a seat may take to move, in
+	 *                       milliseconds, or 0 for no limit.
+	 */
+	public MatchStateMachine(MatchListener listener, long placingTimeout, long turnTimeout) {
+		this.listener = listener;
+		this.placingTimeout = placingTimeout;
+		this.turnTimeout = turnTimeout;
+	}
+
+	/**
+	 * Begins a new match in PLACING, whatever the state of the last one.
+	 */
+	public synchronized void begin() {
+		placed = 0;
+		turn = -1;
+		enter(State.PLACING, placingTimeout);
+	}
+
+	/**
+	 * Records that a seat has placed its fleet, and moves to READY once both
+	 * have.
+	 *
+	 * @param seat The seat, 0 or 1.
+	 * @return false if the match is not PLACING.
+	 */
+	public boolean place(int seat) {
+		synchronized (this) {
+			if (state != State.PLACING) {
+				return false;
+			}
+			placed |= 1 << seat;
+			if (placed != 3) {
+				return true;
+			}
+			enter(State.READY, 0);
+		}
+		if (listener != null) {
+			listener.matchReady(this);
+		}
+		return true;
+	}
+
+	/**
+	 * Records whether a seat has placed its fleet.
+	 *
+	 * @param seat The seat, 0 or 1.
+	 * @return true if the seat has placed its fleet in this match.
+	 */
+	public synchronized boolean hasPlaced(int seat) {
+		return (placed & 1 << seat) != 0;
+	}
+
+	/**
+	 * Gives the first move to a seat once the match is READY.
+	 *
+	 * @param seat The seat to move first.
+	 * @return false if the match is not READY.
+	 */
+	public synchronized boolean play(int seat) {
+		if (state != State.READY) {
+			return false;
+		}
+		turn = seat;
+		enter(State.IN_TURN, turnTimeout);
+		return true;
+	}
+
+	/**
+	 * Records a move by a seat and hands the turn to the other seat.
+	 *
+	 * @param seat The seat moving.
+	 * @return false if it is not that seat's turn.
+	 */
+	public synchronized boolean move(int seat) {
+		if (state != State.IN_TURN || turn != seat) {
+			return false;
+		}
+		turn = 1 - seat;
+		enter(State.IN_TURN, turnTimeout);
+		return true;
+	}
+
+	/**
+	 * Ends the match, which then refuses every event until it begins again.
+	 */
+	public synchronized void end() {
+		turn = -1;
+		enter(State.GAME_OVER, 0);
+	}
+
+	/**
+	 * Retrieves the state of the match.
+	 *
+	 * @return The state.
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Retrieves the seat to move.
+	 *
+	 * @return The seat to move, or -1 if the match is not IN_TURN.
+	 */
+	public synchronized int getTurn() {
+		return turn;
+	}
+
+	/**
+	 * Moves to a state and replaces the timeout of the last one.
+	 *
+	 * @param next    The new state.
+	 * @param timeout The longest the state may last, in milliseconds, or 0 for
+	 *                no limit.
+	 */
+	private void enter(State next, long timeout) {
+		state = next;
+		long current = ++generation;
+		if (this.timeout != null) {
+			this.timeout.cancel(false);
+			this.timeout = null;
+		}
+		if (timeout > 0) {
+			this.timeout = TIMERS.schedule(() -> expire(current), timeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Abandons the match if it is still in the state that timed out.
+	 *
+	 * @param expected The generation of the state that timed out.
+	 */
+	private void expire(long expected) {
+		State expired;
+		synchronized (this) {
+			if (generation != expected) {
+				return;
+			}
+			expired = state;
+			turn = -1;
+			enter(State.GAME_OVER, 0);
+		}
+		if (listener != null) {
+			listener.matchTimedOut(this, expired);
+		}
+	}
+}
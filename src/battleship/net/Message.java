@@ -0,0 +1,528 @@
+package battleship.net;
+
+import battleship.model.ShotResult;
+
+/**
+ * The Message class is one message between players: its type and either a
+ * line of text or, for MOVE, PLACE, FLEET, RESULT and SHOT, the numbers it
+ * carries, or for SYSTEM, a {@link Notice} and its arguments. Codecs reuse a
+ * single Message for everything they decode, so a handler that keeps a
+ * message beyond the call must keep a {@link #copy()} of it.
+ */
+public final class Message {
+
+	/**
+	 * The protocol version from which peers understand the FLEET, COMMIT, REVEAL,
+	 * RESULT and SHOT messages. Older peers are sent one PLACE per ship.
+	 */
+	public static final int FLEET_VERSION = 2;
+
+	/**
+	 * The protocol version from which peers understand the SYSTEM message.
+	 * Older peers are sent the notice as a line of CHAT.
+	 */
+	public static final int NOTICE_VERSION = 3;
+
+	private MessageType type;
+	private String text;
+	private int row;
+	private int column;
+	private int length;
+	private boolean horizontal;
+	private int[] ships;
+	private ShotResult result;
+	private int ship;
+	private Notice notice;
+	private String[] arguments;
+
+	/**
+	 * Constructs an empty Message, to be filled in by a codec.
+	 */
+	Message() {
+	}
+
+	/**
+	 * Creates a message that carries text.
+	 *
+	 * @param type The type of the message.
+	 * @param text The message content.
+	 * @return The message.
+	 */
+	public static Message of(MessageType type, String text) {
+		return new Message().setText(type, text);
+	}
+
+	/**
+	 * Creates a MOVE message.
+	 *
+	 * @param row    The row fired at, or -1 if the player ran out of time.
+	 * @param column The column fired at, or -1 if the player ran out of time.
+	 * @return The message.
+	 */
+	public static Message move(int row, int column) {
+		return new Message().setMove(row, column);
+	}
+
+	/**
+	 * Creates a PLACE message.
+	 *
+	 * @param row        The starting row of the ship.
+	 * @param column     The starting column of the ship.
+	 * @param length     The length of the ship.
+	 * @param horizontal True if the ship lies horizontally.
+	 * @return The message.
+	 */
+	public static Message place(int row, int column, int length, boolean horizontal) {
+		return new Message().setPlace(row, column, length, horizontal);
+	}
+
+	/**
+	 * Creates a FLEET message, the whole layout of a fleet in one message.
+	 *
+	 * @param ships Four numbers for each ship of the fleet, in fleet order: its
+	 *              starting row, starting column, length, and 1 if it lies
+	 *              horizontally or 0 if vertically.
+	 * @return The message.
+	 */
+	public static Message fleet(int[] ships) {
+		return new Message().setFleet(ships.clone());
+	}
+
+	/**
+	 * Creates a RESULT message, the outcome of a shot as seen by the owner of
+	 * the board.
+	 *
+	 * @param row    The row fired at.
+	 * @param column The column fired at.
+	 * @param result The outcome of the shot: HIT, MISS or SUNK.
+	 * @param ship   The id of the ship sunk, or -1 unless the result is SUNK.
+	 * @return The message.
+	 */
+	public static Message result(int row, int column, ShotResult result, int ship) {
+		return new Message().setResult(MessageType.RESULT, row, column, result, ship);
+	}
+
+	/**
+	 * Creates a SHOT message, the outcome of a shot at the recipient's board as
+	 * decided by the host or server that resolves every shot.
+	 *
+	 * @param row    The row fired at.
+	 * @param column The column fired at.
+	 * @param result The outcome of the shot: HIT, MISS or SUNK.
+	 * @param ship   The id of the ship sunk, or -1 unless the result is SUNK.
+	 * @return The message.
+	 */
+	public static Message shot(int row, int column, ShotResult result, int ship) {
+		return new Message().setResult(MessageType.SHOT, row, column, result, ship);
+	}
+
+	/**
+	 * Creates a SYSTEM message, a notice for the receiver to word in its own
+	 * language.
+	 *
+	 * @param notice    The notice.
+	 * @param arguments Its arguments, as many as
+	 *                  {@link Notice#getArgumentCount()}.
+	 * @return The message.
+	 */
+	public static Message system(Notice notice, String... arguments) {
+		if (arguments.length != notice.getArgumentCount()) {
+			throw new IllegalArgumentException(notice + " takes " + notice.getArgumentCount() + " arguments");
+		}
+		return new Message().setSystem(notice, arguments.clone());
+	}
+
+	/**
+	 * Creates a message from its type and its content as text, reading the
+	 * numbers of MOVE ("row,col"), PLACE ("row,col,length,horizontal"), FLEET
+	 * (one PLACE per ship, separated by ';'), RESULT and SHOT
+	 * ("row,col,result,ship") and SYSTEM ("notice,argument,...", where a comma
+	 * or backslash in any argument but the last is escaped with a backslash).
+	 *
+	 * @param type The type of the message.
+	 * @param text The message content.
+	 * @return The message, or null if it is malformed or a SYSTEM this version
+	 *         does not know.
+	 */
+	public static Message parse(MessageType type, String text) {
+		Message message = new Message();
+		return message.read(type, text) ? message : null;
+	}
+
+	/**
+	 * Fills in this message from its type and its content as text.
+	 *
+	 * @param type The type of the message.
+	 * @param text The message content.
+	 * @return true if the content is well formed.
+	 */
+	boolean read(MessageType type, String text) {
+		try {
+			if (type == MessageType.MOVE) {
+				String[] parts = text.split(",");
+				if (parts.length != 2) {
+					return false;
+				}
+				setMove(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+				return true;
+			}
+			if (type == MessageType.PLACE) {
+				String[] details = text.split(",");
+				if (details.length != 4) {
+					return false;
+				}
+				setPlace(Integer.parseInt(details[0]), Integer.parseInt(details[1]), Integer.parseInt(details[2]),
+						Boolean.parseBoolean(details[3]));
+				return true;
+			}
+			if (type == MessageType.FLEET) {
+				String[] placements = text.isEmpty() ? new String[0] : text.split(";");
+				int[] fleet = new int[placements.length * 4];
+				for (int i = 0; i < placements.length; i++) {
+					String[] details = placements[i].split(",");
+					if (details.length != 4) {
+						return false;
+					}
+					fleet[i * 4] = Integer.parseInt(details[0]);
+					fleet[i * 4 + 1] = Integer.parseInt(details[1]);
+					fleet[i * 4 + 2] = Integer.parseInt(details[2]);
+					fleet[i * 4 + 3] = Boolean.parseBoolean(details[3]) ? 1 : 0;
+				}
+				setFleet(fleet);
+				return true;
+			}
+			if (type == MessageType.RESULT || type == MessageType.SHOT) {
+				String[] parts = text.split(",");
+				if (parts.length != 4) {
+					return false;
+				}
+				ShotResult outcome = ShotResult.valueOf(parts[2]);
+				if (outcome == ShotResult.INVALID) {
+					return false;
+				}
+				setResult(type, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), outcome, Integer.parseInt(parts[3]));
+				return true;
+			}
+			if (type == MessageType.SYSTEM) {
+				int separator = text.indexOf(',');
+				Notice notice = Notice.of(Integer.parseInt(separator >= 0 ? text.substring(0, separator) : text));
+				if (notice == null) {
+					return false;
+				}
+				String[] parts = splitArguments(text, separator, notice.getArgumentCount());
+				if (parts == null) {
+					return false;
+				}
+				setSystem(notice, parts);
+				return true;
+			}
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		setText(type, text);
+		return true;
+	}
+
+	/**
+	 * Creates a copy of this message that is safe to keep.
+	 *
+	 * @return The copy.
+	 */
+	public Message copy() {
+		Message copy = new Message();
+		copy.type = type;
+		copy.text = text;
+		copy.row = row;
+		copy.column = column;
+		copy.length = length;
+		copy.horizontal = horizontal;
+		copy.ships = ships;
+		copy.result = result;
+		copy.ship = ship;
+		copy.notice = notice;
+		copy.arguments = arguments;
+		return copy;
+	}
+
+	/**
+	 * Reads the arguments of a SYSTEM, each but the last ending at a comma that
+	 * is not escaped.
+	 *
+	 * @param text      The content of the SYSTEM.
+	 * @param separator The index of the comma after the notice, or -1.
+	 * @param count     The number of arguments of the notice.
+	 * @return The arguments, or null if there are too few.
+	 */
+	private static String[] splitArguments(String text, int separator, int count) {
+		String[] parts = new String[count];
+		if (count == 0) {
+			return parts;
+		}
+		if (separator < 0) {
+			return null;
+		}
+		int position = separator + 1;
+		StringBuilder part = new StringBuilder();
+		for (int i = 0; i < count - 1; i++) {
+			part.setLength(0);
+			while (true) {
+				if (position >= text.length()) {
+					return null;
+				}
+				char c = text.charAt(position++);
+				if (c == ',') {
+					break;
+				}
+				if (c == '\\' && position < text.length()) {
+					c = text.charAt(position++);
+				}
+				part.append(c);
+			}
+			parts[i] = part.toString();
+		}
+		parts[count - 1] = text.substring(position);
+		return parts;
+	}
+
+	/**
+	 * Retrieves the type of the message.
+	 *
+	 * @return The message type.
+	 */
+	public MessageType getType() {
+		return type;
+	}
+
+	/**
+	 * Retrieves the content of the message as text. MOVE, PLACE, FLEET, RESULT,
+	 * SHOT and SYSTEM messages are written out the way the text protocol sends
+	 * them.
+	 *
+	 * @return The message content.
+	 */
+	public String getText() {
+		if (type == MessageType.MOVE) {
+			return row + "," + column;
+		}
+		if (type == MessageType.PLACE) {
+			return row + "," + column + "," + length + "," + horizontal;
+		}
+		if (type == MessageType.FLEET) {
+			StringBuilder fleet = new StringBuilder();
+			for (int i = 0; i < ships.length; i += 4) {
+				if (i > 0) {
+					fleet.append(';');
+				}
+				fleet.append(ships[i]).append(',').append(ships[i + 1]).append(',').append(ships[i + 2]).append(',')
+						.append(ships[i + 3] != 0);
+			}
+			return fleet.toString();
+		}
+		if (type == MessageType.RESULT || type == MessageType.SHOT) {
+			return row + "," + column + "," + result + "," + ship;
+		}
+		if (type == MessageType.SYSTEM) {
+			StringBuilder line = new StringBuilder().append(notice.ordinal());
+			for (int i = 0; i < arguments.length; i++) {
+				line.append(',');
+				if (i == arguments.length - 1) {
+					line.append(arguments[i]);
+					break;
+				}
+				for (int k = 0; k < arguments[i].length(); k++) {
+					char c = arguments[i].charAt(k);
+					if (c == ',' || c == '\\') {
+						line.append('\\');
+					}
+					line.append(c);
+				}
+			}
+			return line.toString();
+		}
+		return text;
+	}
+
+	/**
+	 * Retrieves the row of a MOVE, PLACE, RESULT or SHOT.
+	 *
+	 * @return The row index.
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * Retrieves the column of a MOVE, PLACE, RESULT or SHOT.
+	 *
+	 * @return The column index.
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Retrieves the ship length of a PLACE.
+	 *
+	 * @return The length of the ship.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Checks if the ship of a PLACE lies horizontally.
+	 *
+	 * @return true if the ship is horizontal.
+	 */
+	public boolean isHorizontal() {
+		return horizontal;
+	}
+
+	/**
+	 * Retrieves the layout of a FLEET: four numbers for each ship, its starting
+	 * row, starting column, length, and 1 if it lies horizontally or 0 if
+	 * vertically. The array must not be modified.
+	 *
+	 * @return The layout.
+	 */
+	public int[] getShips() {
+		return ships;
+	}
+
+	/**
+	 * Retrieves the outcome of the shot of a RESULT or SHOT.
+	 *
+	 * @return HIT, MISS or SUNK.
+	 */
+	public ShotResult getResult() {
+		return result;
+	}
+
+	/**
+	 * Retrieves the id of the ship sunk by the shot of a RESULT or SHOT.
+	 *
+	 * @return The ship id, or -1 unless the result is SUNK.
+	 */
+	public int getShip() {
+		return ship;
+	}
+
+	/**
+	 * Retrieves the notice of a SYSTEM.
+	 *
+	 * @return The notice.
+	 */
+	public Notice getNotice() {
+		return notice;
+	}
+
+	/**
+	 * Retrieves the arguments of the notice of a SYSTEM. The array must not be
+	 * modified.
+	 *
+	 * @return The arguments.
+	 */
+	public String[] getArguments() {
+		return arguments;
+	}
+
+	/**
+	 * Makes this a message that carries text.
+	 *
+	 * @param type The type of the message.
+	 * @param text The message content.
+	 * @return This message.
+	 */
+	Message setText(MessageType type, String text) {
+		this.type = type;
+		this.text = text;
+		return this;
+	}
+
+	/**
+	 * Makes this a MOVE message.
+	 *
+	 * @param row    The row fired at.
+	 * @param column The column fired at.
+	 * @return This message.
+	 */
+	Message setMove(int row, int column) {
+		this.type = MessageType.MOVE;
+		this.text = null;
+		this.row = row;
+		this.column = column;
+		return this;
+	}
+
+	/**
+	 * Makes this a PLACE message.
+	 *
+	 * @param row        The starting row of the ship.
+	 * @param column     The starting column of the ship.
+	 * @param length     The length of the ship.
+	 * @param horizontal True if the ship lies horizontally.
+	 * @return This message.
+	 */
+	Message setPlace(int row, int column, int length, boolean horizontal) {
+		this.type = MessageType.PLACE;
+		this.text = null;
+		this.row = row;
+		this.column = column;
+		this.length = length;
+		this.horizontal = horizontal;
+		return this;
+	}
+
+	/**
+	 * Makes this a FLEET message.
+	 *
+	 * @param ships The layout, four numbers for each ship, kept as is.
+	 * @return This message.
+	 */
+	Message setFleet(int[] ships) {
+		this.type = MessageType.FLEET;
+		this.text = null;
+		this.ships = ships;
+		return this;
+	}
+
+	/**
+	 * Makes this a RESULT or SHOT message.
+	 *
+	 * @param type   RESULT or SHOT.
+	 * @param row    The row fired at.
+	 * @param column The column fired at.
+	 * @param result The outcome of the shot.
+	 * @param ship   The id of the ship sunk, or -1.
+	 * @return This message.
+	 */
+	Message setResult(MessageType type, int row, int column, ShotResult result, int ship) {
+		this.type = type;
+		this.text = null;
+		this.row = row;
+		this.column = column;
+		this.result = result;
+		this.ship = ship;
+		return this;
+	}
+
+	/**
+	 * Makes this a SYSTEM message.
+	 *
+	 * @param notice    The notice.
+	 * @param arguments Its arguments, kept as is.
+	 * @return This message.
+	 */
+	Message setSystem(Notice notice, String[] arguments) {
+		this.type = MessageType.SYSTEM;
+		this.text = null;
+		this.notice = notice;
+		this.arguments = arguments;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return type + "::" + getText();
+	}
+}
@@ -0,0 +1,43 @@
+package battleship.net;
+
+/**
+ * The MessageHandler interface receives the events of the connections opened
+ * by a {@link Transport}. Events for one connection are delivered in order, one
+ * at a time, on a thread owned by the transport, so implementations should
+ * hand long work to another thread.
+ */
+public interface MessageHandler {
+
+	/**
+	 * Called once when a connection is open, before any of its messages.
+	 *
+	 * @param connection The new connection.
+	 */
+	void onConnected(Connection connection);
+
+	/**
+	 * Called for every message received on a connection. The message is reused
+	 * for the next one, so keep a {@link Message#copy()} to hold on to it.
+	 *
+	 * @param connection The connection the message arrived on.
+	 * @param message    The message.
+	 */
+	void onMessage(Connection connection, Message message);
+
+	/**
+	 * Called once when a connection is closed, by either side.
+	 *
+	 * @param connection The closed connection.
+	 */
+	void onDisconnected(Connection connection);
+
+	/**
+	 * Called when the heartbeat has timed a round trip to the peer. Does nothing
+	 * unless overridden.
+	 *
+	 * @param connection The connection timed.
+	 * @param micros     The round-trip time in microseconds.
+	 */
+	default void onRoundTrip(Connection connection, long micros) {
+	}
+}
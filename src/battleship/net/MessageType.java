@@ -0,0 +1,12 @@
+package battleship.net;
+
+/**
+ * Enum to define the types of messages that can be sent between the client and
+ * server. The binary protocol sends a type as its position in this list, so new
+ * types are only ever added at the end, and HELLO, no longer sent, keeps its
+ * place.
+ */
+public enum MessageType {
+	NAME, PLACE, MOVE, CHAT, START, RESTART, DISCONNECT, HELLO, FLEET, COMMIT, REVEAL, RESULT, SHOT, PING, PONG,
+	SESSION, RESUME, RESUMED, SYSTEM, CHANNEL
+}
@@ -0,0 +1,540 @@
+package battleship.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The NioTransport class carries messages over non-blocking sockets. A small,
+ * fixed pool of I/O threads each runs a {@link Selector} over its share of the
+ * connections, so the number of threads stays the same however many players
+ * are connected. The first I/O thread also accepts new connections and deals
+ * them out to the others in turn.
+ *
+ * <p>
+ * Each I/O thread reads and writes through a pair of direct buffers that all of
+ * its connections share. A connection only holds on to the bytes of a frame
+ * that has not fully arrived and the messages still waiting to be written, so
+ * an idle connection costs little more than its socket.
+ * </p>
+ *
+ * <p>
+ * Sending never blocks: messages are queued on the connection and written by
+ * its I/O thread, several at a time when they pile up. Handlers are called on
+ * the I/O thread of the connection and should not block it.
+ * </p>
+ */
+public class NioTransport implements Transport {
+
+	/**
+	 * The number of I/O threads used by default: one per core, up to four.
+	 */
+	public static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	// Size of the direct read and write buffers of each I/O thread
+	private static final int BUFFER_SIZE = 16 * 1024;
+	// Connections the operating system may queue before they are accepted
+	private static final int BACKLOG = 1024;
+	// Time allowed to reach a peer, in milliseconds
+	private static final int CONNECT_TIMEOUT = 5000;
+	// Time allowed to write pending messages when the transport closes, in milliseconds
+	private static final long CLOSE_TIMEOUT = 1000;
+
+	private final IoLoop[] loops;
+	private final AtomicInteger nextLoop = new AtomicInteger();
+	private boolean started;
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a NioTransport with {@link #DEFAULT_THREADS} I/O threads.
+	 */
+	public NioTransport() {
+		this(DEFAULT_THREADS);
+	}
+
+	/**
+	 * Constructs a NioTransport with the specified number of I/O threads. The
+	 * threads are started when the transport is first used.
+	 *
+	 * @param threads The number of I/O threads.
+	 * @throws IllegalArgumentException If threads is less than one.
+	 */
+	public NioTransport(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one I/O thread is needed");
+		}
+		this.loops = new IoLoop[threads];
+	}
+
+	@Override
+	public void listen(int port, MessageHandler handler) throws IOException {
+		start();
+		ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.bind(new InetSocketAddress(port), BACKLOG);
+			server.configureBlocking(false);
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+		IoLoop loop = loops[0];
+		loop.execute(() -> loop.register(server, handler));
+	}
+
+	@Override
+	public Connection connect(String address, int port, MessageHandler handler) throws IOException {
+		start();
+		SocketChannel channel = SocketChannel.open();
+		try {
+			channel.socket().connect(new InetSocketAddress(address, port), CONNECT_TIMEOUT);
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		IoLoop loop = nextLoop();
+		NioConnection connection = new NioConnection(loop, channel, handler, true);
+		loop.execute(() -> loop.register(connection));
+		return connection;
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if (started) {
+			for (IoLoop loop : loops) {
+				loop.execute(loop::shutdown);
+			}
+		}
+	}
+
+	/**
+	 * Opens the selectors and starts the I/O threads on first use.
+	 *
+	 * @throws IOException If the transport is closed or a selector cannot be
+	 *                     opened.
+	 */
+	private synchronized void start() throws IOException {
+		if (closed) {
+			throw new IOException("Transport is closed");
+		}
+		if (started) {
+			return;
+		}
+		for (int i = 0; i < loops.length; i++) {
+			loops[i] = new IoLoop(Selector.open());
+		}
+		for (int i = 0; i < loops.length; i++) {
+			Thread thread = new Thread(loops[i], "battleship-io-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		started = true;
+	}
+
+	/**
+	 * Chooses the I/O thread for a new connection, in turn.
+	 *
+	 * @return The chosen I/O thread.
+	 */
+	private IoLoop nextLoop() {
+		return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+	}
+
+	/**
+	 * One I/O thread: a selector over its connections, the tasks handed to it by
+	 * other threads and the direct buffers its connections share.
+	 */
+	private final class IoLoop implements Runnable {
+
+		private final Selector selector;
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private long closeDeadline = -1;
+
+		/**
+		 * Constructs an IoLoop over a selector.
+		 *
+		 * @param selector The selector of the thread.
+		 */
+		IoLoop(Selector selector) {
+			this.selector = selector;
+		}
+
+		/**
+		 * Runs a task on this I/O thread.
+		 *
+		 * @param task The task to run.
+		 */
+		void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					for (Runnable task; (task = tasks.poll()) != null;) {
+						task.run();
+					}
+					if (closeDeadline >= 0
+							&& (selector.keys().isEmpty() || System.currentTimeMillis() > closeDeadline)) {
+						break;
+					}
+					selector.select(closeDeadline >= 0 ? 50 : 0);
+					Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+					while (selected.hasNext()) {
+						SelectionKey key = selected.next();
+						selected.remove();
+						if (!key.isValid()) {
+							continue;
+						}
+						if (key.isAcceptable()) {
+							accept((ServerSocketChannel) key.channel(), (MessageHandler) key.attachment());
+							continue;
+						}
+						NioConnection connection = (NioConnection) key.attachment();
+						if (key.isReadable()) {
+							connection.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							connection.flush();
+						}
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					if (key.attachment() instanceof NioConnection) {
+						((NioConnection) key.attachment()).closeNow();
+					} else {
+						closeQuietly(key);
+					}
+				}
+				try {
+					selector.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		/**
+		 * Registers a listening channel with this thread.
+		 *
+		 * @param server  The listening channel.
+		 * @param handler The handler for every accepted connection.
+		 */
+		void register(ServerSocketChannel server, MessageHandler handler) {
+			try {
+				server.register(selector, SelectionKey.OP_ACCEPT, handler);
+			} catch (ClosedChannelException e) {
+				// Closed before it could be registered
+			}
+		}
+
+		/**
+		 * Registers a connection with this thread and tells its handler.
+		 *
+		 * @param connection The connection.
+		 */
+		void register(NioConnection connection) {
+			try {
+				connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+			} catch (ClosedChannelException e) {
+				connection.closeNow();
+				return;
+			}
+			try {
+				connection.open();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				connection.closeNow();
+				return;
+			}
+			if (connection.closing) {
+				connection.flush();
+			}
+		}
+
+		/**
+		 * Accepts every pending connection and deals them out to the I/O threads.
+		 *
+		 * @param server  The listening channel.
+		 * @param handler The handler for the accepted connections.
+		 */
+		private void accept(ServerSocketChannel server, MessageHandler handler) {
+			while (true) {
+				SocketChannel channel = null;
+				try {
+					channel = server.accept();
+					if (channel == null) {
+						return;
+					}
+					channel.configureBlocking(false);
+					channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				} catch (IOException e) {
+					// Out of descriptors or the peer gave up; keep serving the others
+					e.printStackTrace();
+					if (channel == null) {
+						return;
+					}
+					try {
+						channel.close();
+					} catch (IOException ignored) {
+						// Nothing more to do
+					}
+					continue;
+				}
+				IoLoop loop = nextLoop();
+				NioConnection connection = new NioConnection(loop, channel, handler, false);
+				loop.execute(() -> loop.register(connection));
+			}
+		}
+
+		/**
+		 * Stops accepting, closes every connection once its pending messages are
+		 * written and lets the thread end after {@link #CLOSE_TIMEOUT} at the
+		 * latest.
+		 */
+		void shutdown() {
+			closeDeadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() instanceof NioConnection) {
+					((NioConnection) key.attachment()).close();
+				} else {
+					closeQuietly(key);
+				}
+			}
+		}
+
+		/**
+		 * Cancels a key and closes its channel.
+		 *
+		 * @param key The key.
+		 */
+		private void closeQuietly(SelectionKey key) {
+			key.cancel();
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * A connection over a non-blocking channel, served by one I/O thread. Only
+	 * {@link #send(Message)} and {@link #close()} are called from other threads;
+	 * everything else runs on the I/O thread.
+	 */
+	private final class NioConnection extends AbstractConnection {
+
+		private final IoLoop loop;
+		private final SocketChannel channel;
+		private final String remoteAddress;
+		private SelectionKey key;
+
+		private final Queue<byte[]> outbound = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger backlog = new AtomicInteger();
+		private final AtomicBoolean flushScheduled = new AtomicBoolean();
+		private ByteBuffer current;
+		private ByteBuffer unwritten;
+
+		private volatile boolean closing;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		/**
+		 * Constructs a NioConnection over a connected channel.
+		 *
+		 * @param loop      The I/O thread serving the connection.
+		 * @param channel   The connected, non-blocking channel.
+		 * @param handler   The handler for the connection.
+		 * @param initiator True if this side connected to the peer.
+		 */
+		NioConnection(IoLoop loop, SocketChannel channel, MessageHandler handler, boolean initiator) {
+			super(handler, initiator);
+			this.loop = loop;
+			this.channel = channel;
+			this.remoteAddress = String.valueOf(channel.socket().getRemoteSocketAddress());
+		}
+
+		@Override
+		void write(byte[] frame) {
+			if (closing || closed.get()) {
+				return;
+			}
+			outbound.add(frame);
+			backlog.incrementAndGet();
+			if (flushScheduled.compareAndSet(false, true)) {
+				loop.execute(this::flush);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (closed.get()) {
+				return;
+			}
+			closing = true;
+			loop.execute(this::flush);
+		}
+
+		@Override
+		void abort() {
+			loop.execute(this::closeNow);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !closed.get();
+		}
+
+		@Override
+		public int getBacklog() {
+			return backlog.get();
+		}
+
+		@Override
+		public String getRemoteAddress() {
+			return remoteAddress;
+		}
+
+		/**
+		 * Reads what has arrived and passes every complete message to the handler.
+		 */
+		void read() {
+			ByteBuffer buffer = loop.readBuffer;
+			buffer.clear();
+			int count;
+			try {
+				count = channel.read(buffer);
+			} catch (IOException e) {
+				closeNow();
+				return;
+			}
+			if (count < 0) {
+				closeNow();
+				return;
+			}
+			buffer.flip();
+			try {
+				receive(buffer);
+			} catch (ProtocolException e) {
+				closeNow();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				closeNow();
+			}
+		}
+
+		/**
+		 * Writes as many pending messages as the socket takes, gathering them into
+		 * the I/O thread's write buffer. Whatever the socket does not take is kept
+		 * and written when it becomes writable.
+		 */
+		void flush() {
+			flushScheduled.set(false);
+			if (closed.get() || key == null) {
+				return;
+			}
+			ByteBuffer buffer = loop.writeBuffer;
+			try {
+				while (true) {
+					buffer.clear();
+					fill(buffer);
+					if (buffer.position() == 0) {
+						break;
+					}
+					buffer.flip();
+					channel.write(buffer);
+					if (buffer.hasRemaining()) {
+						unwritten = ByteBuffer.allocate(buffer.remaining());
+						unwritten.put(buffer).flip();
+						key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+						return;
+					}
+				}
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			} catch (IOException e) {
+				closeNow();
+				return;
+			}
+			if (closing) {
+				closeNow();
+			}
+		}
+
+		/**
+		 * Copies pending bytes into a buffer: first what the socket did not take
+		 * last time, then queued messages until the buffer is full.
+		 *
+		 * @param buffer The buffer to fill.
+		 */
+		private void fill(ByteBuffer buffer) {
+			if (unwritten != null) {
+				buffer.put(unwritten);
+				unwritten = null;
+			}
+			while (buffer.hasRemaining()) {
+				if (current == null) {
+					byte[] next = outbound.poll();
+					if (next == null) {
+						return;
+					}
+					backlog.decrementAndGet();
+					current = ByteBuffer.wrap(next);
+				}
+				if (current.remaining() <= buffer.remaining()) {
+					buffer.put(current);
+					current = null;
+				} else {
+					int count = buffer.remaining();
+					buffer.put(current.slice(current.position(), count));
+					current.position(current.position() + count);
+				}
+			}
+		}
+
+		/**
+		 * Closes the channel at once and tells the handler, only the first time.
+		 */
+		void closeNow() {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			outbound.clear();
+			backlog.set(0);
+			closeChannels();
+			try {
+				handler.onDisconnected(this);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package battleship.net;
+
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+/**
+ * Enum to define the notices a game sends its opponent in a SYSTEM message.
+ * A notice travels as its position in this list and its arguments, and the
+ * receiver builds the line from its own resource bundle, so each player reads
+ * it in their own language. The position is sent on the wire, so new notices
+ * are only ever added at the end.
+ *
+ * <p>
+ * The notices after TIMEOUT are the lines of a dedicated server. Their text in
+ * the resource bundle is itself a {@link MessageFormat} pattern of the
+ * arguments, and they are shown as said by the server.
+ * </p>
+ */
+public enum Notice {
+	CONNECTED("host.connected", "{0} {1}"), DISCONNECTED("host.disconnected", "{0} {1}"),
+	RESTART_REQUEST("game.request", "{0} : {1}"), TIMEOUT("game.timeout", "{0} : {1}"),
+	WELCOME("server.welcome", 0), CHAT_THROTTLED("server.throttled", 0), COMMANDS("server.commands", 0),
+	LOST_CONNECTION("server.lost", 2), BACK("server.back", 1), NOT_IN_ROOM("server.noroom", 0),
+	LEFT("server.left", 1), STOPPED_WATCHING("server.unwatched", 1), NO_ROUND_TRIP("server.noping", 0),
+	ROUND_TRIP("server.ping", 2), MATCH_ROUND_TRIP("server.ping.match", 4), NO_ROOMS("server.norooms", 0),
+	ROOMS("server.rooms", 1), MORE_ROOMS("server.rooms.more", 2), LEAVE_FIRST("server.leave", 1),
+	BAD_ROOM_NAME("server.badname", 1), SERVER_FULL("server.full", 0), ROOM_EXISTS("server.exists", 1),
+	ROOM_OPENED("server.opened", 1), NO_SUCH_ROOM("server.unknown", 1), ROOM_FULL("server.roomfull", 1),
+	WATCHING("server.watching", 1), ROOM_CLOSED("server.closed", 1), OPPONENT_JOINED("server.joined", 2),
+	JOINED("server.join", 2), OPPONENT_LEFT("server.opponentleft", 2);
+
+	// The key of the server's name, which says the lines of a dedicated server
+	private static final String SERVER = "server.name";
+
+	private static final Notice[] NOTICES = values();
+
+	private final String key;
+	// The layout of the line, or null for a line of a dedicated server
+	private final String pattern;
+	private final int arguments;
+
+	/**
+	 * Constructs a Notice.
+	 *
+	 * @param key     The key of its text in the resource bundle.
+	 * @param pattern The layout of the line: the arguments, then the text as the
+	 *                last one.
+	 */
+	Notice(String key, String pattern) {
+		this.key = key;
+		this.pattern = pattern;
+		this.arguments = new MessageFormat(pattern).getFormatsByArgumentIndex().length - 1;
+	}
+
+	/**
+	 * Constructs the Notice of a line of a dedicated server.
+	 *
+	 * @param key       The key of its text in the resource bundle, a pattern of
+	 *                  the arguments.
+	 * @param arguments The number of arguments.
+	 */
+	Notice(String key, int arguments) {
+		this.key = key;
+		this.pattern = null;
+		this.arguments = arguments;
+	}
+
+	/**
+	 * Retrieves the key of the notice's text in the resource bundle.
+	 *
+	 * @return The key.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Retrieves the number of arguments the notice carries.
+	 *
+	 * @return The number of arguments.
+	 */
+	public int getArgumentCount() {
+		return arguments;
+	}
+
+	/**
+	 * Builds the line of the notice in the language of a resource bundle.
+	 *
+	 * @param bundle    The resource bundle of the reader.
+	 * @param arguments The arguments of the notice.
+	 * @return The line.
+	 */
+	public String format(ResourceBundle bundle, String... arguments) {
+		if (pattern == null) {
+			return bundle.getString(SERVER) + " : " + MessageFormat.format(bundle.getString(key), (Object[]) arguments);
+		}
+		Object[] values = new Object[arguments.length + 1];
+		System.arraycopy(arguments, 0, values, 0, arguments.length);
+		values[arguments.length] = bundle.getString(key);
+		return MessageFormat.format(pattern, values);
+	}
+
+	/**
+	 * Retrieves a notice from its position on the wire.
+	 *
+	 * @param id The position of the notice.
+	 * @return The notice, or null if this version does not know it.
+	 */
+	static Notice of(int id) {
+		return id >= 0 && id < NOTICES.length ? NOTICES[id] : null;
+	}
+}
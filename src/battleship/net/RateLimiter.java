@@ -0,0 +1,98 @@
+package battleship.net;
+
+/**
+ * The RateLimiter class is a token bucket for the messages of one sender. The
+ * bucket holds up to a burst of tokens and refills at a steady rate; each
+ * message takes a token, and a message that finds the bucket empty is
+ * dropped. The sender is throttled from its first dropped message until a
+ * token is free again.
+ *
+ * <p>
+ * Chat is limited per sender to {@link #CHAT_RATE} lines a second, set with
+ * the {@code battleship.chatrate} system property, or 0 for no limit, with
+ * bursts of up to {@link #CHAT_BURST} lines.
+ * </p>
+ */
+public class RateLimiter {
+
+	/**
+	 * The outcome of a message offered to the limiter.
+	 */
+	public enum Admission {
+		/**
+		 * The message is within the rate.
+		 */
+		PASSED,
+		/**
+		 * The message is dropped, and the sender has just gone over the rate.
+		 */
+		THROTTLED,
+		/**
+		 * The message is dropped, and the sender was already throttled.
+		 */
+		DROPPED
+	}
+
+	/**
+	 * The chat lines a second allowed per sender, or 0 for no limit. 5 by
+	 * default.
+	 */
+	public static final double CHAT_RATE = Math.max(0,
+			Double.parseDouble(System.getProperty("battleship.chatrate", "5")));
+
+	/**
+	 * The chat lines a sender may send at once before the rate applies.
+	 */
+	public static final int CHAT_BURST = 10;
+
+	private final double perNano;
+	private final double burst;
+	private double tokens;
+	private long last = System.nanoTime();
+	private boolean throttled;
+
+	/**
+	 * Constructs a RateLimiter with a full bucket.
+	 *
+	 * @param perSecond The messages a second allowed, or 0 for no limit.
+	 * @param burst     The messages allowed at once.
+	 */
+	public RateLimiter(double perSecond, int burst) {
+		this.perNano = perSecond / 1e9;
+		this.burst = Math.max(1, burst);
+		this.tokens = this.burst;
+	}
+
+	/**
+	 * Constructs a RateLimiter for the chat lines of one sender.
+	 *
+	 * @return The limiter, at {@link #CHAT_RATE} and {@link #CHAT_BURST}.
+	 */
+	public static RateLimiter forChat() {
+		return new RateLimiter(CHAT_RATE, CHAT_BURST);
+	}
+
+	/**
+	 * Takes a token for a message, if one is free.
+	 *
+	 * @return PASSED if the message may go on, otherwise THROTTLED or DROPPED.
+	 */
+	public synchronized Admission admit() {
+		if (perNano == 0) {
+			return Admission.PASSED;
+		}
+		long now = System.nanoTime();
+		tokens = Math.min(burst, tokens + (now - last) * perNano);
+		last = now;
+		if (tokens >= 1) {
+			tokens--;
+			throttled = false;
+			return Admission.PASSED;
+		}
+		if (throttled) {
+			return Admission.DROPPED;
+		}
+		throttled = true;
+		return Admission.THROTTLED;
+	}
+}
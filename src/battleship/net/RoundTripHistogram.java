@@ -0,0 +1,191 @@
+package battleship.net;
+
+import java.util.Arrays;
+
+/**
+ * The RoundTripHistogram class keeps the round-trip times of the last
+ * {@link #WINDOW} heartbeats of a connection. Times are counted in buckets
+ * four to a power of two, so a percentile is read without sorting and is at
+ * most a quarter above the true value.
+ *
+ * <p>
+ * Histograms of several connections can be merged into one to read
+ * percentiles across all of them; merged samples, and those added with
+ * {@link #add(long)}, are kept until {@link #clear()}.
+ * </p>
+ */
+public class RoundTripHistogram {
+
+	/**
+	 * The number of recent samples kept.
+	 */
+	public static final int WINDOW = 64;
+
+	// Buckets per power of two
+	private static final int SUB_BUCKETS = 4;
+	// Enough buckets for any positive long
+	private static final int BUCKETS = 256;
+
+	private final long[] samples = new long[WINDOW];
+	private final long[] counts = new long[BUCKETS];
+	private int next;
+	private int recorded;
+	private long count;
+	private long sum;
+	private long last = -1;
+
+	/**
+	 * Records a round-trip time, dropping the oldest once the window is full.
+	 *
+	 * @param micros The round-trip time in microseconds.
+	 */
+	public synchronized void record(long micros) {
+		micros = Math.max(0, micros);
+		if (recorded == WINDOW) {
+			long oldest = samples[next];
+			counts[bucket(oldest)]--;
+			count--;
+			sum -= oldest;
+		} else {
+			recorded++;
+		}
+		samples[next] = micros;
+		next = (next + 1) % WINDOW;
+		counts[bucket(micros)]++;
+		count++;
+		sum += micros;
+		last = micros;
+	}
+
+	/**
+	 * Adds a time outside the window, kept like merged samples until
+	 * {@link #clear()}, for percentiles over a whole run.
+	 *
+	 * @param micros The time in microseconds.
+	 */
+	public synchronized void add(long micros) {
+		micros = Math.max(0, micros);
+		counts[bucket(micros)]++;
+		count++;
+		sum += micros;
+		last = micros;
+	}
+
+	/**
+	 * Adds the samples of another histogram to this one.
+	 *
+	 * @param other The histogram to merge in.
+	 */
+	public void merge(RoundTripHistogram other) {
+		long[] otherCounts;
+		long otherSum;
+		synchronized (other) {
+			otherCounts = other.counts.clone();
+			otherSum = other.sum;
+		}
+		synchronized (this) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] += otherCounts[i];
+				count += otherCounts[i];
+			}
+			sum += otherSum;
+		}
+	}
+
+	/**
+	 * Forgets every sample.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(counts, 0);
+		next = 0;
+		recorded = 0;
+		count = 0;
+		sum = 0;
+		last = -1;
+	}
+
+	/**
+	 * Retrieves the number of samples held.
+	 *
+	 * @return The number of samples.
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Retrieves the latest round-trip time recorded.
+	 *
+	 * @return The time in microseconds, or -1 if none was recorded.
+	 */
+	public synchronized long getLast() {
+		return last;
+	}
+
+	/**
+	 * Retrieves the mean of the samples held.
+	 *
+	 * @return The mean in microseconds, or -1 if there are none.
+	 */
+	public synchronized long getMean() {
+		return count == 0 ? -1 : sum / count;
+	}
+
+	/**
+	 * Retrieves a percentile of the samples held, such as 0.5 for the median or
+	 * 0.99 for the 99th percentile.
+	 *
+	 * @param fraction The fraction of samples at or below the value, from 0 to
+	 *                 1.
+	 * @return The upper bound of the bucket holding the percentile in
+	 *         microseconds, or -1 if there are no samples.
+	 */
+	public synchronized long getPercentile(double fraction) {
+		if (count == 0) {
+			return -1;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * Finds the bucket of a time.
+	 *
+	 * @param micros The time in microseconds, not negative.
+	 * @return The bucket index.
+	 */
+	private static int bucket(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		return SUB_BUCKETS * (exponent - 1) + (int) (micros >>> (exponent - 2) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Finds the largest time in a bucket.
+	 *
+	 * @param bucket The bucket index.
+	 * @return The time in microseconds.
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + 1;
+		long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+		return lower + (1L << (exponent - 2)) - 1;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "p50=" + getPercentile(0.5) + "us p99=" + getPercentile(0.99) + "us n=" + count;
+	}
+}
@@ -0,0 +1,193 @@
+package battleship.net;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * The Session class lets a match outlive the connection it started on. The
+ * side that accepted the connection issues a random token with a SESSION
+ * message; both sides then number the game messages of each match as they
+ * send and receive them, and keep a copy of those they sent.
+ *
+ * <p>
+ * A START of "START" begins a match, and both counts start again from it. The
+ * numbers are never sent with the messages: a connection delivers them in
+ * order, so each side's count of what it received is the sequence number of
+ * the last message that arrived. A client whose connection drops reconnects
+ * with {@code RESUME::token,received}; the other side answers with
+ * {@code RESUMED::received}, or -1 if it cannot resume, and each side sends
+ * again what the other missed.
+ * </p>
+ *
+ * <p>
+ * Chat and the messages of the handshake and heartbeat are not counted, and
+ * are not sent again.
+ * </p>
+ */
+public class Session {
+
+	/**
+	 * The most messages kept for one match; a longer match cannot be resumed.
+	 */
+	public static final int MAX_LOG = 4096;
+
+	/**
+	 * The protocol version from which peers understand the SESSION, RESUME and
+	 * RESUMED messages.
+	 */
+	public static final int VERSION = 2;
+
+	// Bytes of randomness in each token
+	private static final int TOKEN_BYTES = 16;
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final String token;
+	private final List<Message> sent = new ArrayList<>();
+	private int received;
+	private boolean started;
+	private boolean overflowed;
+
+	/**
+	 * Constructs a Session with a fresh token, for the side that issues it.
+	 */
+	public Session() {
+		byte[] bytes = new byte[TOKEN_BYTES];
+		RANDOM.nextBytes(bytes);
+		this.token = HexFormat.of().formatHex(bytes);
+	}
+
+	/**
+	 * Constructs a Session with a token received in a SESSION message.
+	 *
+	 * @param token The token.
+	 */
+	public Session(String token) {
+		this.token = token;
+	}
+
+	/**
+	 * Checks if a message is numbered and sent again after a reconnect.
+	 *
+	 * @param type The type of the message.
+	 * @return true for the messages that make up a match.
+	 */
+	public static boolean isCounted(MessageType type) {
+		switch (type) {
+		case START:
+		case RESTART:
+		case PLACE:
+		case MOVE:
+		case FLEET:
+		case COMMIT:
+		case REVEAL:
+		case RESULT:
+		case SHOT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Retrieves the token that identifies the session.
+	 *
+	 * @return The token.
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * Checks if a match has begun, so there is something to resume.
+	 *
+	 * @return true once a START of "START" has been sent or received.
+	 */
+	public synchronized boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * Records a message about to be sent to the other side.
+	 *
+	 * @param message The message.
+	 */
+	public synchronized void sent(Message message) {
+		if (!isCounted(message.getType())) {
+			return;
+		}
+		if (isMatchStart(message)) {
+			start();
+		}
+		if (!started) {
+			return;
+		}
+		if (sent.size() < MAX_LOG) {
+			sent.add(message.copy());
+		} else {
+			overflowed = true;
+		}
+	}
+
+	/**
+	 * Counts a message received from the other side.
+	 *
+	 * @param message The message.
+	 */
+	public synchronized void received(Message message) {
+		if (!isCounted(message.getType())) {
+			return;
+		}
+		if (isMatchStart(message)) {
+			start();
+		}
+		if (started) {
+			received++;
+		}
+	}
+
+	/**
+	 * Retrieves the number of messages of the match received so far.
+	 *
+	 * @return The count, sent in a RESUME or RESUMED.
+	 */
+	public synchronized int getReceived() {
+		return received;
+	}
+
+	/**
+	 * Retrieves the messages of the match sent after those the other side
+	 * received.
+	 *
+	 * @param count The number of messages the other side received.
+	 * @return The messages it missed, or null if the match cannot be resumed
+	 *         from there.
+	 */
+	public synchronized List<Message> since(int count) {
+		if (!started || overflowed || count < 0 || count > sent.size()) {
+			return null;
+		}
+		return new ArrayList<>(sent.subList(count, sent.size()));
+	}
+
+	/**
+	 * Begins counting a new match.
+	 */
+	private void start() {
+		started = true;
+		overflowed = false;
+		sent.clear();
+		received = 0;
+	}
+
+	/**
+	 * Checks if a message begins a match.
+	 *
+	 * @param message The message.
+	 * @return true for a START of "START".
+	 */
+	private static boolean isMatchStart(Message message) {
+		return message.getType() == MessageType.START && "START".equals(message.getText());
+	}
+}
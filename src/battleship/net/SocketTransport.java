@@ -0,0 +1,340 @@
+package battleship.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The SocketTransport class carries messages over blocking sockets. Each
+ * listening port has a thread blocked in {@code accept()} and each connection
+ * has a thread blocked reading. With platform threads it suits a
+ * handful of connections; {@link VirtualThreadTransport} runs the same code on
+ * virtual threads for many.
+ *
+ * <p>
+ * Sending only queues the message, so the game's threads never wait on a
+ * slow peer. A second thread writes out whatever has queued up, gathering a
+ * burst of messages into one write to the socket rather than one each. It is
+ * started by the first message queued and ends once nothing more has come for
+ * a moment, so an idle connection has no writing thread or buffer.
+ * </p>
+ */
+public class SocketTransport implements Transport {
+
+	// Connections the operating system may queue before they are accepted
+	private static final int BACKLOG = 1024;
+	// Time allowed to reach a peer, in milliseconds
+	private static final int CONNECT_TIMEOUT = 5000;
+	// Size of the buffer each connection reads into
+	private static final int READ_BUFFER = 512;
+	// Size of the buffer the writing thread gathers frames into before writing
+	private static final int WRITE_BUFFER = 8192;
+	// Time the writing thread waits for more frames before it ends
+	private static final long LINGER = TimeUnit.MILLISECONDS.toNanos(200);
+
+	private final ThreadFactory threads;
+	private final List<ServerSocket> servers = new CopyOnWriteArrayList<>();
+	private final Set<SocketConnection> connections = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a SocketTransport that runs on platform threads.
+	 */
+	public SocketTransport() {
+		this(Thread::new);
+	}
+
+	/**
+	 * Constructs a SocketTransport that creates its accepting and reading
+	 * threads with the given factory.
+	 *
+	 * @param threads The factory for the transport's threads.
+	 */
+	protected SocketTransport(ThreadFactory threads) {
+		this.threads = threads;
+	}
+
+	@Override
+	public void listen(int port, MessageHandler handler) throws IOException {
+		if (closed) {
+			throw new IOException("Transport is closed");
+		}
+		ServerSocket server = new ServerSocket(port, BACKLOG);
+		servers.add(server);
+		Thread acceptThread = threads.newThread(() -> {
+			try {
+				while (!closed) {
+					Socket socket = server.accept();
+					try {
+						open(socket, handler, false);
+					} catch (IOException e) {
+						socket.close();
+					}
+				}
+			} catch (IOException e) {
+				if (!closed) {
+					e.printStackTrace();
+				}
+			}
+		});
+		acceptThread.setName("battleship-accept-" + port);
+		acceptThread.start();
+	}
+
+	@Override
+	public Connection connect(String address, int port, MessageHandler handler) throws IOException {
+		if (closed) {
+			throw new IOException("Transport is closed");
+		}
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(address, port), CONNECT_TIMEOUT);
+			return open(socket, handler, true);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		for (ServerSocket server : servers) {
+			try {
+				server.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		servers.clear();
+		for (SocketConnection connection : connections) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Wraps a connected socket and starts the thread that reads from it.
+	 *
+	 * @param socket    The connected socket.
+	 * @param handler   The handler for the connection.
+	 * @param initiator True if this side connected to the peer.
+	 * @return The connection.
+	 * @throws IOException If the socket streams cannot be opened.
+	 */
+	private SocketConnection open(Socket socket, MessageHandler handler, boolean initiator) throws IOException {
+		socket.setTcpNoDelay(true);
+		SocketConnection connection = new SocketConnection(socket, handler, initiator);
+		connections.add(connection);
+		Thread receiveThread = threads.newThread(connection::run);
+		receiveThread.setName("battleship-receive-" + connection.getRemoteAddress());
+		receiveThread.start();
+		if (closed) {
+			// Accepted while the transport was closing
+			connection.close();
+		}
+		return connection;
+	}
+
+	/**
+	 * A connection over a blocking socket, read by one thread and written by
+	 * another while there is something to write. Senders add frames to a
+	 * lock-free queue, then start the writing thread if there is none, or wake
+	 * it only if it is parked waiting for one.
+	 */
+	private final class SocketConnection extends AbstractConnection {
+
+		private final Socket socket;
+		private final OutputStream out;
+		private final InputStream in;
+		private final String remoteAddress;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private final Queue<byte[]> outbound = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger backlog = new AtomicInteger();
+		// Set while a writing thread runs, by whoever starts it
+		private final AtomicBoolean writing = new AtomicBoolean();
+		// Set by the writing thread just before it parks
+		private final AtomicBoolean idle = new AtomicBoolean();
+		private volatile Thread writer;
+		private volatile boolean closing;
+
+		/**
+		 * Constructs a SocketConnection over a connected socket.
+		 *
+		 * @param socket    The connected socket.
+		 * @param handler   The handler for the connection.
+		 * @param initiator True if this side connected to the peer.
+		 * @throws IOException If the socket streams cannot be opened.
+		 */
+		SocketConnection(Socket socket, MessageHandler handler, boolean initiator) throws IOException {
+			super(handler, initiator);
+			this.socket = socket;
+			this.out = socket.getOutputStream();
+			this.in = socket.getInputStream();
+			this.remoteAddress = String.valueOf(socket.getRemoteSocketAddress());
+		}
+
+		/**
+		 * Reads until the socket is closed, passing each message to the handler.
+		 */
+		void run() {
+			try {
+				open();
+				byte[] bytes = new byte[READ_BUFFER];
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				int count;
+				while ((count = in.read(bytes)) >= 0) {
+					buffer.clear().limit(count);
+					receive(buffer);
+				}
+			} catch (ProtocolException e) {
+				// The peer broke the protocol; drop it
+			} catch (IOException e) {
+				if (!closed.get()) {
+					e.printStackTrace();
+				}
+			} finally {
+				close();
+			}
+		}
+
+		/**
+		 * Writes the queued frames, gathering them into one write each time the
+		 * queue runs dry, until nothing more comes for {@link #LINGER}. Closes the
+		 * socket once what was queued before {@link #close()} is written.
+		 */
+		void drain() {
+			byte[] buffer = new byte[WRITE_BUFFER];
+			int length = 0;
+			try {
+				while (true) {
+					byte[] frame = outbound.poll();
+					if (frame != null) {
+						backlog.decrementAndGet();
+						if (length + frame.length > buffer.length) {
+							out.write(buffer, 0, length);
+							length = 0;
+						}
+						if (frame.length > buffer.length) {
+							out.write(frame);
+						} else {
+							System.arraycopy(frame, 0, buffer, length, frame.length);
+							length += frame.length;
+						}
+						continue;
+					}
+					if (length > 0) {
+						out.write(buffer, 0, length);
+						length = 0;
+					}
+					if (closing || closed.get()) {
+						break;
+					}
+					idle.set(true);
+					if (outbound.isEmpty() && !closing && !closed.get()) {
+						LockSupport.parkNanos(this, LINGER);
+					}
+					idle.set(false);
+					if (outbound.isEmpty() && !closing && !closed.get()) {
+						// Nothing came: end, unless a frame or close slipped in as this thread stopped
+						writing.set(false);
+						if (outbound.isEmpty() && !closing || !writing.compareAndSet(false, true)) {
+							return;
+						}
+					}
+				}
+			} catch (IOException e) {
+				// The peer is gone; nothing more can be written
+			}
+			closeNow();
+		}
+
+		@Override
+		void write(byte[] frame) {
+			if (closing || closed.get()) {
+				return;
+			}
+			outbound.add(frame);
+			backlog.incrementAndGet();
+			wake();
+		}
+
+		/**
+		 * Starts a writing thread if there is none, or unparks it if it is
+		 * waiting for frames.
+		 */
+		private void wake() {
+			if (writing.compareAndSet(false, true)) {
+				Thread thread = threads.newThread(this::drain);
+				thread.setName("battleship-send-" + remoteAddress);
+				writer = thread;
+				thread.start();
+			} else if (idle.compareAndSet(true, false)) {
+				LockSupport.unpark(writer);
+			}
+		}
+
+		@Override
+		public void close() {
+			closing = true;
+			wake();
+		}
+
+		@Override
+		void abort() {
+			closeNow();
+		}
+
+		/**
+		 * Closes the socket at once and tells the handler, only the first time.
+		 */
+		private void closeNow() {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+			connections.remove(this);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			outbound.clear();
+			backlog.set(0);
+			LockSupport.unpark(writer);
+			closeChannels();
+			handler.onDisconnected(this);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !closed.get();
+		}
+
+		@Override
+		public int getBacklog() {
+			return backlog.get();
+		}
+
+		@Override
+		public String getRemoteAddress() {
+			return remoteAddress;
+		}
+
+	}
+}
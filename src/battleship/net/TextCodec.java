@@ -0,0 +1,71 @@
+package battleship.net;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The TextCodec class reads and writes the line based message format, one
+ * message per line as {@code TYPE::message}. It is version 1 of the protocol,
+ * spoken by every version of the game. Lines with an unknown type or a
+ * malformed MOVE or PLACE are skipped.
+ */
+public class TextCodec implements Codec {
+
+	/**
+	 * The protocol version of this format.
+	 */
+	public static final int VERSION = 1;
+
+	private static final String SEPARATOR = "::";
+
+	private final Message message = new Message();
+	private byte[] line = new byte[64];
+	private int length;
+
+	@Override
+	public byte[] encode(Message message) {
+		return (message.getType() + SEPARATOR + message.getText() + "\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public Message decode(ByteBuffer buffer) throws ProtocolException {
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get();
+			if (b != '\n') {
+				if (length == line.length) {
+					if (line.length >= MAX_FRAME) {
+						throw new ProtocolException("Line longer than " + MAX_FRAME + " bytes");
+					}
+					line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_FRAME));
+				}
+				line[length++] = b;
+				continue;
+			}
+			int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+			length = 0;
+			if (parse(new String(line, 0, end, StandardCharsets.UTF_8))) {
+				return message;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a line into the reused message.
+	 *
+	 * @param text The line, without its line terminator.
+	 * @return false if the line should be skipped.
+	 */
+	private boolean parse(String text) {
+		int separator = text.indexOf(SEPARATOR);
+		MessageType type;
+		try {
+			type = MessageType.valueOf(separator >= 0 ? text.substring(0, separator) : text);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		return message.read(type, separator >= 0 ? text.substring(separator + SEPARATOR.length()) : "");
+	}
+}
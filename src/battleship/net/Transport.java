@@ -0,0 +1,60 @@
+package battleship.net;
+
+import java.io.IOException;
+
+/**
+ * The Transport interface opens connections between players, either by
+ * listening for peers or by connecting to one. Implementations differ in how
+ * they use threads; they all carry the same messages.
+ */
+public interface Transport {
+
+	/**
+	 * Starts accepting connections on a port. Returns as soon as the port is
+	 * bound.
+	 *
+	 * @param port    The port number to listen on.
+	 * @param handler The handler for every accepted connection.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	void listen(int port, MessageHandler handler) throws IOException;
+
+	/**
+	 * Connects to a peer.
+	 *
+	 * @param address The address of the peer.
+	 * @param port    The port number of the peer.
+	 * @param handler The handler for the connection.
+	 * @return The open connection.
+	 * @throws IOException If the peer cannot be reached.
+	 */
+	Connection connect(String address, int port, MessageHandler handler) throws IOException;
+
+	/**
+	 * Stops listening and closes every connection. Messages already sent are
+	 * written first where the transport allows.
+	 */
+	void close();
+
+	/**
+	 * Creates a transport by name.
+	 *
+	 * @param name "nio" for {@link NioTransport}, "socket" for
+	 *             {@link SocketTransport} or "virtual" for
+	 *             {@link VirtualThreadTransport}.
+	 * @return The new transport.
+	 * @throws IllegalArgumentException If the name is unknown.
+	 */
+	static Transport create(String name) {
+		switch (name) {
+		case "nio":
+			return new NioTransport();
+		case "socket":
+			return new SocketTransport();
+		case "virtual":
+			return new VirtualThreadTransport();
+		default:
+			throw new IllegalArgumentException("Unknown transport: " + name);
+		}
+	}
+}
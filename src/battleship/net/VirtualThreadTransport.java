@@ -0,0 +1,20 @@
+package battleship.net;
+
+/**
+ * The VirtualThreadTransport class carries messages over blocking sockets like
+ * {@link SocketTransport}, but accepts and reads every connection on a virtual
+ * thread, and writes on a virtual thread started only while there is
+ * something to send. The code stays a plain blocking read loop while an idle
+ * connection only costs its socket, a small read buffer and a virtual thread
+ * parked on the read, so one JVM can hold a very large number of connected
+ * players.
+ */
+public class VirtualThreadTransport extends SocketTransport {
+
+	/**
+	 * Constructs a VirtualThreadTransport.
+	 */
+	public VirtualThreadTransport() {
+		super(Thread.ofVirtual().factory());
+	}
+}
@@ -0,0 +1,708 @@
+package battleship.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import battleship.net.Connection;
+import battleship.net.Message;
+import battleship.net.MessageHandler;
+import battleship.net.MessageType;
+import battleship.net.Notice;
+import battleship.net.RateLimiter;
+import battleship.net.RoundTripHistogram;
+import battleship.net.Session;
+import battleship.net.Transport;
+
+/**
+ * The GameServer class is a headless dedicated server that hosts any number of
+ * matches at once, each in its own {@link Room}. Players connect with the
+ * game's Join option instead of to another player's host, meet in a lobby and
+ * pick a room there.
+ *
+ * <p>
+ * The lobby speaks the existing messages. A player sends its NAME, then lobby
+ * commands as CHAT lines:
+ * </p>
+ * <ul>
+ * <li>{@code /rooms} lists the rooms and how many players each has.</li>
+ * <li>{@code /create NAME} creates a room and waits in it for an opponent.</li>
+ * <li>{@code /join NAME} joins a room with a free seat.</li>
+ * <li>{@code /watch NAME} watches a room from the lobby.</li>
+ * <li>{@code /leave} goes back to the lobby, or stops watching.</li>
+ * <li>{@code /ping} shows the player's round-trip time to the server and that
+ * of its match.</li>
+ * </ul>
+ * <p>
+ * Inside a room every other message is passed on to the opponent, as a
+ * peer-to-peer host would receive it, and DISCONNECT leaves the server.
+ * </p>
+ *
+ * <p>
+ * A player whose game understands it is issued a {@link Session} once it
+ * sends its NAME. If its connection drops once a match has begun, its seat is
+ * held for a grace period, and a client that reconnects with a RESUME in time
+ * is sent what it missed and carries on.
+ * </p>
+ *
+ * <p>
+ * Example usage:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * java -cp BattleshipGame.jar battleship.server.GameServer --port 10000
+ * }
+ * </pre>
+ *
+ * <p>
+ * Options:
+ * </p>
+ * <ul>
+ * <li>{@code --port N} the port to listen on, 10000 by default.</li>
+ * <li>{@code --transport NAME} "nio" (the default), "socket" or "virtual".
+ * With "virtual" every connection is read on its own virtual thread and every
+ * room runs its match on one too, keeping the plain blocking style while
+ * holding very many idle players.</li>
+ * <li>{@code --max-rooms N} the most rooms open at once, 100000 by
+ * default.</li>
+ * <li>{@code --authority NAME} "relay" (the default) passes moves on for the
+ * players to resolve, "server" has each room own both fleets and resolve
+ * every shot itself, for players whose game understands FLEET.</li>
+ * <li>{@code --grace N} how long a dropped player's seat is held for it to
+ * reconnect, 30 seconds by default, or 0 to free it at once.</li>
+ * <li>{@code --stats N} prints the number of rooms and players and the round
+ * trips of every match every N seconds.</li>
+ * </ul>
+ */
+public class GameServer implements MessageHandler {
+
+	/**
+	 * The name the server signs its chat lines with.
+	 */
+	public static final String SERVER_NAME = "Server";
+
+	/**
+	 * The port the server listens on by default.
+	 */
+	public static final int DEFAULT_PORT = 10000;
+
+	/**
+	 * The number of seconds a dropped player's seat is held by default.
+	 */
+	public static final int DEFAULT_GRACE = 30;
+
+	// Longest room name accepted
+	private static final int MAX_ROOM_NAME = 20;
+	// Most rooms listed by /rooms
+	private static final int MAX_LISTED = 20;
+
+	private final Transport transport;
+	private final int port;
+	private final int maxRooms;
+	private final ThreadFactory matchThreads;
+	private final boolean authoritative;
+	private final int grace;
+	private final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "battleship-grace");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Player> sessions = new ConcurrentHashMap<>();
+	private final AtomicInteger players = new AtomicInteger();
+	private final AtomicInteger nextPlayer = new AtomicInteger();
+	private final AtomicLong chatDropped = new AtomicLong();
+	private final AtomicLong chatThrottled = new AtomicLong();
+
+	/**
+	 * Constructs a GameServer.
+	 *
+	 * @param transport The transport to accept players with.
+	 * @param port      The port to listen on.
+	 * @param maxRooms  The most rooms open at once.
+	 */
+	public GameServer(Transport transport, int port, int maxRooms) {
+		this(transport, port, maxRooms, null);
+	}
+
+	/**
+	 * Constructs a GameServer that runs each room's match on its own thread.
+	 *
+	 * @param transport    The transport to accept players with.
+	 * @param port         The port to listen on.
+	 * @param maxRooms     The most rooms open at once.
+	 * @param matchThreads The factory for match threads, or null to handle
+	 *                     messages on the transport's threads.
+	 */
+	public GameServer(Transport transport, int port, int maxRooms, ThreadFactory matchThreads) {
+		this(transport, port, maxRooms, matchThreads, false);
+	}
+
+	/**
+	 * Constructs a GameServer.
+	 *
+	 * @param transport     The transport to accept players with.
+	 * @param port          The port to listen on.
+	 * @param maxRooms      The most rooms open at once.
+	 * @param matchThreads  The factory for match threads, or null to handle
+	 *                      messages on the transport's threads.
+	 * @param authoritative true to have the rooms resolve every shot.
+	 */
+	public GameServer(Transport transport, int port, int maxRooms, ThreadFactory matchThreads,
+			boolean authoritative) {
+		this(transport, port, maxRooms, matchThreads, authoritative, DEFAULT_GRACE);
+	}
+
+	/**
+	 * Constructs a GameServer.
+	 *
+	 * @param transport     The transport to accept players with.
+	 * @param port          The port to listen on.
+	 * @param maxRooms      The most rooms open at once.
+	 * @param matchThreads  The factory for match threads, or null to handle
+	 *                      messages on the transport's threads.
+	 * @param authoritative true to have the rooms resolve every shot.
+	 * @param grace         The seconds a dropped player's seat is held, or 0.
+	 */
+	public GameServer(Transport transport, int port, int maxRooms, ThreadFactory matchThreads,
+			boolean authoritative, int grace) {
+		this.transport = transport;
+		this.port = port;
+		this.maxRooms = maxRooms;
+		this.matchThreads = matchThreads;
+		this.authoritative = authoritative;
+		this.grace = grace;
+	}
+
+	/**
+	 * Main method to run the server until the process is stopped.
+	 *
+	 * @param args The command-line arguments, see the class description.
+	 * @throws IOException          If the port cannot be bound.
+	 * @throws InterruptedException If the main thread is interrupted.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = DEFAULT_PORT;
+		String transport = "nio";
+		int maxRooms = 100000;
+		String authority = "relay";
+		int stats = 0;
+		int grace = DEFAULT_GRACE;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--port":
+				port = Integer.parseInt(args[++i]);
+				break;
+			case "--transport":
+				transport = args[++i];
+				break;
+			case "--max-rooms":
+				maxRooms = Integer.parseInt(args[++i]);
+				break;
+			case "--authority":
+				authority = args[++i];
+				break;
+			case "--grace":
+				grace = Integer.parseInt(args[++i]);
+				break;
+			case "--stats":
+				stats = Integer.parseInt(args[++i]);
+				break;
+			default:
+				System.err.println("Unknown option: " + args[i]);
+				System.exit(1);
+			}
+		}
+
+		ThreadFactory matchThreads = "virtual".equals(transport) ? Thread.ofVirtual().factory() : null;
+		GameServer server = new GameServer(Transport.create(transport), port, maxRooms, matchThreads,
+				"server".equals(authority), grace);
+		CountDownLatch stopped = new CountDownLatch(1);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop();
+			stopped.countDown();
+		}));
+		server.start();
+		System.out.println("Battleship server listening on port " + port + " (" + transport + ", " + authority + ")");
+		if (stats > 0) {
+			while (!stopped.await(stats, TimeUnit.SECONDS)) {
+				System.out.println(server.getStats());
+			}
+		}
+		stopped.await();
+	}
+
+	/**
+	 * Starts accepting players.
+	 *
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public void start() throws IOException {
+		transport.listen(port, this);
+	}
+
+	/**
+	 * Disconnects every player and stops accepting new ones.
+	 */
+	public void stop() {
+		transport.close();
+		timers.shutdownNow();
+	}
+
+	/**
+	 * Retrieves the number of rooms open.
+	 *
+	 * @return The number of rooms.
+	 */
+	public int getRoomCount() {
+		return rooms.size();
+	}
+
+	/**
+	 * Retrieves the number of players connected.
+	 *
+	 * @return The number of players.
+	 */
+	public int getPlayerCount() {
+		return players.get();
+	}
+
+	/**
+	 * Merges the recent round-trip times of the players of every room.
+	 *
+	 * @return The histogram of round trips across matches.
+	 */
+	public RoundTripHistogram getRoundTrips() {
+		RoundTripHistogram total = new RoundTripHistogram();
+		for (Room room : rooms.values()) {
+			room.mergeRoundTrips(total);
+		}
+		return total;
+	}
+
+	/**
+	 * Retrieves the number of chat lines and commands dropped for going over a
+	 * player's rate.
+	 *
+	 * @return The count since the server was made.
+	 */
+	public long getChatDropped() {
+		return chatDropped.get();
+	}
+
+	/**
+	 * Retrieves the number of times a player went over its chat rate.
+	 *
+	 * @return The count since the server was made.
+	 */
+	public long getChatThrottled() {
+		return chatThrottled.get();
+	}
+
+	/**
+	 * Describes the load on the server in one line.
+	 *
+	 * @return The rooms, players, spectators, chat lines dropped, round trips
+	 *         across matches, and the heap used and threads of the JVM.
+	 */
+	public String getStats() {
+		RoundTripHistogram roundTrips = getRoundTrips();
+		int spectators = 0;
+		long coalesced = 0;
+		for (Room room : rooms.values()) {
+			spectators += room.getSpectatorCount();
+			coalesced += room.getCoalesced();
+		}
+		return "rooms=" + getRoomCount() + " players=" + getPlayerCount() + " spectators=" + spectators
+				+ " coalesced=" + coalesced + " chat_dropped=" + getChatDropped() + " chat_throttled="
+				+ getChatThrottled() + " rtt_p50=" + millis(roundTrips.getPercentile(0.5)) + "ms rtt_p99="
+				+ millis(roundTrips.getPercentile(0.99)) + "ms heap="
+				+ ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024) + "MB threads="
+				+ ManagementFactory.getThreadMXBean().getThreadCount();
+	}
+
+	/**
+	 * Welcomes a new player to the lobby.
+	 */
+	@Override
+	public void onConnected(Connection connection) {
+		Player player = new Player(connection, "Player" + nextPlayer.incrementAndGet());
+		connection.setAttachment(player);
+		players.incrementAndGet();
+	}
+
+	/**
+	 * Handles a lobby command, or passes the message on within the player's
+	 * room.
+	 */
+	@Override
+	public void onMessage(Connection connection, Message message) {
+		Player player = (Player) connection.getAttachment();
+		if (player == null) {
+			return;
+		}
+		if (player.welcome()) {
+			// Welcomed once the client's hello, if it sent one, tells how to word it
+			player.tell(Notice.WELCOME);
+		}
+		Session session = player.getSession();
+		if (session != null) {
+			session.received(message);
+		}
+		if ((message.getType() == MessageType.CHAT || message.getType() == MessageType.SYSTEM) && !admitChat(player)) {
+			return;
+		}
+		switch (message.getType()) {
+		case NAME:
+			player.setName(message.getText());
+			if (session == null && connection.getProtocolVersion() >= Session.VERSION) {
+				session = new Session();
+				player.setSession(session);
+				sessions.put(session.getToken(), player);
+				player.send(MessageType.SESSION, session.getToken());
+			}
+			break;
+		case RESUME:
+			resume(player, connection, message.getText());
+			return;
+		case CHAT:
+			// Chat lines arrive as "name : text"
+			String line = message.getText();
+			int separator = line.indexOf(" : ");
+			String text = separator >= 0 ? line.substring(separator + 3) : line;
+			if (text.startsWith("/")) {
+				handleCommand(player, text);
+				return;
+			}
+			break;
+		case DISCONNECT:
+			connection.close();
+			return;
+		default:
+			break;
+		}
+		Room room = player.getRoom();
+		if (room != null) {
+			room.receive(player, message);
+		}
+	}
+
+	/**
+	 * Counts a chat line or command against the player's rate, telling the
+	 * player once each time it goes over.
+	 *
+	 * @param player The player who sent it.
+	 * @return true if the line may go on, false if it is dropped.
+	 */
+	private boolean admitChat(Player player) {
+		switch (player.getChatLimit().admit()) {
+		case PASSED:
+			return true;
+		case THROTTLED:
+			chatThrottled.incrementAndGet();
+			chatDropped.incrementAndGet();
+			player.tell(Notice.CHAT_THROTTLED);
+			return false;
+		default:
+			chatDropped.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * Takes a disconnected player out of its room, or holds its seat for a while
+	 * if it may come back to a match.
+	 */
+	@Override
+	public void onDisconnected(Connection connection) {
+		Player player = (Player) connection.getAttachment();
+		if (player == null || player.getConnection() != connection) {
+			// Gone, or already carrying on over a new connection
+			return;
+		}
+		Session session = player.getSession();
+		Room room = player.getRoom();
+		if (grace > 0 && room != null && session != null && session.isStarted()) {
+			room.tellOpponent(player, Notice.LOST_CONNECTION, player.getName(), String.valueOf(grace));
+			try {
+				timers.schedule(() -> {
+					if (player.getConnection() == connection) {
+						drop(player);
+					}
+				}, grace, TimeUnit.SECONDS);
+				return;
+			} catch (RejectedExecutionException e) {
+				// The server is stopping
+			}
+		}
+		drop(player);
+	}
+
+	/**
+	 * Forgets a player for good.
+	 *
+	 * @param player The player whose connection is gone.
+	 */
+	private void drop(Player player) {
+		leave(player);
+		players.decrementAndGet();
+		Session session = player.getSession();
+		if (session != null) {
+			sessions.remove(session.getToken(), player);
+		}
+	}
+
+	/**
+	 * Moves the player of a session back into its match over a new connection.
+	 * The new connection's own player is discarded.
+	 *
+	 * @param newcomer   The player made for the new connection.
+	 * @param connection The new connection.
+	 * @param text       The content of the RESUME: the token, then the number
+	 *                   of messages of the match received.
+	 */
+	private void resume(Player newcomer, Connection connection, String text) {
+		String[] parts = text.split(",");
+		Player player = parts.length == 2 ? sessions.get(parts[0]) : null;
+		Room room = player == null ? null : player.getRoom();
+		Connection previous = player == null ? null : player.getConnection();
+		int received;
+		try {
+			received = parts.length == 2 ? Integer.parseInt(parts[1]) : -1;
+		} catch (NumberFormatException e) {
+			received = -1;
+		}
+		if (room == null || player == newcomer || !room.resume(player, connection, received)) {
+			connection.send(MessageType.RESUMED, "-1");
+			return;
+		}
+		players.decrementAndGet();
+		Session session = newcomer.getSession();
+		if (session != null) {
+			sessions.remove(session.getToken(), newcomer);
+		}
+		if (previous != connection) {
+			previous.close();
+		}
+	}
+
+	/**
+	 * Runs a lobby command.
+	 *
+	 * @param player  The player who sent it.
+	 * @param command The command line, starting with '/'.
+	 */
+	private void handleCommand(Player player, String command) {
+		String[] parts = command.trim().split("\\s+", 2);
+		String argument = parts.length > 1 ? parts[1].trim() : "";
+		switch (parts[0]) {
+		case "/rooms":
+			listRooms(player);
+			break;
+		case "/create":
+			createRoom(player, argument);
+			break;
+		case "/join":
+			joinRoom(player, argument);
+			break;
+		case "/watch":
+			watchRoom(player, argument);
+			break;
+		case "/ping":
+			ping(player);
+			break;
+		case "/leave":
+			if (player.getWatching() != null) {
+				String name = player.getWatching().getName();
+				player.getWatching().unwatch(player);
+				player.tell(Notice.STOPPED_WATCHING, name);
+			} else if (player.getRoom() == null) {
+				player.tell(Notice.NOT_IN_ROOM);
+			} else {
+				String name = player.getRoom().getName();
+				leave(player);
+				player.send(MessageType.START, "WAITING");
+				player.tell(Notice.LEFT, name);
+			}
+			break;
+		default:
+			player.tell(Notice.COMMANDS);
+			break;
+		}
+	}
+
+	/**
+	 * Tells a player its round-trip time to the server and that of its match.
+	 *
+	 * @param player The player asking.
+	 */
+	private void ping(Player player) {
+		RoundTripHistogram own = player.getConnection().getRoundTrips();
+		if (own.getCount() == 0) {
+			player.tell(Notice.NO_ROUND_TRIP);
+			return;
+		}
+		Room room = player.getRoom();
+		if (room == null) {
+			player.tell(Notice.ROUND_TRIP, millis(own.getPercentile(0.5)), millis(own.getPercentile(0.99)));
+			return;
+		}
+		RoundTripHistogram match = new RoundTripHistogram();
+		room.mergeRoundTrips(match);
+		player.tell(Notice.MATCH_ROUND_TRIP, millis(own.getPercentile(0.5)), millis(own.getPercentile(0.99)),
+				millis(match.getPercentile(0.5)), millis(match.getPercentile(0.99)));
+	}
+
+	/**
+	 * Converts a round-trip time to whole milliseconds for display.
+	 *
+	 * @param micros The time in microseconds, or -1.
+	 * @return The time in milliseconds rounded up, or -1, as text.
+	 */
+	private static String millis(long micros) {
+		return String.valueOf(micros < 0 ? -1 : (micros + 999) / 1000);
+	}
+
+	/**
+	 * Lists the open rooms to a player.
+	 *
+	 * @param player The player asking.
+	 */
+	private void listRooms(Player player) {
+		if (rooms.isEmpty()) {
+			player.tell(Notice.NO_ROOMS);
+			return;
+		}
+		StringBuilder list = new StringBuilder();
+		int listed = 0;
+		for (Iterator<Room> it = rooms.values().iterator(); it.hasNext() && listed < MAX_LISTED; listed++) {
+			Room room = it.next();
+			list.append(listed == 0 ? "" : ", ").append(room.getName()).append(" (").append(room.getPlayerCount())
+					.append("/2");
+			if (room.getSpectatorCount() > 0) {
+				list.append(" +").append(room.getSpectatorCount());
+			}
+			list.append(')');
+		}
+		if (rooms.size() > listed) {
+			player.tell(Notice.MORE_ROOMS, list.toString(), String.valueOf(rooms.size() - listed));
+		} else {
+			player.tell(Notice.ROOMS, list.toString());
+		}
+	}
+
+	/**
+	 * Opens a room and seats its creator.
+	 *
+	 * @param player The player creating the room.
+	 * @param name   The name of the room.
+	 */
+	private void createRoom(Player player, String name) {
+		if (player.getRoom() != null) {
+			player.tell(Notice.LEAVE_FIRST, player.getRoom().getName());
+			return;
+		}
+		if (name.isEmpty() || name.length() > MAX_ROOM_NAME || name.indexOf(' ') >= 0) {
+			player.tell(Notice.BAD_ROOM_NAME, String.valueOf(MAX_ROOM_NAME));
+			return;
+		}
+		if (rooms.size() >= maxRooms) {
+			player.tell(Notice.SERVER_FULL);
+			return;
+		}
+		stopWatching(player);
+		Room room = new Room(name, authoritative);
+		if (matchThreads != null) {
+			room.start(matchThreads);
+		}
+		if (rooms.putIfAbsent(name, room) != null) {
+			room.close();
+			player.tell(Notice.ROOM_EXISTS, name);
+			return;
+		}
+		room.join(player);
+		player.tell(Notice.ROOM_OPENED, name);
+	}
+
+	/**
+	 * Seats a player in an existing room.
+	 *
+	 * @param player The player joining.
+	 * @param name   The name of the room.
+	 */
+	private void joinRoom(Player player, String name) {
+		if (player.getRoom() != null) {
+			player.tell(Notice.LEAVE_FIRST, player.getRoom().getName());
+			return;
+		}
+		Room room = rooms.get(name);
+		if (room == null) {
+			player.tell(Notice.NO_SUCH_ROOM, name);
+			return;
+		}
+		stopWatching(player);
+		if (!room.join(player)) {
+			player.tell(Notice.ROOM_FULL, name);
+		}
+	}
+
+	/**
+	 * Makes a player in the lobby a spectator of a room.
+	 *
+	 * @param player The player watching.
+	 * @param name   The name of the room.
+	 */
+	private void watchRoom(Player player, String name) {
+		if (player.getRoom() != null) {
+			player.tell(Notice.LEAVE_FIRST, player.getRoom().getName());
+			return;
+		}
+		Room room = rooms.get(name);
+		if (room == null) {
+			player.tell(Notice.NO_SUCH_ROOM, name);
+			return;
+		}
+		stopWatching(player);
+		if (room.watch(player)) {
+			player.tell(Notice.WATCHING, name);
+		} else {
+			player.tell(Notice.ROOM_CLOSED, name);
+		}
+	}
+
+	/**
+	 * Takes a player out of the spectators of the room it watches, if any.
+	 *
+	 * @param player The player.
+	 */
+	private void stopWatching(Player player) {
+		Room watching = player.getWatching();
+		if (watching != null) {
+			watching.unwatch(player);
+		}
+	}
+
+	/**
+	 * Takes a player out of its room, closing the room if it is left empty.
+	 *
+	 * @param player The player leaving.
+	 */
+	private void leave(Player player) {
+		stopWatching(player);
+		Room room = player.getRoom();
+		if (room != null && room.leave(player)) {
+			rooms.remove(room.getName(), room);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package battleship.server;
+
+import java.util.ResourceBundle;
+
+import battleship.LocalizationLoader;
+import battleship.net.Connection;
+import battleship.net.Message;
+import battleship.net.MessageType;
+import battleship.net.Notice;
+import battleship.net.RateLimiter;
+import battleship.net.Session;
+
+/**
+ * The Player class is the server's view of one connected client: its
+ * connection, the name it gave and the room it plays or watches. A player keeps its
+ * session across connections, so a client that reconnects carries on as the
+ * same player.
+ */
+public class Player {
+
+	private volatile Connection connection;
+	private volatile Session session;
+	private volatile String name;
+	private volatile Room room;
+	private volatile int seat = -1;
+	private volatile Room watching;
+	private final RateLimiter chatLimit = RateLimiter.forChat();
+	private boolean welcomed;
+
+	/**
+	 * Constructs a Player for a connection.
+	 *
+	 * @param connection The connection to the client.
+	 * @param name       The name used until the client sends its own.
+	 */
+	public Player(Connection connection, String name) {
+		this.connection = connection;
+		this.name = name;
+	}
+
+	/**
+	 * Sends a message to the client.
+	 *
+	 * @param type    The type of the message.
+	 * @param message The message content.
+	 */
+	public void send(MessageType type, String message) {
+		Message parsed = Message.parse(type, message);
+		if (parsed != null) {
+			send(parsed);
+		}
+	}
+
+	/**
+	 * Sends a message to the client.
+	 *
+	 * @param message The message.
+	 */
+	public void send(Message message) {
+		Session session = this.session;
+		if (session != null) {
+			session.sent(message);
+		}
+		connection.send(message);
+	}
+
+	/**
+	 * Sends a line from the server to the client, as a notice the client words
+	 * in its own language, or as a chat line in the server's language to a
+	 * client too old to understand a SYSTEM.
+	 *
+	 * @param notice    The notice of the line.
+	 * @param arguments Its arguments.
+	 */
+	public void tell(Notice notice, String... arguments) {
+		Connection connection = this.connection;
+		if (connection.getProtocolVersion() >= Message.NOTICE_VERSION) {
+			connection.send(Message.system(notice, arguments));
+		} else {
+			connection.send(Message.of(MessageType.CHAT, word(notice, arguments)));
+		}
+	}
+
+	/**
+	 * Words a notice in the server's language, for spectators and clients too
+	 * old to understand a SYSTEM.
+	 *
+	 * @param notice    The notice.
+	 * @param arguments Its arguments.
+	 * @return The line.
+	 */
+	static String word(Notice notice, String... arguments) {
+		return notice.format(Wording.BUNDLE, arguments);
+	}
+
+	/**
+	 * Marks the player as welcomed to the lobby.
+	 *
+	 * @return true the first time only.
+	 */
+	public synchronized boolean welcome() {
+		if (welcomed) {
+			return false;
+		}
+		welcomed = true;
+		return true;
+	}
+
+	/**
+	 * Retrieves the limiter of the player's chat lines.
+	 *
+	 * @return The limiter, kept across reconnects.
+	 */
+	public RateLimiter getChatLimit() {
+		return chatLimit;
+	}
+
+	/**
+	 * Retrieves the connection to the client.
+	 *
+	 * @return The connection.
+	 */
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Moves the player to a new connection after it reconnects.
+	 *
+	 * @param connection The new connection to the client.
+	 */
+	void setConnection(Connection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Retrieves the session of the player.
+	 *
+	 * @return The session, or null if the client cannot resume a match.
+	 */
+	public Session getSession() {
+		return session;
+	}
+
+	/**
+	 * Sets the session of the player.
+	 *
+	 * @param session The session issued to the client.
+	 */
+	void setSession(Session session) {
+		this.session = session;
+	}
+
+	/**
+	 * Retrieves the name of the player.
+	 *
+	 * @return The player's name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name of the player.
+	 *
+	 * @param name The player's name.
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Retrieves the room the player is in.
+	 *
+	 * @return The room, or null if the player is in the lobby.
+	 */
+	public Room getRoom() {
+		return room;
+	}
+
+	/**
+	 * Retrieves the seat of the player in its room: 0 for the player who moves
+	 * first, 1 for the other.
+	 *
+	 * @return The seat, or -1 if the player is in the lobby.
+	 */
+	public int getSeat() {
+		return seat;
+	}
+
+	/**
+	 * Puts the player in a seat of a room, or back in the lobby.
+	 *
+	 * @param room The room, or null for the lobby.
+	 * @param seat The seat, or -1 for the lobby.
+	 */
+	void setRoom(Room room, int seat) {
+		this.room = room;
+		this.seat = seat;
+	}
+
+	/**
+	 * Retrieves the room the player is watching.
+	 *
+	 * @return The room, or null if the player is not a spectator.
+	 */
+	public Room getWatching() {
+		return watching;
+	}
+
+	/**
+	 * Sets the room the player is watching.
+	 *
+	 * @param watching The room, or null to stop watching.
+	 */
+	void setWatching(Room watching) {
+		this.watching = watching;
+	}
+
+	/**
+	 * The server's wording of notices, loaded the first time one is needed.
+	 */
+	private static final class Wording {
+
+		private static final ResourceBundle BUNDLE = new LocalizationLoader().getResourceBundle();
+	}
+}
@@ -0,0 +1,679 @@
+package battleship.server;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+
+import battleship.model.BattleshipModel;
+import battleship.model.Difficulty;
+import battleship.model.GameRules;
+import battleship.model.ShotResult;
+import battleship.net.Audience;
+import battleship.net.Connection;
+import battleship.net.MatchStateMachine;
+import battleship.net.Message;
+import battleship.net.MessageType;
+import battleship.net.Notice;
+import battleship.net.RoundTripHistogram;
+import battleship.net.Session;
+
+/**
+ * The Room class is one match on the server: two seats and the state of the
+ * game between them. Messages from one seat are passed on to the other, and
+ * ship placements and moves are also applied to the room's own model, so a
+ * move out of turn or at a cell already fired upon is dropped instead of
+ * reaching the opponent.
+ *
+ * <p>
+ * The player in seat 0 plays the part of the host in a peer-to-peer game: it
+ * starts each game and moves first. The server tells each player its part
+ * with a START message of "HOST" or "GUEST", and "WAITING" when it is left
+ * without an opponent.
+ * </p>
+ *
+ * <p>
+ * A FLEET is checked and passed on as is, or as one PLACE per ship to a player
+ * whose game predates FLEET. A player who hides its fleet behind a COMMIT then
+ * reports the outcome of each shot with a RESULT and reveals the fleet at the
+ * end with a REVEAL, all passed on. Since an older game could not check the
+ * commitment, such a player is instead sent a START of "REVEAL", asking for its
+ * FLEET after all.
+ * </p>
+ *
+ * <p>
+ * An authoritative room resolves every shot itself once both players
+ * understand FLEET. It tells them so with a START of "AUTHORITY" after the
+ * START of each game, keeps each FLEET to itself, asks a player sending a
+ * COMMIT for its FLEET, and answers each MOVE with a RESULT to the player who
+ * fired and a SHOT to the other, so neither player ever holds the other's
+ * layout.
+ * </p>
+ *
+ * <p>
+ * Players in the lobby may watch a room. Its spectators are sent the chat of
+ * the match and a line for each shot through an {@link Audience}, so a
+ * spectator that cannot keep up is sent the score instead of holding up the
+ * match.
+ * </p>
+ *
+ * <p>
+ * Every room has its own model and lock, so rooms never wait on each other.
+ * Messages are handled on the thread that received them, or, once
+ * {@link #start(ThreadFactory)} has been called, queued and handled in order by
+ * the room's own match thread.
+ * </p>
+ */
+public class Room {
+
+	// Queued in place of a message to end the match thread
+	private static final Event CLOSE = new Event(null, null);
+
+	private final String name;
+	private final boolean authoritative;
+	private final Player[] seats = new Player[2];
+	private final BattleshipModel model = new BattleshipModel();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Audience audience = new Audience(this::summarize);
+	private final int[] hits = new int[2];
+	// The ships each hidden fleet reported sunk, as the room cannot see them
+	private final int[] sunk = new int[2];
+	private final MatchStateMachine match = new MatchStateMachine();
+	private BlockingQueue<Event> events;
+
+	private int hidden;
+	private boolean resolving;
+	private boolean closed;
+
+	/**
+	 * Constructs an empty Room that passes moves on for the players to resolve.
+	 *
+	 * @param name The name of the room.
+	 */
+	public Room(String name) {
+		this(name, false);
+	}
+
+	/**
+	 * Constructs an empty Room.
+	 *
+	 * @param name          The name of the room.
+	 * @param authoritative true to resolve every shot in the room, for players
+	 *                      that understand FLEET.
+	 */
+	public Room(String name, boolean authoritative) {
+		this.name = name;
+		this.authoritative = authoritative;
+		// Only the boards are used; the cheapest strategy keeps the room small
+		model.setDifficulty(Difficulty.EASY);
+	}
+
+	/**
+	 * Starts a match thread that handles the room's messages one at a time with
+	 * blocking reads from a queue. The thread ends when the room closes.
+	 *
+	 * @param threads The factory for the match thread, typically one that makes
+	 *                virtual threads.
+	 */
+	public void start(ThreadFactory threads) {
+		events = new LinkedBlockingQueue<>();
+		Thread thread = threads.newThread(this::run);
+		thread.setName("battleship-match-" + name);
+		thread.start();
+	}
+
+	/**
+	 * Retrieves the name of the room.
+	 *
+	 * @return The room's name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Retrieves the number of players in the room.
+	 *
+	 * @return 0, 1 or 2.
+	 */
+	public int getPlayerCount() {
+		lock.lock();
+		try {
+			return (seats[0] != null ? 1 : 0) + (seats[1] != null ? 1 : 0);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Retrieves the number of spectators watching the room.
+	 *
+	 * @return The number of spectators.
+	 */
+	public int getSpectatorCount() {
+		return audience.size();
+	}
+
+	/**
+	 * Retrieves the number of times a spectator fell behind and was sent the
+	 * score in place of the lines it missed.
+	 *
+	 * @return The count since the room was opened.
+	 */
+	public long getCoalesced() {
+		return audience.getCoalesced();
+	}
+
+	/**
+	 * Adds a player from the lobby to the spectators and tells it the score.
+	 *
+	 * @param player The player watching.
+	 * @return false if the room is closed.
+	 */
+	public boolean watch(Player player) {
+		lock.lock();
+		try {
+			if (closed) {
+				return false;
+			}
+			audience.add(player.getConnection());
+			player.setWatching(this);
+			player.send(summarize());
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes a player from the spectators.
+	 *
+	 * @param player The player who stops watching.
+	 */
+	public void unwatch(Player player) {
+		lock.lock();
+		try {
+			if (player.getWatching() == this) {
+				audience.remove(player.getConnection());
+				player.setWatching(null);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the recent round-trip times of the players in the room to a
+	 * histogram, for the network latency of the match.
+	 *
+	 * @param total The histogram to merge them into.
+	 */
+	public void mergeRoundTrips(RoundTripHistogram total) {
+		lock.lock();
+		try {
+			for (Player player : seats) {
+				if (player != null) {
+					total.merge(player.getConnection().getRoundTrips());
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Seats a player in the room. When both seats are taken each player is told
+	 * the other's name and its part.
+	 *
+	 * @param player The player joining.
+	 * @return true if the player was seated, false if the room is full or closed.
+	 */
+	public boolean join(Player player) {
+		lock.lock();
+		try {
+			if (closed || seats[1] != null) {
+				return false;
+			}
+			int seat = seats[0] == null ? 0 : 1;
+			seats[seat] = player;
+			player.setRoom(this, seat);
+			if (seat == 1) {
+				resetGame();
+				Player host = seats[0];
+				Player guest = seats[1];
+				host.send(MessageType.NAME, guest.getName());
+				guest.send(MessageType.NAME, host.getName());
+				host.send(MessageType.START, "HOST");
+				guest.send(MessageType.START, "GUEST");
+				host.tell(Notice.OPPONENT_JOINED, guest.getName(), name);
+				announce(guest.getName() + " joined " + host.getName() + ".");
+				guest.tell(Notice.JOINED, host.getName(), name);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes a player from the room. A player left alone moves to seat 0 and
+	 * waits for a new opponent; a room left empty is closed for good.
+	 *
+	 * @param player The player leaving.
+	 * @return true if the room is now empty and closed.
+	 */
+	public boolean leave(Player player) {
+		lock.lock();
+		try {
+			int seat = player.getSeat();
+			if (seat < 0 || seats[seat] != player) {
+				return closed;
+			}
+			seats[seat] = null;
+			player.setRoom(null, -1);
+			resetGame();
+			Player other = seats[1 - seat];
+			if (other == null) {
+				closed = true;
+				if (events != null) {
+					events.add(CLOSE);
+				}
+				announce(name + " is closed.");
+				audience.clear();
+				return true;
+			}
+			if (seat == 0) {
+				seats[0] = other;
+				seats[1] = null;
+				other.setRoom(this, 0);
+			}
+			other.send(MessageType.START, "WAITING");
+			other.tell(Notice.OPPONENT_LEFT, player.getName(), name);
+			announce(player.getName() + " left.");
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves a player who lost its connection to a new one, first sending it
+	 * what it missed of the match. The player keeps its seat meanwhile, and
+	 * what the room sends it is kept by its session.
+	 *
+	 * @param player     The player coming back.
+	 * @param connection The player's new connection.
+	 * @param received   The number of messages of the match the player
+	 *                   received before the connection dropped.
+	 * @return true if the player was moved, false if it is no longer seated or
+	 *         its session cannot resume from there.
+	 */
+	public boolean resume(Player player, Connection connection, int received) {
+		lock.lock();
+		try {
+			int seat = player.getSeat();
+			Session session = player.getSession();
+			if (player.getRoom() != this || seat < 0 || seats[seat] != player || session == null) {
+				return false;
+			}
+			List<Message> missed = session.since(received);
+			if (missed == null) {
+				return false;
+			}
+			player.setConnection(connection);
+			connection.setAttachment(player);
+			connection.send(MessageType.RESUMED, String.valueOf(session.getReceived()));
+			for (Message message : missed) {
+				connection.send(message);
+			}
+			tellOpponent(player, Notice.BACK, player.getName());
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sends a line from the server to the opponent of a player, if any.
+	 *
+	 * @param player    The player the line is about.
+	 * @param notice    The notice of the line.
+	 * @param arguments Its arguments.
+	 */
+	public void tellOpponent(Player player, Notice notice, String... arguments) {
+		lock.lock();
+		try {
+			int seat = player.getSeat();
+			if (player.getRoom() == this && seat >= 0 && seats[1 - seat] != null) {
+				seats[1 - seat].tell(notice, arguments);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes a room no player has joined, ending its match thread.
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			if (!closed && seats[0] == null) {
+				closed = true;
+				if (events != null) {
+					events.add(CLOSE);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Receives a message from a player in the room. It is handled at once, or
+	 * a copy is queued for the match thread if the room has one.
+	 *
+	 * @param player  The player who sent the message.
+	 * @param message The message.
+	 */
+	public void receive(Player player, Message message) {
+		if (events != null) {
+			events.add(new Event(player, message.copy()));
+		} else {
+			handle(player, message);
+		}
+	}
+
+	/**
+	 * Runs the match thread: takes each queued message in turn until the room
+	 * closes.
+	 */
+	private void run() {
+		try {
+			for (Event event; (event = events.take()) != CLOSE;) {
+				handle(event.player, event.message);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Handles a message from a player in the room, passing it on to the other
+	 * player unless it breaks the rules of the game.
+	 *
+	 * @param player  The player who sent the message.
+	 * @param message The message.
+	 */
+	private void handle(Player player, Message message) {
+		lock.lock();
+		try {
+			int seat = player.getSeat();
+			if (player.getRoom() != this || seats[seat] != player) {
+				return;
+			}
+			Player other = seats[1 - seat];
+			if (other == null) {
+				return;
+			}
+			switch (message.getType()) {
+			case START:
+				if ("START".equals(message.getText())) {
+					if (seat != 0) {
+						return;
+					}
+					resetGame();
+					match.begin();
+					announce("A new game begins: " + player.getName() + " against " + other.getName() + ".");
+					resolving = authoritative && player.getConnection().getProtocolVersion() >= Message.FLEET_VERSION
+							&& other.getConnection().getProtocolVersion() >= Message.FLEET_VERSION;
+					if (resolving) {
+						other.send(message);
+						player.send(MessageType.START, "AUTHORITY");
+						other.send(MessageType.START, "AUTHORITY");
+						return;
+					}
+				} else if ("AUTHORITY".equals(message.getText())) {
+					// Only the room decides who resolves the shots
+					return;
+				} else if ("PLACED".equals(message.getText())) {
+					if (match.place(seat) && match.getState() == MatchStateMachine.State.READY) {
+						match.play(0);
+					}
+				}
+				break;
+			case PLACE:
+				if (!place(seat, message)) {
+					return;
+				}
+				break;
+			case FLEET:
+				if (!(seat == 0 ? model.placePlayerFleet(message.getShips())
+						: model.placeOpponentFleet(message.getShips()))) {
+					return;
+				}
+				if (resolving) {
+					return;
+				}
+				if (other.getConnection().getProtocolVersion() < Message.FLEET_VERSION) {
+					int[] ships = message.getShips();
+					for (int i = 0; i < ships.length; i += 4) {
+						other.send(Message.place(ships[i], ships[i + 1], ships[i + 2], ships[i + 3] != 0));
+					}
+					return;
+				}
+				break;
+			case COMMIT:
+				if (resolving || other.getConnection().getProtocolVersion() < Message.FLEET_VERSION) {
+					player.send(MessageType.START, "REVEAL");
+					return;
+				}
+				hidden |= 1 << seat;
+				break;
+			case RESULT:
+			case REVEAL:
+				if ((hidden & 1 << seat) == 0) {
+					return;
+				}
+				if (message.getType() == MessageType.RESULT) {
+					// The outcome of the other player's shot at a hidden fleet
+					if (message.getResult() == ShotResult.SUNK && ++sunk[seat] >= model.getRules().getShipCount()) {
+						match.end();
+					}
+					announceShot(1 - seat, message.getRow(), message.getColumn(), message.getResult());
+				}
+				break;
+			case SHOT:
+				return;
+			case MOVE:
+				ShotResult result = move(seat, message);
+				if (result == ShotResult.INVALID) {
+					return;
+				}
+				if (resolving || (hidden & 1 << (1 - seat)) == 0) {
+					announceShot(seat, message.getRow(), message.getColumn(), result);
+				}
+				if (resolving && result != null) {
+					int row = message.getRow();
+					int col = message.getColumn();
+					int ship = result == ShotResult.SUNK
+							? (seat == 0 ? model.getOpponentBoard() : model.getPlayerBoard()).getShipAt(row, col)
+							: -1;
+					player.send(Message.result(row, col, result, ship));
+					other.send(Message.shot(row, col, result, ship));
+					return;
+				}
+				break;
+			case CHAT:
+				audience.publish(message);
+				break;
+			case SYSTEM:
+				// Spectators and older players get the line in the server's language
+				Message line = Message.of(MessageType.CHAT, Player.word(message.getNotice(), message.getArguments()));
+				audience.publish(line);
+				if (other.getConnection().getProtocolVersion() < Message.NOTICE_VERSION) {
+					other.send(line);
+					return;
+				}
+				break;
+			default:
+				break;
+			}
+			other.send(message);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Applies a ship placement to the board of a seat.
+	 *
+	 * @param seat    The seat placing the ship.
+	 * @param message The PLACE message.
+	 * @return true if the ship was placed.
+	 */
+	private boolean place(int seat, Message message) {
+		int row = message.getRow();
+		int col = message.getColumn();
+		int length = message.getLength();
+		boolean horizontal = message.isHorizontal();
+		return seat == 0 ? model.placePlayerShips(row, col, length, horizontal)
+				: model.placeOpponentShips(row, col, length, horizontal);
+	}
+
+	/**
+	 * Applies a move by a seat, if it is that seat's turn, and hands the turn to
+	 * the other seat.
+	 *
+	 * @param seat    The seat moving.
+	 * @param message The MOVE message, at -1,-1 when the player ran out of time.
+	 * @return The outcome of the shot, null if the player ran out of time, or
+	 *         INVALID if the move was not applied.
+	 */
+	private ShotResult move(int seat, Message message) {
+		if (match.getTurn() != seat) {
+			return ShotResult.INVALID;
+		}
+		int row = message.getRow();
+		int col = message.getColumn();
+		ShotResult result = null;
+		if (row != -1 || col != -1) {
+			result = seat == 0 ? model.playerFires(row, col) : model.opponentFires(row, col);
+			if (result == ShotResult.INVALID) {
+				return result;
+			}
+		}
+		if (model.isGameOver()) {
+			match.end();
+		} else {
+			match.move(seat);
+		}
+		return result;
+	}
+
+	/**
+	 * Sends the spectators a line from the server.
+	 *
+	 * @param line The text of the line.
+	 */
+	private void announce(String line) {
+		audience.publish(Message.of(MessageType.CHAT, GameServer.SERVER_NAME + " : " + line));
+	}
+
+	/**
+	 * Sends the spectators the outcome of a shot, and the winner if it ended
+	 * the game.
+	 *
+	 * @param seat   The seat that fired.
+	 * @param row    The row fired at, or -1 if the player ran out of time.
+	 * @param col    The column fired at, or -1 if the player ran out of time.
+	 * @param result The outcome of the shot, or null if the player ran out of
+	 *               time.
+	 */
+	private void announceShot(int seat, int row, int col, ShotResult result) {
+		Player shooter = seats[seat];
+		if (shooter == null) {
+			return;
+		}
+		if (result == null) {
+			announce(shooter.getName() + " ran out of time.");
+			return;
+		}
+		if (result != ShotResult.MISS) {
+			hits[seat]++;
+		}
+		announce(shooter.getName() + " fires at " + (row + 1) + GameRules.getColumnLabel(col) + ": "
+				+ (result == ShotResult.MISS ? "miss." : result == ShotResult.HIT ? "hit!" : "sunk!"));
+		if (isGameOver()) {
+			announce(shooter.getName() + " wins!");
+		}
+	}
+
+	/**
+	 * Checks if a fleet has been sunk, on the room's boards or as reported by
+	 * the player hiding it.
+	 *
+	 * @return true if the game is over.
+	 */
+	private boolean isGameOver() {
+		int ships = model.getRules().getShipCount();
+		return model.isGameOver() || sunk[0] >= ships || sunk[1] >= ships;
+	}
+
+	/**
+	 * Makes the score line sent to a spectator that joins or falls behind.
+	 *
+	 * @return The line.
+	 */
+	private Message summarize() {
+		lock.lock();
+		try {
+			String line;
+			if (seats[1] == null) {
+				line = name + ": " + (seats[0] == null ? "empty." : seats[0].getName() + " is waiting for an opponent.");
+			} else {
+				line = name + ": " + seats[0].getName() + " " + hits[0] + " hits, " + seats[1].getName() + " "
+						+ hits[1] + " hits"
+						+ (match.getTurn() >= 0 ? ", " + seats[match.getTurn()].getName() + " to move." : ".");
+			}
+			return Message.of(MessageType.CHAT, GameServer.SERVER_NAME + " : " + line);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Clears the boards for a new game.
+	 */
+	private void resetGame() {
+		model.resetModel();
+		hits[0] = 0;
+		hits[1] = 0;
+		sunk[0] = 0;
+		sunk[1] = 0;
+		match.end();
+		hidden = 0;
+		resolving = false;
+	}
+
+	/**
+	 * A message waiting for the match thread.
+	 */
+	private static final class Event {
+
+		private final Player player;
+		private final Message message;
+
+		/**
+		 * Constructs an Event.
+		 *
+		 * @param player  The player who sent the message.
+		 * @param message The message, kept by the room.
+		 */
+		Event(Player player, Message message) {
+			this.player = player;
+			this.message = message;
+		}
+	}
+}
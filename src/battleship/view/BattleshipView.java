@@ -7,6 +7,7 @@ import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.text.MessageFormat;
 import java.util.List;
 
 import javax.swing.BorderFactory;
@@ -34,6 +35,7 @@ import battleship.controller.BattleshipController;
 import battleship.controller.ServerController;
 import battleship.model.BattleshipModel;
 import battleship.model.CoordinateModel;
+import battleship.model.GameRules;
 import battleship.model.ShipModel;
 
 /**
@@ -82,6 +84,9 @@ public class BattleshipView extends JFrame {
 	private JLabel opponentInfoLabel;
 	private JLabel[] playerInfoLabels;
 	private JLabel[] opponentInfoLabels;
+	private long roundTripTime = -1;
+	private long chatDropped;
+	private long chatFloods;
 
 	private JWindow hostWindow;
 	private JLabel hostNameLabel;
@@ -109,6 +114,7 @@ public class BattleshipView extends JFrame {
 	private JMenuItem settingsItem4;
 	private JMenuItem settingsItem5;
 	private JMenuItem settingsItem6;
+	private JMenuItem settingsItem7;
 
 	private JMenu info;
 	private JMenuItem infoItem1;
@@ -196,34 +202,53 @@ public class BattleshipView extends JFrame {
 		logoPanel.add(logoLabel);
 
 		// Grid panel
-		gridPanel = new JPanel(new GridLayout(11, 11));
+		gridPanel = new JPanel();
 		gridPanel.setBackground(Color.BLACK);
 		gridPanel.setBorder(BorderFactory.createCompoundBorder(new LineBorder(textColor),
 				BorderFactory.createEmptyBorder(0, 51, 0, 106)));
-		gridButtons = new JButton[10][10];
-		for (int row = 0; row < 10; row++) {
-			for (int col = 0; col < 10; col++) {
-				JButton button = new JButton();
-				button.setActionCommand(row + "," + col);
-				gridButtons[row][col] = button;
-			}
+		buildGrid(GameRules.STANDARD.getHeight(), GameRules.STANDARD.getWidth());
+
+		gamePanel.add(logoPanel, BorderLayout.NORTH);
+		gamePanel.add(gridPanel, BorderLayout.CENTER);
+
+		add(gamePanel, BorderLayout.WEST);
+	}
+
+	/**
+	 * Fills the grid panel with a button per cell, the row numbers on the left
+	 * and the column letters at the bottom. Cells shrink so that larger boards
+	 * take up the same space as the standard one.
+	 *
+	 * @param rows    The number of rows on the board.
+	 * @param columns The number of columns on the board.
+	 */
+	private void buildGrid(int rows, int columns) {
+		gridPanel.removeAll();
+		gridPanel.setLayout(new GridLayout(rows + 1, columns + 1));
+		int cellWidth = Math.min(53, 583 / (columns + 1));
+		int cellHeight = Math.min(51, 561 / (rows + 1));
+		Font labelFont = agencyBold24;
+		if (rows > 10 || columns > 10) {
+			labelFont = agencyBold24.deriveFont(Math.max(6f, 24f * 10 / Math.max(rows, columns)));
 		}
 
-		gridColLabels = new JLabel[10];
+		gridButtons = new JButton[rows][columns];
+		gridColLabels = new JLabel[rows];
 
-		// Adding labels on the left side (numbers 1 to 10)
-		for (int row = 0; row < gridButtons.length; row++) {
+		// Adding labels on the left side (numbers 1 to the number of rows)
+		for (int row = 0; row < rows; row++) {
 			JLabel label = new JLabel(String.valueOf(row + 1), SwingConstants.CENTER);
-			label.setFont(agencyBold24);
+			label.setFont(labelFont);
 			label.setForeground(textColor);
-			label.setBorder(new LineBorder(Color.BLACK));
+			label.setBorder(new LineBorder(backgroundColor));
 			gridPanel.add(label);
 			gridColLabels[row] = label;
 
-			for (int col = 0; col < gridButtons[row].length; col++) {
+			for (int col = 0; col < columns; col++) {
 				JButton button = new JButton();
-				button.setPreferredSize(new Dimension(53, 51));
-				button.setBackground(Color.BLACK);
+				button.setActionCommand(row + "," + col);
+				button.setPreferredSize(new Dimension(cellWidth, cellHeight));
+				button.setBackground(backgroundColor);
 				button.setForeground(textColor);
 				button.setBorder(new LineBorder(textColor));
 				gridButtons[row][col] = button;
@@ -231,24 +256,17 @@ public class BattleshipView extends JFrame {
 			}
 		}
 
-		// Adding labels at the bottom (letters A to J)
+		// Adding labels at the bottom (letters A onwards)
 		gridPanel.add(new JLabel());
-		gridRowLabels = new JLabel[10];
-
-		char[] columnLabels = { 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J' };
-		for (int col = 0; col < 10; col++) {
-			JLabel label = new JLabel(String.valueOf(columnLabels[col]), SwingConstants.CENTER);
-			label.setFont(agencyBold24);
+		gridRowLabels = new JLabel[columns];
+		for (int col = 0; col < columns; col++) {
+			JLabel label = new JLabel(GameRules.getColumnLabel(col), SwingConstants.CENTER);
+			label.setFont(labelFont);
 			label.setForeground(textColor);
-			label.setBorder(new LineBorder(Color.BLACK));
+			label.setBorder(new LineBorder(backgroundColor));
 			gridPanel.add(label);
 			gridRowLabels[col] = label;
 		}
-
-		gamePanel.add(logoPanel, BorderLayout.NORTH);
-		gamePanel.add(gridPanel, BorderLayout.CENTER);
-
-		add(gamePanel, BorderLayout.WEST);
 	}
 
 	/**
@@ -302,22 +320,6 @@ public class BattleshipView extends JFrame {
 		playerInfoLabel.setFont(agencyPlain20);
 		playerInfoLabel.setForeground(textColor);
 
-		playerInfoPanel.add(playerInfoLabel);
-
-		String[] shipTypes = { loader.getResourceBundle().getString("ship.aircraft"),
-				loader.getResourceBundle().getString("ship.battleship"),
-				loader.getResourceBundle().getString("ship.cruiser"),
-				loader.getResourceBundle().getString("ship.destroyer"),
-				loader.getResourceBundle().getString("ship.submarine") };
-		playerInfoLabels = new JLabel[shipTypes.length];
-		for (int i = 0; i < shipTypes.length; i++) {
-			JLabel label = new JLabel(shipTypes[i], SwingConstants.CENTER);
-			label.setFont(agencyPlain20);
-			label.setForeground(textColor);
-			playerInfoPanel.add(label);
-			playerInfoLabels[i] = label;
-		}
-
 		opponentInfoPanel = new JPanel(new GridLayout(6, 1));
 		opponentInfoPanel.setPreferredSize(new Dimension(265, 255));
 		opponentInfoPanel.setBackground(backgroundColor);
@@ -329,16 +331,7 @@ public class BattleshipView extends JFrame {
 		opponentInfoLabel.setFont(agencyPlain20);
 		opponentInfoLabel.setForeground(textColor);
 
-		opponentInfoPanel.add(opponentInfoLabel);
-
-		opponentInfoLabels = new JLabel[shipTypes.length];
-		for (int i = 0; i < shipTypes.length; i++) {
-			JLabel label = new JLabel(shipTypes[i], SwingConstants.CENTER);
-			label.setFont(agencyPlain20);
-			label.setForeground(textColor);
-			opponentInfoPanel.add(label);
-			opponentInfoLabels[i] = label;
-		}
+		buildFleetInfo(GameRules.STANDARD);
 
 		infoPanels.add(playerInfoPanel);
 		infoPanels.add(opponentInfoPanel);
@@ -419,6 +412,7 @@ public class BattleshipView extends JFrame {
 		settingsItem4 = new JMenuItem(loader.getResourceBundle().getString("settings.language"));
 		settingsItem5 = new JMenuItem(loader.getResourceBundle().getString("settings.background"));
 		settingsItem6 = new JMenuItem(loader.getResourceBundle().getString("settings.exit"));
+		settingsItem7 = new JMenuItem();
 
 		hostWindow = new JWindow();
 		hostWindow.add(createHostPanel());
@@ -444,18 +438,23 @@ public class BattleshipView extends JFrame {
 		settingsItem6.setForeground(textColor);
 		settingsItem6.setBackground(backgroundColor);
 
+		settingsItem7.setForeground(textColor);
+		settingsItem7.setBackground(backgroundColor);
+
 		settingsItem1.addActionListener(e -> controller.getMenuController().hostGame(e));
 		settingsItem2.addActionListener(e -> controller.getMenuController().joinGame(e));
 		settingsItem3.addActionListener(e -> controller.getMenuController().disconnect(e));
 		settingsItem4.addActionListener(e -> controller.getMenuController().switchLanguage(e));
 		settingsItem5.addActionListener(e -> controller.getMenuController().changeBackgroundColor(e));
 		settingsItem6.addActionListener(e -> controller.getMenuController().exitGame(e));
+		settingsItem7.addActionListener(e -> controller.getMenuController().changeDifficulty(e));
 
 		settings.add(settingsItem1);
 		settings.add(settingsItem2);
 		settings.add(settingsItem3);
 		settings.add(settingsItem4);
 		settings.add(settingsItem5);
+		settings.add(settingsItem7);
 		settings.add(settingsItem6);
 
 		// Info menu
@@ -766,6 +765,28 @@ public class BattleshipView extends JFrame {
 	 */
 	public void setModel(BattleshipModel model) {
 		this.model = model;
+		updateRules();
+	}
+
+	/**
+	 * Rebuilds the grid and the fleet information if the rules of the model no
+	 * longer match them. Must be called before the grid listeners are set up for
+	 * a new game.
+	 */
+	public void updateRules() {
+		GameRules rules = model.getRules();
+		if (gridButtons.length != rules.getHeight() || gridButtons[0].length != rules.getWidth()) {
+			buildGrid(rules.getHeight(), rules.getWidth());
+			gridPanel.revalidate();
+			gridPanel.repaint();
+		}
+		if (playerInfoLabels.length != rules.getShipCount()) {
+			buildFleetInfo(rules);
+			infoPanels.revalidate();
+			infoPanels.repaint();
+		}
+		updatePlayerInfo(model.getPlayerFleet());
+		updateOpponentInfo(model.getOpponentFleet());
 	}
 
 	/**
@@ -849,8 +870,8 @@ public class BattleshipView extends JFrame {
 					button.setIcon(icon);
 				}
 			}
-			for (int row = 0; row < 10; row++) {
-				for (int col = 0; col < 10; col++) {
+			for (int row = 0; row < gridButtons.length; row++) {
+				for (int col = 0; col < gridButtons[row].length; col++) {
 					if (model.getPlayerGrid()[row][col] == BattleshipModel.HIT) {
 						gridButtons[row][col].setIcon(hitIndicator);
 					} else if (model.getPlayerGrid()[row][col] == BattleshipModel.MISS) {
@@ -861,6 +882,52 @@ public class BattleshipView extends JFrame {
 		}
 	}
 
+	/**
+	 * Fills the player and opponent info panels with a label per ship in the
+	 * fleet.
+	 *
+	 * @param rules The rules listing the ships of each fleet.
+	 */
+	private void buildFleetInfo(GameRules rules) {
+		int ships = rules.getShipCount();
+		Font labelFont = ships > 5 ? agencyPlain20.deriveFont(Math.max(8f, 20f * 5 / ships)) : agencyPlain20;
+		playerInfoLabels = new JLabel[ships];
+		opponentInfoLabels = new JLabel[ships];
+		playerInfoPanel.removeAll();
+		playerInfoPanel.setLayout(new GridLayout(ships + 1, 1));
+		playerInfoPanel.add(playerInfoLabel);
+		opponentInfoPanel.removeAll();
+		opponentInfoPanel.setLayout(new GridLayout(ships + 1, 1));
+		opponentInfoPanel.add(opponentInfoLabel);
+		for (int i = 0; i < ships; i++) {
+			String shipName = getShipLabel(rules.getShipName(i));
+
+			JLabel label = new JLabel(shipName, SwingConstants.CENTER);
+			label.setFont(labelFont);
+			label.setForeground(textColor);
+			playerInfoPanel.add(label);
+			playerInfoLabels[i] = label;
+
+			label = new JLabel(shipName, SwingConstants.CENTER);
+			label.setFont(labelFont);
+			label.setForeground(textColor);
+			opponentInfoPanel.add(label);
+			opponentInfoLabels[i] = label;
+		}
+	}
+
+	/**
+	 * Retrieves the localized name of a ship, or the name itself for ships
+	 * without a translation.
+	 *
+	 * @param name The name of the ship in the rules.
+	 * @return The name to display.
+	 */
+	private String getShipLabel(String name) {
+		String key = "ship." + name;
+		return loader.getResourceBundle().containsKey(key) ? loader.getResourceBundle().getString(key) : name;
+	}
+
 	/**
 	 * Updates the opponent's fleet information with the given ship counts.
 	 *
@@ -868,49 +935,59 @@ public class BattleshipView extends JFrame {
 	 *                      for the opponent
 	 */
 	public void updateOpponentInfo(List<ShipModel> opponentFleet) {
-		opponentInfoLabel.setText(loader.getResourceBundle().getString("opponent.info"));
+		updateOpponentInfoLabel();
 		for (ShipModel ship : opponentFleet) {
-			if (ship.isSunk()) {
-				switch (ship.getName()) {
-				case "aircraft":
-					opponentInfoLabels[0].setText(loader.getResourceBundle().getString("ship.aircraft") + " X");
-					break;
-				case "battleship":
-					opponentInfoLabels[1].setText(loader.getResourceBundle().getString("ship.battleship") + " X");
-					break;
-				case "cruiser":
-					opponentInfoLabels[2].setText(loader.getResourceBundle().getString("ship.cruiser") + " X");
-					break;
-				case "destroyer":
-					opponentInfoLabels[3].setText(loader.getResourceBundle().getString("ship.destroyer") + " X");
-					break;
-				case "submarine":
-					opponentInfoLabels[4].setText(loader.getResourceBundle().getString("ship.submarine") + " X");
-					break;
-				}
-			} else {
-				switch (ship.getName()) {
-				case "aircraft":
-					opponentInfoLabels[0].setText(loader.getResourceBundle().getString("ship.aircraft"));
-					break;
-				case "battleship":
-					opponentInfoLabels[1].setText(loader.getResourceBundle().getString("ship.battleship"));
-					break;
-				case "cruiser":
-					opponentInfoLabels[2].setText(loader.getResourceBundle().getString("ship.cruiser"));
-					break;
-				case "destroyer":
-					opponentInfoLabels[3].setText(loader.getResourceBundle().getString("ship.destroyer"));
-					break;
-				case "submarine":
-					opponentInfoLabels[4].setText(loader.getResourceBundle().getString("ship.submarine"));
-					break;
-				}
+			int id = ship.getId();
+			if (id >= 0 && id < opponentInfoLabels.length) {
+				opponentInfoLabels[id].setText(getShipLabel(ship.getName()) + (ship.isSunk() ? " X" : ""));
 			}
 		}
 		opponentInfoPanel.setBorder(new LineBorder(textColor));
 	}
 
+	/**
+	 * Shows the round-trip time to an online opponent next to its fleet.
+	 *
+	 * @param micros The round-trip time in microseconds, or -1 to hide it.
+	 */
+	public void updateRoundTripTime(long micros) {
+		roundTripTime = micros;
+		updateOpponentInfoLabel();
+	}
+
+	/**
+	 * Shows the chat lines dropped from an online opponent sending too fast next
+	 * to its fleet.
+	 *
+	 * @param dropped The number of lines dropped, or 0 to hide it.
+	 * @param floods  The number of times the opponent went over its rate.
+	 */
+	public void updateChatDropped(long dropped, long floods) {
+		chatDropped = dropped;
+		chatFloods = floods;
+		updateOpponentInfoLabel();
+	}
+
+	/**
+	 * Updates the title of the opponent's fleet information, with the
+	 * round-trip time and the chat lines dropped when playing online.
+	 */
+	private void updateOpponentInfoLabel() {
+		String title = loader.getResourceBundle().getString("opponent.info");
+		String details = "";
+		if (roundTripTime >= 0) {
+			details = Math.max(1, (roundTripTime + 999) / 1000) + " ms";
+		}
+		if (chatDropped > 0) {
+			details += (details.isEmpty() ? "" : ", ") + MessageFormat
+					.format(loader.getResourceBundle().getString("chat.dropped"), chatDropped, chatFloods);
+		}
+		if (!details.isEmpty()) {
+			title += " (" + details + ")";
+		}
+		opponentInfoLabel.setText(title);
+	}
+
 	/**
 	 * Updates the player's fleet information with the given ship counts.
 	 *
@@ -920,42 +997,9 @@ public class BattleshipView extends JFrame {
 	public void updatePlayerInfo(List<ShipModel> playerFleet) {
 		playerInfoLabel.setText(loader.getResourceBundle().getString("player.info"));
 		for (ShipModel ship : playerFleet) {
-			if (ship.isSunk()) {
-				switch (ship.getName()) {
-				case "aircraft":
-					playerInfoLabels[0].setText(loader.getResourceBundle().getString("ship.aircraft") + " X");
-					break;
-				case "battleship":
-					playerInfoLabels[1].setText(loader.getResourceBundle().getString("ship.battleship") + " X");
-					break;
-				case "cruiser":
-					playerInfoLabels[2].setText(loader.getResourceBundle().getString("ship.cruiser") + " X");
-					break;
-				case "destroyer":
-					playerInfoLabels[3].setText(loader.getResourceBundle().getString("ship.destroyer") + " X");
-					break;
-				case "submarine":
-					playerInfoLabels[4].setText(loader.getResourceBundle().getString("ship.submarine") + " X");
-					break;
-				}
-			} else {
-				switch (ship.getName()) {
-				case "aircraft":
-					playerInfoLabels[0].setText(loader.getResourceBundle().getString("ship.aircraft"));
-					break;
-				case "battleship":
-					playerInfoLabels[1].setText(loader.getResourceBundle().getString("ship.battleship"));
-					break;
-				case "cruiser":
-					playerInfoLabels[2].setText(loader.getResourceBundle().getString("ship.cruiser"));
-					break;
-				case "destroyer":
-					playerInfoLabels[3].setText(loader.getResourceBundle().getString("ship.destroyer"));
-					break;
-				case "submarine":
-					playerInfoLabels[4].setText(loader.getResourceBundle().getString("ship.submarine"));
-					break;
-				}
+			int id = ship.getId();
+			if (id >= 0 && id < playerInfoLabels.length) {
+				playerInfoLabels[id].setText(getShipLabel(ship.getName()) + (ship.isSunk() ? " X" : ""));
 			}
 		}
 		playerInfoPanel.setBorder(new LineBorder(textColor));
@@ -972,6 +1016,14 @@ public class BattleshipView extends JFrame {
 		}
 	}
 
+	/**
+	 * Updates the difficulty menu item to show the current difficulty.
+	 */
+	public void updateDifficultyMenu() {
+		settingsItem7.setText(loader.getResourceBundle().getString("settings.difficulty") + " : "
+				+ loader.getResourceBundle().getString(model.getDifficulty().getKey()));
+	}
+
 	/**
 	 * Updates the time label.
 	 */
@@ -1014,6 +1066,10 @@ public class BattleshipView extends JFrame {
 		}
 		for (ShipModel ship : model.getOpponentFleet()) {
 			CoordinateModel coordinate = ship.getCoordinateHead();
+			if (coordinate == null) {
+				// A hidden layout is shown once the opponent reveals it
+				continue;
+			}
 			int row = coordinate.getRow();
 			int col = coordinate.getColumn();
 			for (int i = 0; i < ship.getLength(); i++) {
@@ -1117,6 +1173,7 @@ public class BattleshipView extends JFrame {
 		settingsItem4.setText(loader.getResourceBundle().getString("settings.language"));
 		settingsItem5.setText(loader.getResourceBundle().getString("settings.background"));
 		settingsItem6.setText(loader.getResourceBundle().getString("settings.exit"));
+		updateDifficultyMenu();
 
 		updateHostPanel();
 		updateClientPanel();
@@ -1251,6 +1308,8 @@ public class BattleshipView extends JFrame {
 		settingsItem5.setForeground(textColor);
 		settingsItem6.setBackground(backgroundColor);
 		settingsItem6.setForeground(textColor);
+		settingsItem7.setBackground(backgroundColor);
+		settingsItem7.setForeground(textColor);
 
 		// Update info menu
 		info.setBackground(backgroundColor);